@@ -0,0 +1,103 @@
+package com.tranduydat.datamigrationplanner.benchmark;
+
+import com.tranduydat.datamigrationplanner.config.Config;
+import com.tranduydat.datamigrationplanner.db.source.SyntheticSource;
+import com.tranduydat.datamigrationplanner.metrics.Metrics;
+import com.tranduydat.datamigrationplanner.model.DbModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.task.DbReader;
+import com.tranduydat.datamigrationplanner.task.TaskScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading a whole database end to end, through the scheduler and the profiling strategies,
+ * against a synthetic source whose queries take a fixed latency.
+ * With a latency, the time per read shows how well the workers hide it.
+ * The profile journal is off, as its disk flush per table would be measured too.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlog4j.configurationFile=log4j2-benchmark.properties"})
+public class DbReaderBenchmark {
+  private static final String HOST = "synthetic";
+  private static final int PORT = 1433;
+
+  @Param({"100x10", "1000x50"})
+  public String shape;
+
+  // The time each query takes
+  @Param({"0", "1000"})
+  public long latencyMicros;
+
+  // The number of tables profiled at once
+  @Param({"1", "8"})
+  public int workers;
+
+  private SyntheticSource source;
+  private TargetModel target;
+  private TaskScheduler scheduler;
+  private Path planFile;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    int[] tablesAndColumns = SyntheticDbModels.parseShape(this.shape);
+    Config config = Config.getInstance();
+    config.setCpMaxSize(this.workers);
+    config.setJournal(false);
+
+    this.source = SyntheticSource.fromSpec(String.format(Locale.ROOT,
+      "tables=%d,columns=%d,max_rows=1000000,latency_ms=%s,latency_jitter=0",
+      tablesAndColumns[0], tablesAndColumns[1], this.latencyMicros / 1000.0));
+    this.scheduler = new TaskScheduler(this.workers, this.workers, config.getMaxHeavyScans());
+    this.planFile = Files.createTempFile("dmp-benchmark-", ".plan");
+    this.target = TargetModel.builder()
+      .host(HOST)
+      .port(PORT)
+      .dbName("benchmark")
+      .savePath(this.planFile.toString())
+      .build();
+  }
+
+  @Setup(Level.Iteration)
+  public void resetMetrics() {
+    // Each iteration records into fresh metrics rather than those of all previous reads
+    Metrics.reset();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.scheduler.shutdown();
+    Files.deleteIfExists(this.planFile);
+  }
+
+  @Benchmark
+  public DbModel get() throws SQLException {
+    return new DbReader(this.source).get(this.target, this.scheduler);
+  }
+}
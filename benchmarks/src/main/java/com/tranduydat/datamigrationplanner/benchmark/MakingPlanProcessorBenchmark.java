@@ -0,0 +1,51 @@
+package com.tranduydat.datamigrationplanner.benchmark;
+
+import com.tranduydat.datamigrationplanner.model.DbModel;
+import com.tranduydat.datamigrationplanner.model.PlanModel;
+import com.tranduydat.datamigrationplanner.task.MakingPlanProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks planning a profiled database, from 100 to 100k tables and from 10 to 1,000 columns per table
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlog4j.configurationFile=log4j2-benchmark.properties"})
+public class MakingPlanProcessorBenchmark {
+  // Tables x columns per table, the biggest shapes are kept under 100M columns in total so they fit in memory
+  @Param({"100x10", "100x1000", "10000x10", "10000x100", "100000x10", "100000x100"})
+  public String shape;
+
+  private DbModel dbModel;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[] tablesAndColumns = SyntheticDbModels.parseShape(this.shape);
+    this.dbModel = SyntheticDbModels.build("benchmark", tablesAndColumns[0], tablesAndColumns[1]);
+  }
+
+  @Benchmark
+  public PlanModel makeAndGet() {
+    return new MakingPlanProcessor().makeAndGet(this.dbModel);
+  }
+}
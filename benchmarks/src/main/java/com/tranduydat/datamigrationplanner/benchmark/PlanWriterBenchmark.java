@@ -0,0 +1,77 @@
+package com.tranduydat.datamigrationplanner.benchmark;
+
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.model.PlanModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.task.MakingPlanProcessor;
+import com.tranduydat.datamigrationplanner.task.PlanWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks saving the plan of a database to a file, from 100 to 100k tables
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlog4j.configurationFile=log4j2-benchmark.properties"})
+public class PlanWriterBenchmark {
+  // The plan only keeps one line per table, so the columns barely matter
+  @Param({"100x10", "10000x10", "100000x10"})
+  public String shape;
+  // The single-file formats, as Sqoop options files are one small file per table
+  @Param({"text", "ndjson"})
+  public String format;
+
+  private PlanModel planModel;
+  private Path planFile;
+  private TargetModel target;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    int[] tablesAndColumns = SyntheticDbModels.parseShape(this.shape);
+    this.planModel = new MakingPlanProcessor()
+      .makeAndGet(SyntheticDbModels.build("benchmark", tablesAndColumns[0], tablesAndColumns[1]));
+    this.planFile = Files.createTempFile("dmp-benchmark-", ".plan");
+    this.target = TargetModel.builder()
+      .host("localhost")
+      .port(1433)
+      .dbName("benchmark")
+      .savePath(this.planFile.toString())
+      .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.planFile);
+  }
+
+  @Benchmark
+  public boolean write() {
+    return PlanWriter.write(this.planFile.toString(), this.planModel, PlanFormat.fromValue(this.format), Constant.DELIMITER,
+      this.target);
+  }
+}
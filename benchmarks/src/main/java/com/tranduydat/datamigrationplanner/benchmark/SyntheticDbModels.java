@@ -0,0 +1,70 @@
+package com.tranduydat.datamigrationplanner.benchmark;
+
+import com.tranduydat.datamigrationplanner.model.DbModel;
+import com.tranduydat.datamigrationplanner.model.TableModel;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * To build profiled database models of any size without a database
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class SyntheticDbModels {
+  private SyntheticDbModels() {
+  }
+
+  /**
+   * Parses a shape such as "1000x100".
+   *
+   * @param shape The number of tables and of columns per table, separated by "x".
+   * @return The number of tables, then the number of columns.
+   */
+  public static int[] parseShape(String shape) {
+    String[] parts = shape.split("x");
+    return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+  }
+
+  /**
+   * Builds a database model as if it was profiled: every 10th table has a single-column primary key,
+   * and the others only have a unique column, the last one, so the planner goes through all distinct counts.
+   *
+   * @param dbName          The name of the database.
+   * @param numberOfTables  The number of tables.
+   * @param numberOfColumns The number of columns per table.
+   * @return The database model.
+   */
+  public static DbModel build(String dbName, int numberOfTables, int numberOfColumns) {
+    String[] columnNames = new String[numberOfColumns];
+    for (int i = 0; i < numberOfColumns; i++) {
+      columnNames[i] = "column_" + i;
+    }
+
+    // Like the map filled by the profiling workers
+    Map<String, TableModel> tableMap = new ConcurrentHashMap<>();
+    for (int i = 0; i < numberOfTables; i++) {
+      long totalCount = 1_000_000L + i;
+      long[] distinctCounts = new long[numberOfColumns];
+      for (int j = 0; j < numberOfColumns; j++) {
+        distinctCounts[j] = j == numberOfColumns - 1 ? totalCount : totalCount / (j + 2);
+      }
+      tableMap.put("[dbo].[table_" + i + "]", TableModel.builder()
+        .totalCount(totalCount)
+        .columnNames(columnNames)
+        .distinctCounts(distinctCounts)
+        .primaryKeys(i % 10 == 0 ? Collections.singletonList(columnNames[0]) : Collections.<String>emptyList())
+        .splitStatsByColumn(new HashMap<>())
+        .build());
+    }
+
+    return DbModel.builder()
+      .dbName(dbName)
+      .tableMap(tableMap)
+      .build();
+  }
+}
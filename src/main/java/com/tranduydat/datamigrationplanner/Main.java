@@ -1,11 +1,24 @@
 package com.tranduydat.datamigrationplanner;
 
+import com.tranduydat.datamigrationplanner.config.BoundaryMode;
 import com.tranduydat.datamigrationplanner.config.Config;
-import com.tranduydat.datamigrationplanner.pipeline.MakingPlanPipeline;
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.config.ProfileMode;
+import com.tranduydat.datamigrationplanner.config.RowCountMode;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.pipeline.BatchPlanningPipeline;
 import org.apache.commons.cli.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Data Migration Planner (DMP)
  * Just a hobby project in my free time!
@@ -32,8 +45,8 @@ public class Main {
     // Set configuration values
     setConfigValues(cmd, password);
 
-    // Run the making plan pipeline
-    runMakingPlanPipeline();
+    // Run the making plan pipeline for all target databases
+    runMakingPlanPipeline(getTargets(cmd));
   }
 
   private static String checkAndGetPassword() {
@@ -78,16 +91,16 @@ public class Main {
       .desc("The username for the datasource")
       .build());
     options.addOption(Option.builder("h")
-      .longOpt("ds_host").hasArg().required()
+      .longOpt("ds_host").hasArg()
       .desc("The hostname for the datasource")
       .build());
     options.addOption(Option.builder("p")
-      .longOpt("ds_port").hasArg().required()
+      .longOpt("ds_port").hasArg()
       .desc("The port number for the datasource")
       .build());
     options.addOption(Option.builder("d")
-      .longOpt("ds_db").hasArg().required()
-      .desc("The name of the database for the datasource")
+      .longOpt("ds_db").hasArg()
+      .desc("The name of the database for the datasource, or a comma-separated list of databases")
       .build());
     options.addOption(Option.builder("m")
       .longOpt("cp_max_size").hasArg()
@@ -99,7 +112,139 @@ public class Main {
       .build());
     options.addOption(Option.builder("s")
       .longOpt("save_path").hasArg().required()
-      .desc("The save path")
+      .desc("The save path, a directory when more than one database is planned")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("plan_format").hasArg()
+      .desc("The format of the plan: text (default), ndjson, or sqoop for one Sqoop options file per table in a directory at the save path")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("plan_diff")
+      .desc("Save the added, removed and changed tables since the previous plan at the save path to <save_path>.diff, for text and ndjson plans")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("diff_row_count_shift").hasArg()
+      .desc("The share of the previous row count from which a row count shift is a change in the plan diff, default to 0.5, ndjson plans only")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("profile_mode").hasArg()
+      .desc("The strategy to profile columns: per_column, single_scan (default), approx, stats, lazy")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("distinct_batch_size").hasArg()
+      .desc("The max number of columns counted in one query in single_scan mode")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("sample_rows").hasArg()
+      .desc("The number of rows sampled to rule out non-unique columns before counting, 0 (default) to disable")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("score_split_columns")
+      .desc("Score unique columns by how evenly they split a table, and pick the best one")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("mappers").hasArg()
+      .desc("The number of Sqoop mappers a table is split into")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("boundary_mode").hasArg()
+      .desc("The split boundaries written next to the plan: none (default), min_max, quantiles")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("row_count_mode").hasArg()
+      .desc("The source of row counts: exact (default), metadata")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("verify_row_count")
+      .desc("Verify a metadata row count with COUNT_BIG(*) when a distinct count is within 5% of it")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("stats_max_age_hours").hasArg()
+      .desc("The max age of statistics in stats mode, tables with older statistics are scanned")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("query_timeout_seconds").hasArg()
+      .desc("The max time of a single query, a profiled table falls back to statistics if exceeded, 0 (default) for no limit")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("table_timeout_seconds").hasArg()
+      .desc("The max time of all profiling queries of a table, the table falls back to statistics if exceeded, 0 (default) for no limit")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("max_scan_rows").hasArg()
+      .desc("The max row count of a table to be scanned, bigger tables are profiled from statistics only, 0 (default) for no limit")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("cache_dir").hasArg()
+      .desc("The directory of the profile cache, only changed tables are profiled again (disabled if not provided)")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("metrics_dir").hasArg()
+      .desc("The directory to save the metrics of the run to, as JSON and Prometheus text (not saved if not provided)")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("synthetic_source").hasArg()
+      .desc("The spec of a synthetic database to plan instead of the target, for load tests, e.g. \"tables=50000,latency_ms=2\" (disabled if not provided)")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("cache_max_age_hours").hasArg()
+      .desc("The max age of a cached table profile, older profiles are profiled again")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("heavy_table_pages").hasArg()
+      .desc("The used page count from which a table is heavy to scan, default to 131072 (1 GB), 0 to disable")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("max_heavy_scans").hasArg()
+      .desc("The max number of heavy tables profiled at once on an instance")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("adaptive_concurrency")
+      .desc("Adapt the number of tables profiled at once on an instance to how busy it is, up to cp_max_size")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("adaptive_min_workers").hasArg()
+      .desc("The min number of tables profiled at once on an instance with adaptive concurrency")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("adaptive_interval_seconds").hasArg()
+      .desc("How often the number of workers is adapted")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("adaptive_latency_factor").hasArg()
+      .desc("The growth of the probe latency over its best value from which an instance is under pressure")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("adaptive_wait_stats")
+      .desc("Also back off when too many requests wait on the instance (needs VIEW SERVER STATE)")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("adaptive_max_waiting_requests").hasArg()
+      .desc("The number of waiting requests from which an instance is under pressure")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("targets").hasArg()
+      .desc("A file of databases to plan, one `host%port%db[%save_path]` per line, instead of -h, -p and -d")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("max_parallelism").hasArg()
+      .desc("The max number of table tasks running at once over all instances, default to cp_max_size per instance")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("streaming")
+      .desc("Plan and write each table as soon as it is profiled, in the order tables finish")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("stream_queue_size").hasArg()
+      .desc("The max number of profiled tables waiting to be written in streaming mode")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("resume")
+      .desc("Resume a previous run from its profile journal, only the unfinished tables are profiled")
+      .build());
+    options.addOption(Option.builder()
+      .longOpt("no_journal")
+      .desc("Do not journal the profiled tables, so a killed run cannot be resumed")
       .build());
 
     return options;
@@ -114,11 +259,43 @@ public class Main {
   private static void setConfigValues(CommandLine cmd, String password) {
     String username = cmd.getOptionValue("u");
     String host = cmd.getOptionValue("h");
-    int port = Integer.parseInt(cmd.getOptionValue("p"));
+    int port = Integer.parseInt(cmd.getOptionValue("p", "1433")); // Default to 1433 if not provided
     String db = cmd.getOptionValue("d");
     int maxConnections = Integer.parseInt(cmd.getOptionValue("m", "5")); // Default to 5 if not provided
     int minIdleConnections = Integer.parseInt(cmd.getOptionValue("i", "1")); // Default to 1 if not provided
+    long heavyTablePages = Long.parseLong(cmd.getOptionValue("heavy_table_pages", "131072")); // Default to 1 GB of 8 KB pages if not provided
+    int maxHeavyScans = Integer.parseInt(cmd.getOptionValue("max_heavy_scans", "1")); // Default to 1 if not provided
+    boolean adaptiveConcurrency = cmd.hasOption("adaptive_concurrency");
+    int adaptiveMinWorkers = Integer.parseInt(cmd.getOptionValue("adaptive_min_workers", "1")); // Default to 1 if not provided
+    int adaptiveIntervalSeconds = Integer.parseInt(cmd.getOptionValue("adaptive_interval_seconds", "10")); // Default to 10 if not provided
+    double adaptiveLatencyFactor = Double.parseDouble(cmd.getOptionValue("adaptive_latency_factor", "2.0")); // Default to 2.0 if not provided
+    boolean adaptiveWaitStats = cmd.hasOption("adaptive_wait_stats");
+    int adaptiveMaxWaitingRequests = Integer.parseInt(cmd.getOptionValue("adaptive_max_waiting_requests", "10")); // Default to 10 if not provided
+    int maxParallelism = Integer.parseInt(cmd.getOptionValue("max_parallelism", "0")); // Default to cp_max_size per instance if not provided
     String savePath = cmd.getOptionValue("s");
+    ProfileMode profileMode = ProfileMode.fromValue(cmd.getOptionValue("profile_mode", "single_scan")); // Default to single_scan if not provided
+    int distinctBatchSize = Integer.parseInt(cmd.getOptionValue("distinct_batch_size", "50")); // Default to 50 if not provided
+    int sampleRows = Integer.parseInt(cmd.getOptionValue("sample_rows", "0")); // Default to 0 (disabled) if not provided
+    boolean scoreSplitColumns = cmd.hasOption("score_split_columns");
+    int mappers = Integer.parseInt(cmd.getOptionValue("mappers", "4")); // Default to 4 (as Sqoop) if not provided
+    BoundaryMode boundaryMode = BoundaryMode.fromValue(cmd.getOptionValue("boundary_mode", "none")); // Default to none if not provided
+    PlanFormat planFormat = PlanFormat.fromValue(cmd.getOptionValue("plan_format", "text")); // Default to text if not provided
+    boolean planDiff = cmd.hasOption("plan_diff");
+    double diffRowCountShift = Double.parseDouble(cmd.getOptionValue("diff_row_count_shift", "0.5")); // Default to 0.5 if not provided
+    RowCountMode rowCountMode = RowCountMode.fromValue(cmd.getOptionValue("row_count_mode", "exact")); // Default to exact if not provided
+    boolean verifyRowCount = cmd.hasOption("verify_row_count");
+    int statsMaxAgeHours = Integer.parseInt(cmd.getOptionValue("stats_max_age_hours", "168")); // Default to 7 days if not provided
+    int queryTimeoutSeconds = Integer.parseInt(cmd.getOptionValue("query_timeout_seconds", "0")); // Default to 0 (no limit) if not provided
+    int tableTimeoutSeconds = Integer.parseInt(cmd.getOptionValue("table_timeout_seconds", "0")); // Default to 0 (no limit) if not provided
+    long maxScanRows = Long.parseLong(cmd.getOptionValue("max_scan_rows", "0")); // Default to 0 (no limit) if not provided
+    String cacheDir = cmd.getOptionValue("cache_dir"); // Disabled if not provided
+    int cacheMaxAgeHours = Integer.parseInt(cmd.getOptionValue("cache_max_age_hours", "168")); // Default to 7 days if not provided
+    String metricsDir = cmd.getOptionValue("metrics_dir"); // Not saved if not provided
+    String syntheticSource = cmd.getOptionValue("synthetic_source"); // Disabled if not provided
+    boolean resume = cmd.hasOption("resume");
+    boolean journal = !cmd.hasOption("no_journal");
+    boolean streaming = cmd.hasOption("streaming");
+    int streamQueueSize = Integer.parseInt(cmd.getOptionValue("stream_queue_size", "1000")); // Default to 1000 if not provided
 
     Config config = Config.getInstance();
     config.setMssqlServerHost(host);
@@ -128,14 +305,151 @@ public class Main {
     config.setMssqlServerPassword(password);
     config.setCpMaxSize(maxConnections);
     config.setCpMinIdle(minIdleConnections);
+    config.setMaxParallelism(maxParallelism);
+    config.setAdaptiveConcurrency(adaptiveConcurrency);
+    config.setAdaptiveMinWorkers(adaptiveMinWorkers);
+    config.setAdaptiveIntervalSeconds(adaptiveIntervalSeconds);
+    config.setAdaptiveLatencyFactor(adaptiveLatencyFactor);
+    config.setAdaptiveWaitStats(adaptiveWaitStats);
+    config.setAdaptiveMaxWaitingRequests(adaptiveMaxWaitingRequests);
+    config.setHeavyTablePages(heavyTablePages);
+    config.setMaxHeavyScans(maxHeavyScans);
     config.setSavePath(savePath);
+    config.setProfileMode(profileMode);
+    config.setDistinctBatchSize(distinctBatchSize);
+    config.setSampleRows(sampleRows);
+    config.setScoreSplitColumns(scoreSplitColumns);
+    config.setMappers(mappers);
+    config.setBoundaryMode(boundaryMode);
+    config.setPlanFormat(planFormat);
+    config.setPlanDiff(planDiff);
+    config.setDiffRowCountShift(diffRowCountShift);
+    config.setRowCountMode(rowCountMode);
+    config.setVerifyRowCount(verifyRowCount);
+    config.setStatsMaxAgeHours(statsMaxAgeHours);
+    config.setQueryTimeoutSeconds(queryTimeoutSeconds);
+    config.setTableTimeoutSeconds(tableTimeoutSeconds);
+    config.setMaxScanRows(maxScanRows);
+    config.setCacheDir(cacheDir);
+    config.setCacheMaxAgeHours(cacheMaxAgeHours);
+    config.setMetricsDir(metricsDir);
+    config.setSyntheticSource(syntheticSource);
+    config.setResume(resume);
+    config.setJournal(journal);
+    config.setStreaming(streaming);
+    config.setStreamQueueSize(streamQueueSize);
+  }
+
+  /**
+   * Gets the databases to plan, from the targets file if provided, otherwise from -h, -p and -d.
+   * With more than one database, the save path is a directory, and each plan is saved into it.
+   *
+   * @param cmd The parsed CommandLine object.
+   * @return The list of databases to plan.
+   */
+  private static List<TargetModel> getTargets(CommandLine cmd) {
+    String savePath = cmd.getOptionValue("s");
+    List<TargetModel> targets = new ArrayList<>();
+
+    if (cmd.hasOption("targets")) {
+      try {
+        targets.addAll(parseTargets(Files.readAllLines(Paths.get(cmd.getOptionValue("targets")), StandardCharsets.UTF_8)));
+      } catch (IOException e) {
+        logger.fatal("Failed to read targets file: " + e.getMessage() + ". Exiting the application.");
+        System.exit(1);
+      } catch (IllegalArgumentException e) {
+        logger.fatal(e.getMessage() + ". Exiting the application.");
+        System.exit(1);
+      }
+    } else if (cmd.hasOption("h") && cmd.hasOption("d")) {
+      Config config = Config.getInstance();
+      for (String db : config.getMssqlServerDb().split(",")) {
+        targets.add(TargetModel.builder()
+          .host(config.getMssqlServerHost())
+          .port(config.getMssqlServerPort())
+          .dbName(db.trim())
+          .build());
+      }
+    }
+
+    if (targets.isEmpty()) {
+      logger.fatal("No database to plan, either -h and -d or --targets is required. Exiting the application.");
+      System.exit(1);
+    }
+
+    // Several databases are saved into the save path, as a directory
+    if (targets.size() > 1) {
+      try {
+        Files.createDirectories(Paths.get(savePath));
+      } catch (IOException e) {
+        logger.fatal("Failed to create save directory: " + e.getMessage() + ". Exiting the application.");
+        System.exit(1);
+      }
+    }
+    resolveSavePaths(targets, savePath);
+    return targets;
+  }
+
+  /**
+   * Parses the lines of a targets file, one `host%port%db[%save_path]` per line.
+   * Blank lines and lines starting with "#" are skipped, and the fields are trimmed.
+   *
+   * @param lines The lines of the targets file.
+   * @return The databases to plan, without a save path if the line has none.
+   * @throws IllegalArgumentException If a line is not a valid target.
+   */
+  static List<TargetModel> parseTargets(List<String> lines) {
+    List<TargetModel> targets = new ArrayList<>();
+    for (String line : lines) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split(Constant.DELIMITER);
+      if (fields.length < 3 || fields.length > 4 || fields[0].trim().isEmpty() || fields[2].trim().isEmpty()) {
+        throw new IllegalArgumentException("Invalid target: " + line + ". Expected host%port%db[%save_path]");
+      }
+      int port;
+      try {
+        port = Integer.parseInt(fields[1].trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid port of target: " + line);
+      }
+      String savePath = fields.length > 3 ? fields[3].trim() : "";
+      targets.add(TargetModel.builder()
+        .host(fields[0].trim())
+        .port(port)
+        .dbName(fields[2].trim())
+        .savePath(savePath.isEmpty() ? null : savePath)
+        .build());
+    }
+    return targets;
   }
 
   /**
-   * Creates an instance of the MakingPlanPipeline class and runs the pipeline.
+   * Sets the save path of the databases that have none: a single database is saved to the save path itself, as before,
+   * and each of several databases to its own file in the save path.
+   *
+   * @param targets  The databases to plan.
+   * @param savePath The save path.
+   */
+  static void resolveSavePaths(List<TargetModel> targets, String savePath) {
+    for (TargetModel target : targets) {
+      if (target.getSavePath() == null) {
+        target.setSavePath(targets.size() == 1
+          ? savePath
+          : Paths.get(savePath, target.getHost() + "_" + target.getPort() + "_" + target.getDbName() + ".plan").toString());
+      }
+    }
+  }
+
+  /**
+   * Creates an instance of the BatchPlanningPipeline class and runs the pipeline.
+   *
+   * @param targets The databases to plan.
    */
-  private static void runMakingPlanPipeline() {
-    MakingPlanPipeline makingPlanPipeline = new MakingPlanPipeline();
-    makingPlanPipeline.run();
+  private static void runMakingPlanPipeline(List<TargetModel> targets) {
+    BatchPlanningPipeline batchPlanningPipeline = new BatchPlanningPipeline(targets);
+    batchPlanningPipeline.run();
   }
 }
@@ -0,0 +1,43 @@
+package com.tranduydat.datamigrationplanner.config;
+
+import lombok.Getter;
+
+/**
+ * The kinds of split boundaries precomputed for the split column of each table
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public enum BoundaryMode {
+  // No boundaries, Sqoop runs its own boundary query
+  NONE("none"),
+  // The min and max values, Sqoop still splits them into ranges of the same width
+  MIN_MAX("min_max"),
+  // The min and max values and the quantile cut points, one range with the same number of rows per mapper
+  QUANTILES("quantiles");
+
+  // The value used in command-line arguments
+  @Getter
+  private final String value;
+
+  BoundaryMode(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Finds the boundary mode by its command-line value.
+   *
+   * @param value The command-line value, e.g. "quantiles".
+   * @return The boundary mode.
+   * @throws IllegalArgumentException If no boundary mode has the given value.
+   */
+  public static BoundaryMode fromValue(String value) {
+    for (BoundaryMode mode : values()) {
+      if (mode.value.equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Unknown boundary mode: " + value);
+  }
+}
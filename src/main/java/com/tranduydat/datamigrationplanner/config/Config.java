@@ -20,12 +20,79 @@ public class Config {
   private String mssqlServerPassword;
   private String mssqlServerJdbcUri = String.format("jdbc:sqlserver://%s:%d;encrypt=true;trustServerCertificate=true;databaseName=%s",
     mssqlServerHost, mssqlServerPort, mssqlServerDb);
-  // The max size of connection pool in HikariCP
+  // The max number of connections to an instance taken by table tasks,
+  // which is also the number of tables profiled in parallel on an instance
   private int cpMaxSize = 5;
   // The min number of idle connections in HikariCP
   private int cpMinIdle = 1;
+  // The max number of table tasks running at once over all instances,
+  // 0 for `cpMaxSize` per instance
+  private int maxParallelism = 0;
+  // The used page count from which a table is heavy to scan, 0 to treat no table as heavy
+  private long heavyTablePages = 131072;
+  // The max number of heavy tables profiled at once on an instance
+  private int maxHeavyScans = 1;
+  // Whether to adapt the number of tables profiled at once on an instance to how busy it is,
+  // between `adaptiveMinWorkers` and `cpMaxSize`
+  private boolean adaptiveConcurrency = false;
+  private int adaptiveMinWorkers = 1;
+  // How often the number of workers is adapted
+  private int adaptiveIntervalSeconds = 10;
+  // The growth of the probe latency over its best value from which an instance is under pressure
+  private double adaptiveLatencyFactor = 2.0;
+  // Whether to also count the waiting requests of an instance, which needs `VIEW SERVER STATE`
+  private boolean adaptiveWaitStats = false;
+  // The number of waiting requests from which an instance is under pressure
+  private int adaptiveMaxWaitingRequests = 10;
+  // The strategy to profile the distinct count of columns
+  private ProfileMode profileMode = ProfileMode.SINGLE_SCAN;
+  // The max number of columns counted in one `SELECT` in single scan mode
+  private int distinctBatchSize = 50;
+  // The number of rows sampled to rule out columns with duplicates before counting them exactly, 0 to disable
+  private int sampleRows = 0;
+  // Whether to score unique columns by how evenly they split a table, and pick the best one
+  private boolean scoreSplitColumns = false;
+  // The number of Sqoop mappers a table is split into
+  private int mappers = 4;
+  // The split boundaries precomputed for the split column of each table
+  private BoundaryMode boundaryMode = BoundaryMode.NONE;
+  // The source of the total count of rows
+  private RowCountMode rowCountMode = RowCountMode.EXACT;
+  // Whether to verify a row count from the catalog with `COUNT_BIG(*)`
+  // when a column looks unique against it
+  private boolean verifyRowCount = false;
+  // The max age of statistics in stats mode, older statistics are too stale to be used
+  private int statsMaxAgeHours = 168;
+  // The max time of a single profiling query, 0 for no limit
+  private int queryTimeoutSeconds = 0;
+  // The max time of all profiling queries of a table, 0 for no limit
+  private int tableTimeoutSeconds = 0;
+  // The max row count of a table to be scanned, bigger tables are profiled from statistics only, 0 for no limit
+  private long maxScanRows = 0;
+  // The directory of the profile cache, the cache is disabled if not set
+  private String cacheDir;
+  // The max age of a cached table profile, older profiles are profiled again even if the table did not change
+  private int cacheMaxAgeHours = 168;
+  // Whether to resume a previous run from its profile journal, instead of starting over
+  private boolean resume = false;
+  // Whether to journal each profiled table, so a killed run can be resumed
+  private boolean journal = true;
+  // Whether to plan and write each table as soon as it is profiled, instead of after all tables
+  private boolean streaming = false;
+  // The max number of profiled tables waiting to be planned and written in streaming mode
+  private int streamQueueSize = 1000;
+  // The directory to save the metrics of the run to, as JSON and Prometheus text, not saved if not set
+  private String metricsDir;
+  // The spec of a synthetic database to plan instead of the target, e.g. "tables=50000,latency_ms=2", not used if not set
+  private String syntheticSource;
   // The file path to save plan
   private String savePath;
+  // The format of the plan, a directory of Sqoop options files at the save path for `sqoop`
+  private PlanFormat planFormat = PlanFormat.TEXT;
+  // Whether to save the changes since the plan at the save path to `<save_path>.diff`
+  private boolean planDiff = false;
+  // The share of the previous row count from which a row count shift is a change in the plan diff
+  private double diffRowCountShift = 0.5;
 
   private Config() {
     // Private constructor to prevent direct instantiation
@@ -1,5 +1,11 @@
 package com.tranduydat.datamigrationplanner.config;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @author Dat Tran (dattd6)
  * @version 1
@@ -26,4 +32,38 @@ public class Constant {
 
   public static String LINEBAR = "======================================================================";
   public static String DELIMITER = "%";
+  // Data types that do not support (distinct) count, or that Sqoop cannot split on,
+  // so they are never profiled
+  public static Set<String> NON_SPLITTABLE_DATA_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+    "text", "ntext", "image", "xml", "geography", "geometry",
+    "binary", "varbinary", "timestamp", "sql_variant", "hierarchyid", "bit")));
+  // Data types used to rank columns by how likely they are unique
+  public static Set<String> INTEGER_DATA_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+    "bigint", "int", "smallint", "tinyint")));
+  public static Set<String> NUMERIC_DATA_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+    "decimal", "numeric", "money", "smallmoney", "float", "real")));
+  public static Set<String> DATE_TIME_DATA_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+    "date", "datetime", "datetime2", "smalldatetime", "datetimeoffset", "time")));
+  // The number of rows fetched per round trip by the catalog queries
+  public static int CATALOG_FETCH_SIZE = 10000;
+  // The size of the buffer the plan files are written through, so a write is a large sequential one
+  public static int PLAN_WRITE_BUFFER_BYTES = 256 * 1024;
+  // The number of buckets and sampled rows of a value histogram of a split column
+  public static int SPLIT_HISTOGRAM_BUCKETS = 20;
+  public static int SPLIT_SAMPLE_ROWS = 10000;
+  // The relative error tolerated for `APPROX_COUNT_DISTINCT` before a column is ruled out from being unique,
+  // a bit wider than its documented error of 2%
+  public static double APPROX_COUNT_DISTINCT_TOLERANCE = 0.03;
+  // The relative lag of a row count from the catalog behind the table, within which a column may still be unique,
+  // so the row count is verified before a column is taken as unique or not against it
+  public static double ROW_COUNT_STALENESS_TOLERANCE = 0.05;
+  // How much the best probe latency of an instance is relaxed at each interval of the adaptive concurrency,
+  // and the latency growth below which an instance is never under pressure, as tiny latencies are noisy
+  public static double ADAPTIVE_BASELINE_RELAX = 1.01;
+  public static double ADAPTIVE_LATENCY_SLACK_MILLIS = 5;
+  // The upper bounds of the buckets of the latency histograms in the metrics, in milliseconds
+  public static final List<Long> METRICS_LATENCY_BUCKETS_MILLIS = Collections.unmodifiableList(Arrays.asList(
+    1L, 5L, 10L, 50L, 100L, 500L, 1000L, 5000L, 10000L, 60000L, 300000L, 1800000L));
+  // The number of slowest tables listed in the metrics, so that their memory does not grow with the tables
+  public static int METRICS_SLOWEST_TABLES = 100;
 }
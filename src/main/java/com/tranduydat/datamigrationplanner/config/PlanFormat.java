@@ -0,0 +1,43 @@
+package com.tranduydat.datamigrationplanner.config;
+
+import lombok.Getter;
+
+/**
+ * The formats to save the plan of a database in
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public enum PlanFormat {
+  // One line per table: the table, the split column and the reason, separated by the delimiter
+  TEXT("text"),
+  // One JSON object per line and per table, with the row count and the split stats of the split column
+  NDJSON("ndjson"),
+  // One Sqoop options file per table, in a directory at the save path
+  SQOOP("sqoop");
+
+  // The value used in command-line arguments
+  @Getter
+  private final String value;
+
+  PlanFormat(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Finds the plan format by its command-line value.
+   *
+   * @param value The command-line value, e.g. "ndjson".
+   * @return The plan format.
+   * @throws IllegalArgumentException If no plan format has the given value.
+   */
+  public static PlanFormat fromValue(String value) {
+    for (PlanFormat format : values()) {
+      if (format.value.equalsIgnoreCase(value)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown plan format: " + value);
+  }
+}
@@ -0,0 +1,50 @@
+package com.tranduydat.datamigrationplanner.config;
+
+import lombok.Getter;
+
+/**
+ * The strategies to profile the distinct count of columns in a table
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public enum ProfileMode {
+  // One `COUNT(DISTINCT)` query per column, plus one `COUNT(*)` query per table
+  PER_COLUMN("per_column"),
+  // One `SELECT` per batch of columns, counting rows and all distinct values in a single scan
+  SINGLE_SCAN("single_scan"),
+  // Like SINGLE_SCAN, but estimates with `APPROX_COUNT_DISTINCT`
+  // and only verifies the possibly unique columns with an exact count
+  APPROX("approx"),
+  // Estimates from the density vectors of SQL Server statistics without touching table data,
+  // falling back to SINGLE_SCAN for tables whose statistics are missing or stale
+  STATS("stats"),
+  // One `COUNT(DISTINCT)` query per column like PER_COLUMN, but the columns are ranked
+  // by how likely they are unique, and the first unique column stops the profiling
+  LAZY("lazy");
+
+  // The value used in command-line arguments
+  @Getter
+  private final String value;
+
+  ProfileMode(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Finds the profile mode by its command-line value.
+   *
+   * @param value The command-line value, e.g. "single_scan".
+   * @return The profile mode.
+   * @throws IllegalArgumentException If no profile mode has the given value.
+   */
+  public static ProfileMode fromValue(String value) {
+    for (ProfileMode mode : values()) {
+      if (mode.value.equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Unknown profile mode: " + value);
+  }
+}
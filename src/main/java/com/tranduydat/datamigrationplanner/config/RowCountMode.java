@@ -0,0 +1,41 @@
+package com.tranduydat.datamigrationplanner.config;
+
+import lombok.Getter;
+
+/**
+ * The sources of the total count of rows in a table
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public enum RowCountMode {
+  // A `COUNT_BIG(*)` scan, or the count from the same scan as the distinct counts
+  EXACT("exact"),
+  // The row count of the partitions of the table from the catalog, without any scan
+  METADATA("metadata");
+
+  // The value used in command-line arguments
+  @Getter
+  private final String value;
+
+  RowCountMode(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Finds the row count mode by its command-line value.
+   *
+   * @param value The command-line value, e.g. "metadata".
+   * @return The row count mode.
+   * @throws IllegalArgumentException If no row count mode has the given value.
+   */
+  public static RowCountMode fromValue(String value) {
+    for (RowCountMode mode : values()) {
+      if (mode.value.equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Unknown row count mode: " + value);
+  }
+}
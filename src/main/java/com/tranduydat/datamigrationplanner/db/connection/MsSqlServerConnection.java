@@ -1,13 +1,21 @@
 package com.tranduydat.datamigrationplanner.db.connection;
 
 import com.tranduydat.datamigrationplanner.config.Config;
+import com.tranduydat.datamigrationplanner.metrics.PoolMetricsTrackerFactory;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.apache.logging.log4j.LogManager;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * To obtain database connection pool
- * from Microsoft SQL Server by using HikariCP
+ * To obtain database connection pools
+ * from Microsoft SQL Server by using HikariCP,
+ * one pool per instance shared by all of its databases
  *
  * @author Dat Tran (dattd6)
  * @version 1
@@ -16,18 +24,24 @@ import org.apache.logging.log4j.LogManager;
 public class MsSqlServerConnection {
   private static final org.apache.logging.log4j.Logger logger = LogManager.getLogger(MsSqlServerConnection.class);
   private static final Config config = Config.getInstance();
-  private static HikariDataSource hikariDataSource;
+  // The pools by instance, "host:port"
+  private static final Map<String, HikariDataSource> hikariDataSources = new HashMap<>();
 
   private MsSqlServerConnection() {
     // Private constructor to enforce Singleton pattern
   }
 
   /**
-   * Retrieves the singleton instance of HikariDataSource.
+   * Retrieves the pool of an instance, creating it on first use.
    *
+   * @param host        The hostname of the instance.
+   * @param port        The port number of the instance.
+   * @param maxPoolSize The max size of the pool, only used when the pool is created.
    * @return HikariDataSource instance
    */
-  public static synchronized HikariDataSource getInstance() {
+  public static synchronized HikariDataSource getInstance(String host, int port, int maxPoolSize) {
+    String instanceKey = host + ":" + port;
+    HikariDataSource hikariDataSource = hikariDataSources.get(instanceKey);
     if (hikariDataSource == null) {
       try {
         Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
@@ -36,22 +50,54 @@ public class MsSqlServerConnection {
       }
 
       // Constructing the JDBC URI for connecting to the Microsoft SQL Server
-      String jdbcUri = String.format("jdbc:sqlserver://%s:%d;encrypt=true;trustServerCertificate=true;databaseName=%s",
-        config.getMssqlServerHost(),
-        config.getMssqlServerPort(),
-        config.getMssqlServerDb());
+      // The database is chosen per connection, so the pool can serve all databases of the instance
+      String jdbcUri = String.format("jdbc:sqlserver://%s:%d;encrypt=true;trustServerCertificate=true",
+        host,
+        port);
 
       // Creating a new HikariConfig object and configuring it
       HikariConfig hikariConfig = new HikariConfig();
       hikariConfig.setJdbcUrl(jdbcUri);
       hikariConfig.setUsername(config.getMssqlServerUsername());
       hikariConfig.setPassword(config.getMssqlServerPassword());
-      hikariConfig.setMinimumIdle(config.getCpMinIdle());
-      hikariConfig.setMaximumPoolSize(config.getCpMaxSize());
+      hikariConfig.setMinimumIdle(Math.min(config.getCpMinIdle(), maxPoolSize));
+      hikariConfig.setMaximumPoolSize(maxPoolSize);
+      hikariConfig.setPoolName("dmp-" + instanceKey);
+      // The time spent waiting for a connection goes into the metrics of the run
+      hikariConfig.setMetricsTrackerFactory(new PoolMetricsTrackerFactory());
 
       // Creating a new HikariDataSource instance with the configured HikariConfig
       hikariDataSource = new HikariDataSource(hikariConfig);
+      hikariDataSources.put(instanceKey, hikariDataSource);
+      logger.info("instance={},max_pool_size={},msg=Created connection pool", instanceKey, maxPoolSize);
     }
     return hikariDataSource;
   }
+
+  /**
+   * Borrows a connection to the database of a target from the pool of its instance.
+   * The pool puts the connection back to its default database when it is closed.
+   *
+   * @param target The database to connect to.
+   * @return The connection.
+   * @throws SQLException If no connection can be borrowed or the database cannot be used.
+   */
+  public static Connection getConnection(TargetModel target) throws SQLException {
+    Connection conn = getInstance(target.getHost(), target.getPort(), config.getCpMaxSize()).getConnection();
+    try {
+      conn.setCatalog(target.getDbName());
+    } catch (SQLException e) {
+      conn.close();
+      throw e;
+    }
+    return conn;
+  }
+
+  /**
+   * Closes the pools of all instances.
+   */
+  public static synchronized void closeAll() {
+    hikariDataSources.values().forEach(HikariDataSource::close);
+    hikariDataSources.clear();
+  }
 }
@@ -0,0 +1,167 @@
+package com.tranduydat.datamigrationplanner.db.connection;
+
+import org.apache.logging.log4j.LogManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * To bound the time of the queries run on a connection: each query has its own budget,
+ * and all queries of a table share the budget of the table.
+ * A query that runs over budget is cancelled with `Statement.cancel`, which makes the server stop it
+ * and release its locks and memory grant, and the governor remembers which budget was exceeded.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class QueryGovernor {
+  private static final org.apache.logging.log4j.Logger logger = LogManager.getLogger(QueryGovernor.class);
+  // Cancels the queries over budget, shared by all governors
+  private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "dmp-query-governor");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // The budget of a single query in milliseconds, 0 for no budget
+  private final long queryTimeoutMillis;
+  // The time all queries must be done by, from System.currentTimeMillis(), 0 for no deadline
+  private final long deadlineMillis;
+  // The budget that was exceeded, "query_timeout" or "table_timeout", null if none
+  private volatile String exceeded;
+
+  /**
+   * @param queryTimeoutSeconds The budget of a single query, 0 for no budget.
+   * @param tableTimeoutSeconds The budget of all queries together from now, 0 for no budget.
+   */
+  public QueryGovernor(int queryTimeoutSeconds, int tableTimeoutSeconds) {
+    this.queryTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0, queryTimeoutSeconds));
+    this.deadlineMillis = tableTimeoutSeconds > 0
+      ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(tableTimeoutSeconds)
+      : 0;
+  }
+
+  /**
+   * Gets the budget that was exceeded.
+   *
+   * @return "query_timeout" or "table_timeout", or null if no query was cancelled.
+   */
+  public String getExceeded() {
+    return this.exceeded;
+  }
+
+  /**
+   * Wraps a connection so that every statement it prepares is cancelled once an execution runs over budget.
+   * Closing the wrapper closes the connection.
+   *
+   * @param conn The connection.
+   * @return The governed connection, or the connection itself if there is no budget.
+   */
+  public Connection govern(Connection conn) {
+    if (this.queryTimeoutMillis == 0 && this.deadlineMillis == 0) {
+      return conn;
+    }
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+      (proxy, method, args) -> {
+        Object result = invoke(conn, method, args);
+        if (result instanceof PreparedStatement) {
+          return this.watch((PreparedStatement) result, PreparedStatement.class);
+        } else if (result instanceof Statement) {
+          return this.watch((Statement) result, Statement.class);
+        }
+        return result;
+      });
+  }
+
+  /**
+   * Watches a statement: each time it is executed, the cancel of the statement is scheduled at the end of its budget,
+   * and unscheduled as soon as the execution returns, so the time between preparing and executing is not counted
+   * and a query that is done is never taken as over budget.
+   * The rows of a result are fetched after the execution returns, which is not bounded,
+   * as the profiling queries only return a few aggregated rows.
+   *
+   * @param statement The statement.
+   * @param type      The interface of the statement.
+   * @param <T>       The type of the statement.
+   * @return The watched statement.
+   */
+  private <T extends Statement> T watch(T statement, Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+      (proxy, method, args) -> {
+        if (!method.getName().startsWith("execute")) {
+          return invoke(statement, method, args);
+        }
+        Watch watch = new Watch(statement);
+        try {
+          return invoke(statement, method, args);
+        } finally {
+          watch.disarm();
+        }
+      }));
+  }
+
+  /**
+   * The cancel of a statement scheduled at the end of its budget, for one execution.
+   * Firing and disarming exclude each other, so once disarmed, the cancel neither runs nor marks a budget as exceeded.
+   */
+  private class Watch {
+    private final Statement statement;
+    private final String reason;
+    private final ScheduledFuture<?> cancel;
+    private boolean armed = true;
+
+    private Watch(Statement statement) {
+      long now = System.currentTimeMillis();
+      long queryDeadline = queryTimeoutMillis > 0 ? now + queryTimeoutMillis : Long.MAX_VALUE;
+      long tableDeadline = deadlineMillis > 0 ? deadlineMillis : Long.MAX_VALUE;
+      this.statement = statement;
+      this.reason = tableDeadline <= queryDeadline ? "table_timeout" : "query_timeout";
+      this.cancel = watchdog.schedule(this::fire, Math.max(0, Math.min(queryDeadline, tableDeadline) - now), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void fire() {
+      if (!this.armed) {
+        return;
+      }
+      this.armed = false;
+      exceeded = this.reason;
+      try {
+        this.statement.cancel();
+        logger.warn("reason={},msg=Cancelled query over budget", this.reason);
+      } catch (SQLException e) {
+        logger.warn("reason={},msg=Failed to cancel query over budget,e={}", this.reason, e.getMessage());
+      }
+    }
+
+    private synchronized void disarm() {
+      this.armed = false;
+      this.cancel.cancel(false);
+    }
+  }
+
+  /**
+   * Invokes a method on the wrapped object, and rethrows what it throws as is.
+   *
+   * @param target The wrapped object.
+   * @param method The method.
+   * @param args   The arguments.
+   * @return The result of the method.
+   * @throws Throwable What the method throws.
+   */
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package com.tranduydat.datamigrationplanner.db.dao;
+
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.model.CatalogModel;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import com.tranduydat.datamigrationplanner.model.UniqueKeyModel;
+import com.tranduydat.datamigrationplanner.utils.NameInterner;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.apache.logging.log4j.LogManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.quoteName;
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.tableKey;
+
+/**
+ * To load the metadata of all tables in a database with a few set-based queries,
+ * instead of one query per table.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+public class CatalogDao {
+  private static final org.apache.logging.log4j.Logger logger = LogManager.getLogger(CatalogDao.class);
+  // The connection to database
+  @Getter
+  @Setter
+  @NonNull
+  private Connection conn;
+  // The names read by the session, so that a name is held once
+  @Getter
+  @NonNull
+  private NameInterner names;
+
+  /**
+   * To load the columns, primary keys and single-column unique keys of all tables in a database.
+   *
+   * @param dbName The name of the database.
+   * @return The catalog of the database.
+   * @throws SQLException If an error occurs.
+   */
+  public CatalogModel load(String dbName) throws SQLException {
+    return CatalogModel.builder()
+      .columnsByTable(this.getColumnsByDb(dbName))
+      .primaryKeysByTable(this.getPrimaryKeysByDb(dbName))
+      .uniqueKeysByTable(this.getSingleColumnUniqueKeysByDb(dbName))
+      .build();
+  }
+
+  /**
+   * To get the columns of all tables in a database, ordered by their position.
+   * The data type of a user-defined alias type is its base type.
+   * A column is a leading index key if it is the first key column of any index.
+   *
+   * @param dbName The name of the database.
+   * @return The map of "[schema].[table]" and its columns.
+   * @throws SQLException If an error occurs.
+   */
+  public Map<String, List<ColumnModel>> getColumnsByDb(String dbName) throws SQLException {
+    String db = quoteName(dbName);
+    String query = "SELECT sc.name AS schemaName, ta.name AS tableName, co.name AS columnName," +
+      " CASE WHEN ty.is_user_defined = 1 THEN TYPE_NAME(ty.system_type_id) ELSE ty.name END AS dataType," +
+      " co.is_nullable, co.max_length, co.is_identity," +
+      " CASE WHEN EXISTS (SELECT 1 FROM " + db + ".sys.index_columns ic" +
+      " WHERE ic.object_id = co.object_id AND ic.column_id = co.column_id AND ic.key_ordinal = 1)" +
+      " THEN 1 ELSE 0 END AS is_leading_index_key" +
+      " FROM " + db + ".sys.columns AS co" +
+      " INNER JOIN " + db + ".sys.tables ta ON ta.object_id = co.object_id" +
+      " INNER JOIN " + db + ".sys.schemas sc ON sc.schema_id = ta.schema_id" +
+      " INNER JOIN " + db + ".sys.types ty ON ty.user_type_id = co.user_type_id" +
+      " WHERE ta.is_ms_shipped = 0" +
+      " ORDER BY sc.name, ta.name, co.column_id";
+
+    Map<String, List<ColumnModel>> columnsByTable = new HashMap<>();
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      ps.setFetchSize(Constant.CATALOG_FETCH_SIZE);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          columnsByTable.computeIfAbsent(this.names.intern(tableKey(rs.getString("schemaName"), rs.getString("tableName"))), x -> new ArrayList<>())
+            .add(ColumnModel.builder()
+              .columnName(this.names.intern(rs.getString("columnName")))
+              .dataType(this.names.intern(rs.getString("dataType")))
+              .nullable(rs.getBoolean("is_nullable"))
+              .maxLength(rs.getInt("max_length"))
+              .identity(rs.getBoolean("is_identity"))
+              .leadingIndexKey(rs.getBoolean("is_leading_index_key"))
+              .build());
+        }
+      }
+    }
+    logger.info("db={},count_table={},msg=Loaded columns", dbName, columnsByTable.size());
+    return columnsByTable;
+  }
+
+  /**
+   * To get the (composite) primary keys of all tables in a database, ordered by their position in the key.
+   *
+   * @param dbName The name of the database.
+   * @return The map of "[schema].[table]" and its primary keys.
+   * @throws SQLException If an error occurs.
+   */
+  public Map<String, List<String>> getPrimaryKeysByDb(String dbName) throws SQLException {
+    String db = quoteName(dbName);
+    String query = "SELECT sc.name AS schemaName, ta.name AS tableName, co.name AS columnName" +
+      " FROM " + db + ".sys.indexes AS ix" +
+      " INNER JOIN " + db + ".sys.tables ta ON ta.object_id = ix.object_id" +
+      " INNER JOIN " + db + ".sys.schemas sc ON sc.schema_id = ta.schema_id" +
+      " INNER JOIN " + db + ".sys.index_columns ic ON ic.object_id = ix.object_id" +
+      " AND ic.index_id = ix.index_id AND ic.key_ordinal > 0" +
+      " INNER JOIN " + db + ".sys.columns co ON co.object_id = ic.object_id AND co.column_id = ic.column_id" +
+      " WHERE ta.is_ms_shipped = 0 AND ix.is_primary_key = 1" +
+      " ORDER BY sc.name, ta.name, ic.key_ordinal";
+
+    Map<String, List<String>> primaryKeysByTable = new HashMap<>();
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      ps.setFetchSize(Constant.CATALOG_FETCH_SIZE);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          primaryKeysByTable.computeIfAbsent(this.names.intern(tableKey(rs.getString("schemaName"), rs.getString("tableName"))), x -> new ArrayList<>())
+            .add(this.names.intern(rs.getString("columnName")));
+        }
+      }
+    }
+    logger.info("db={},count_table_with_primary_key={},msg=Loaded primary keys", dbName, primaryKeysByTable.size());
+    return primaryKeysByTable;
+  }
+
+  /**
+   * To get the single-column unique keys of all tables in a database.
+   * Primary keys, unique constraints and unique indexes are all backed by a unique index,
+   * filtered and disabled indexes are skipped as they do not guarantee uniqueness.
+   * Keys on a nullable column are skipped too, as a unique index allows one NULL, which the split ranges
+   * of Sqoop leave out, so such a table is profiled like a table without a key.
+   * The keys of a table are ordered by preference: a primary key, then unique constraints, then unique indexes.
+   *
+   * @param dbName The name of the database.
+   * @return The map of "[schema].[table]" and its unique keys.
+   * @throws SQLException If an error occurs.
+   */
+  public Map<String, List<UniqueKeyModel>> getSingleColumnUniqueKeysByDb(String dbName) throws SQLException {
+    String db = quoteName(dbName);
+    String query = "SELECT sc.name AS schemaName, ta.name AS tableName, co.name AS columnName," +
+      " ix.name AS indexName, ix.is_primary_key, ix.is_unique_constraint, co.is_nullable" +
+      " FROM " + db + ".sys.indexes AS ix" +
+      " INNER JOIN " + db + ".sys.tables ta ON ta.object_id = ix.object_id" +
+      " INNER JOIN " + db + ".sys.schemas sc ON sc.schema_id = ta.schema_id" +
+      " INNER JOIN " + db + ".sys.index_columns ic ON ic.object_id = ix.object_id" +
+      " AND ic.index_id = ix.index_id AND ic.key_ordinal = 1" +
+      " INNER JOIN " + db + ".sys.columns co ON co.object_id = ic.object_id AND co.column_id = ic.column_id" +
+      " WHERE ta.is_ms_shipped = 0 AND ix.is_unique = 1 AND ix.is_disabled = 0 AND ix.has_filter = 0" +
+      " AND NOT EXISTS (SELECT 1 FROM " + db + ".sys.index_columns ic2" +
+      " WHERE ic2.object_id = ix.object_id AND ic2.index_id = ix.index_id AND ic2.key_ordinal > 1)" +
+      " ORDER BY ix.is_primary_key DESC, ix.is_unique_constraint DESC, ix.index_id";
+
+    // The first key of a table is the preferred one, thanks to the ordering
+    Map<String, List<UniqueKeyModel>> uniqueKeys = new HashMap<>();
+    int countNullableKey = 0;
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      ps.setFetchSize(Constant.CATALOG_FETCH_SIZE);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          if (rs.getBoolean("is_nullable")) {
+            countNullableKey++;
+            continue;
+          }
+          String keyType = rs.getBoolean("is_primary_key") ? "primary_key"
+            : rs.getBoolean("is_unique_constraint") ? "unique_constraint" : "unique_index";
+          uniqueKeys.computeIfAbsent(this.names.intern(tableKey(rs.getString("schemaName"), rs.getString("tableName"))), x -> new ArrayList<>())
+            .add(UniqueKeyModel.builder()
+              .columnName(this.names.intern(rs.getString("columnName")))
+              .indexName(rs.getString("indexName"))
+              .keyType(keyType)
+              .build());
+        }
+      }
+    }
+    logger.info("db={},count_table_with_unique_key={},count_nullable_key={},msg=Loaded unique keys",
+      dbName, uniqueKeys.size(), countNullableKey);
+    return uniqueKeys;
+  }
+
+  /**
+   * To get the change fingerprints of all tables in a database, which tell whether a table changed since it was profiled:
+   * the last time it was altered, its row count and the last time any of its statistics were updated.
+   *
+   * @param dbName The name of the database.
+   * @return The map of "[schema].[table]" and its fingerprint.
+   * @throws SQLException If an error occurs.
+   */
+  public Map<String, TableFingerprintModel> getFingerprintsByDb(String dbName) throws SQLException {
+    String db = quoteName(dbName);
+    String query = "SELECT sc.name AS schemaName, ta.name AS tableName, ta.modify_date AS modifyDate," +
+      " pa.rowCount, st.statsDate" +
+      " FROM " + db + ".sys.tables AS ta" +
+      " INNER JOIN " + db + ".sys.schemas sc ON sc.schema_id = ta.schema_id" +
+      " OUTER APPLY (SELECT SUM(p.rows) AS rowCount FROM " + db + ".sys.partitions p" +
+      " WHERE p.object_id = ta.object_id AND p.index_id IN (0, 1)) AS pa" +
+      " OUTER APPLY (SELECT MAX(sp.last_updated) AS statsDate FROM " + db + ".sys.stats s" +
+      " CROSS APPLY " + db + ".sys.dm_db_stats_properties(s.object_id, s.stats_id) AS sp" +
+      " WHERE s.object_id = ta.object_id) AS st" +
+      " WHERE ta.is_ms_shipped = 0";
+
+    Map<String, TableFingerprintModel> fingerprints = new HashMap<>();
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      ps.setFetchSize(Constant.CATALOG_FETCH_SIZE);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          Timestamp modifyDate = rs.getTimestamp("modifyDate");
+          Timestamp statsDate = rs.getTimestamp("statsDate");
+          fingerprints.put(tableKey(rs.getString("schemaName"), rs.getString("tableName")), TableFingerprintModel.builder()
+            .modifyDate(modifyDate == null ? null : modifyDate.toLocalDateTime())
+            .rowCount(rs.getLong("rowCount"))
+            .statsDate(statsDate == null ? null : statsDate.toLocalDateTime())
+            .build());
+        }
+      }
+    }
+    logger.info("db={},count_table={},msg=Loaded fingerprints", dbName, fingerprints.size());
+    return fingerprints;
+  }
+}
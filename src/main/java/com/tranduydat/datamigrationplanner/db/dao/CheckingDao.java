@@ -10,8 +10,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.objectName;
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.quoteName;
 
 /**
  * @author Dat Tran (dattd6)
@@ -37,21 +40,21 @@ public class CheckingDao {
    * @return The number of distinct rows.
    * @throws SQLException If an error occurs.
    */
-  public int countDistinctByColumn(String dbName,
-                                   String schemaName,
-                                   String tableName,
-                                   String columnName)
+  public long countDistinctByColumn(String dbName,
+                                    String schemaName,
+                                    String tableName,
+                                    String columnName)
     throws SQLException {
-    String query = String.format("SELECT COUNT(DISTINCT [%s]) AS count_rows FROM [%s].[%s].[%s]",
-      columnName, dbName, schemaName, tableName);
+    String query = "SELECT COUNT_BIG(DISTINCT " + quoteName(columnName) + ") AS count_rows FROM "
+      + objectName(dbName, schemaName, tableName);
 
-    int numberOfRows = -1;
+    long numberOfRows = -1;
 
     // Execute the query and get the number of rows.
     try (PreparedStatement ps = this.conn.prepareStatement(query)) {
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
-          numberOfRows = rs.getInt("count_rows");
+          numberOfRows = rs.getLong("count_rows");
         }
       }
     } catch (SQLException e) {
@@ -62,69 +65,174 @@ public class CheckingDao {
   }
 
   /**
-   * To count the number of rows in a table
+   * To count the number of rows and the number of distinct rows of many columns
+   * in one single `SELECT`, so the table is scanned only once for all given columns.
    *
-   * @param dbName     The name of the database.
-   * @param schemaName The name of the schema.
-   * @param tableName  The name of the table.
+   * @param dbName          The name of the database.
+   * @param schemaName      The name of the schema.
+   * @param tableName       The name of the table.
+   * @param columnNames     The names of the columns, which must all support (distinct) count.
+   * @param columnWithCount The map to put each column with its number of distinct rows into.
    * @return The number of rows.
    * @throws SQLException If an error occurs.
    */
-  public int countRowByColumn(String dbName,
-                              String schemaName,
-                              String tableName)
+  public long countRowAndDistinctByColumns(String dbName,
+                                           String schemaName,
+                                           String tableName,
+                                           List<String> columnNames,
+                                           Map<String, Long> columnWithCount)
     throws SQLException {
-    String query = String.format("SELECT COUNT(*) AS count_rows FROM [%s].[%s].[%s]",
-      dbName, schemaName, tableName);
+    return this.countRowAndAggregateByColumns(objectName(dbName, schemaName, tableName),
+      columnNames, columnWithCount, "COUNT_BIG(DISTINCT %s)");
+  }
 
-    int numberOfRows = -1;
+  /**
+   * To count the number of rows and estimate the number of distinct rows of many columns
+   * in one single `SELECT` by using `APPROX_COUNT_DISTINCT` (HyperLogLog).
+   * The estimation needs much less memory than an exact distinct count,
+   * and its error is within 2% with a 97% probability.
+   *
+   * @param dbName          The name of the database.
+   * @param schemaName      The name of the schema.
+   * @param tableName       The name of the table.
+   * @param columnNames     The names of the columns, which must all support (distinct) count.
+   * @param columnWithCount The map to put each column with its estimated number of distinct rows into.
+   * @return The number of rows.
+   * @throws SQLException If an error occurs.
+   */
+  public long countRowAndApproxDistinctByColumns(String dbName,
+                                                 String schemaName,
+                                                 String tableName,
+                                                 List<String> columnNames,
+                                                 Map<String, Long> columnWithCount)
+    throws SQLException {
+    return this.countRowAndAggregateByColumns(objectName(dbName, schemaName, tableName),
+      columnNames, columnWithCount, "APPROX_COUNT_DISTINCT(%s)");
+  }
+
+  /**
+   * To count the number of rows and the number of distinct rows of many columns in a small sample of a table.
+   * A column with fewer distinct rows than rows in the sample has duplicates or nulls, so it cannot be unique.
+   * The sample is read with `TABLESAMPLE`, which picks whole pages at random, or with `TOP`,
+   * which reads the first rows in the scan order, when `TABLESAMPLE` returns nothing (e.g. for small tables).
+   *
+   * @param dbName          The name of the database.
+   * @param schemaName      The name of the schema.
+   * @param tableName       The name of the table.
+   * @param columnNames     The names of the columns, which must all support (distinct) count.
+   * @param sampleRows      The max number of rows in the sample.
+   * @param columnWithCount The map to put each column with its number of distinct rows in the sample into.
+   * @return The number of rows in the sample.
+   * @throws SQLException If an error occurs.
+   */
+  public long countSampleRowAndDistinctByColumns(String dbName,
+                                                 String schemaName,
+                                                 String tableName,
+                                                 List<String> columnNames,
+                                                 int sampleRows,
+                                                 Map<String, Long> columnWithCount)
+    throws SQLException {
+    StringBuilder selectedColumns = new StringBuilder();
+    for (String columnName : columnNames) {
+      selectedColumns.append(selectedColumns.length() == 0 ? "" : ", ").append(quoteName(columnName));
+    }
+    String table = objectName(dbName, schemaName, tableName);
+    String tableSample = String.format("(SELECT TOP (%d) %s FROM %s TABLESAMPLE (%d ROWS)) AS sample",
+      sampleRows, selectedColumns, table, sampleRows);
+    String topSample = String.format("(SELECT TOP (%d) %s FROM %s) AS sample", sampleRows, selectedColumns, table);
+
+    long numberOfRows = this.countRowAndAggregateByColumns(tableSample, columnNames, columnWithCount, "COUNT_BIG(DISTINCT %s)");
+    if (numberOfRows <= 0) {
+      numberOfRows = this.countRowAndAggregateByColumns(topSample, columnNames, columnWithCount, "COUNT_BIG(DISTINCT %s)");
+    }
+    return numberOfRows;
+  }
+
+  /**
+   * To check if the server supports `APPROX_COUNT_DISTINCT` (SQL Server 2019 and later).
+   *
+   * @return true if it is supported, otherwise false.
+   */
+  public boolean isApproxCountDistinctSupported() {
+    String query = "SELECT APPROX_COUNT_DISTINCT(x) AS count_rows FROM (VALUES (1)) AS t(x)";
 
-    // Execute the query and get the number of rows.
     try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next();
+      }
+    } catch (SQLException e) {
+      logger.warn("msg=APPROX_COUNT_DISTINCT is not supported by the server,e={}", e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * To count the number of rows and run an aggregate on each of the given columns in one single `SELECT`.
+   *
+   * @param source          The table or derived table to select from, e.g. "[db].[schema].[table]".
+   * @param columnNames     The names of the columns.
+   * @param columnWithCount The map to put each column with its aggregated value into.
+   * @param aggregateFormat The aggregate expression, with `%s` in place of the quoted column name.
+   * @return The number of rows.
+   * @throws SQLException If an error occurs.
+   */
+  private long countRowAndAggregateByColumns(String source,
+                                             List<String> columnNames,
+                                             Map<String, Long> columnWithCount,
+                                             String aggregateFormat)
+    throws SQLException {
+    // Columns are aliased by their position, as column names may not be valid aliases
+    StringBuilder query = new StringBuilder("SELECT COUNT_BIG(*) AS count_rows");
+    for (int i = 0; i < columnNames.size(); i++) {
+      query.append(", ").append(String.format(aggregateFormat, quoteName(columnNames.get(i)))).append(" AS count_distinct_").append(i);
+    }
+    query.append(" FROM ").append(source);
+
+    long numberOfRows = -1;
+
+    // Execute the query and get the number of rows and distinct rows.
+    // Errors are thrown to the caller, so it can fall back to count column by column.
+    try (PreparedStatement ps = this.conn.prepareStatement(query.toString())) {
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
-          numberOfRows = rs.getInt("count_rows");
+          numberOfRows = rs.getLong("count_rows");
+          for (int i = 0; i < columnNames.size(); i++) {
+            columnWithCount.put(columnNames.get(i), rs.getLong("count_distinct_" + i));
+          }
         }
       }
-    } catch (SQLException e) {
-      logger.error("db={},schema={},table={},msg=Failed to run count row by column",
-        dbName, schemaName, tableName, e);
     }
     return numberOfRows;
   }
 
   /**
-   * To get (composite) primary keys of a table.
+   * To count the number of rows in a table
    *
    * @param dbName     The name of the database.
    * @param schemaName The name of the schema.
    * @param tableName  The name of the table.
-   * @return The list of primary keys.
+   * @return The number of rows.
    * @throws SQLException If an error occurs.
    */
-  public List<String> getPrimaryKeys(String dbName,
-                                     String schemaName,
-                                     String tableName)
+  public long countRowByColumn(String dbName,
+                               String schemaName,
+                               String tableName)
     throws SQLException {
-    String query = String.format("SELECT COLUMN_NAME" +
-      " FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE" +
-      " WHERE OBJECTPROPERTY(OBJECT_ID(CONSTRAINT_SCHEMA + '.' + CONSTRAINT_NAME), 'IsPrimaryKey') = 1" +
-      " AND TABLE_SCHEMA = '%s'" +
-      " AND TABLE_NAME = '%s'", schemaName, tableName);
+    String query = "SELECT COUNT_BIG(*) AS count_rows FROM " + objectName(dbName, schemaName, tableName);
 
-    // All (composite) primary keys in a table
-    List<String> primaryKeys = new ArrayList<>();
+    long numberOfRows = -1;
 
+    // Execute the query and get the number of rows.
     try (PreparedStatement ps = this.conn.prepareStatement(query)) {
       try (ResultSet rs = ps.executeQuery()) {
-        while (rs.next()) {
-          primaryKeys.add(rs.getString("COLUMN_NAME"));
+        if (rs.next()) {
+          numberOfRows = rs.getLong("count_rows");
         }
       }
     } catch (SQLException e) {
-      logger.error("db={},schema={},table={},msg=Failed to run get primary keys",
+      logger.error("db={},schema={},table={},msg=Failed to run count row by column",
         dbName, schemaName, tableName, e);
     }
-    return primaryKeys;
+    return numberOfRows;
   }
 }
@@ -0,0 +1,69 @@
+package com.tranduydat.datamigrationplanner.db.dao;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * To measure how busy a SQL Server instance is, without touching any table data
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+public class ServerStatsDao {
+  // The connection to database
+  @Getter
+  @Setter
+  @NonNull
+  private Connection conn;
+
+  /**
+   * To measure the latency of a small catalog query, which grows when the server is short of CPU or workers.
+   *
+   * @return The latency in milliseconds.
+   * @throws SQLException If an error occurs.
+   */
+  public double probeLatencyMillis() throws SQLException {
+    String query = "SELECT COUNT_BIG(*) AS countObject FROM sys.objects";
+
+    long startTime = System.nanoTime();
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+      }
+    }
+    return (System.nanoTime() - startTime) / 1e6;
+  }
+
+  /**
+   * To count the user requests waiting on a resource, e.g. I/O, locks or memory grants.
+   * Idle and background waits are not counted. It needs the `VIEW SERVER STATE` permission.
+   *
+   * @return The number of waiting requests.
+   * @throws SQLException If an error occurs.
+   */
+  public int countWaitingRequests() throws SQLException {
+    String query = "SELECT COUNT(*) AS countWaiting FROM sys.dm_exec_requests AS re" +
+      " INNER JOIN sys.dm_exec_sessions se ON se.session_id = re.session_id" +
+      " WHERE se.is_user_process = 1 AND re.session_id <> @@SPID AND re.wait_type IS NOT NULL" +
+      " AND re.wait_type NOT LIKE 'SLEEP%' AND re.wait_type NOT IN ('WAITFOR', 'BROKER_RECEIVE_WAITFOR')";
+
+    int countWaiting = 0;
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next()) {
+          countWaiting = rs.getInt("countWaiting");
+        }
+      }
+    }
+    return countWaiting;
+  }
+}
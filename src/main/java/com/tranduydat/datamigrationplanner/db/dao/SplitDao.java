@@ -0,0 +1,300 @@
+package com.tranduydat.datamigrationplanner.db.dao;
+
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.objectName;
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.quoteName;
+
+/**
+ * To read the value range and distribution of a split column
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+public class SplitDao {
+  // The connection to database
+  @Getter
+  @Setter
+  @NonNull
+  private Connection conn;
+
+  /**
+   * To check if values of a data type can be converted to numbers, so that Sqoop splits them by value.
+   *
+   * @param dataType The data type.
+   * @return true if the data type is a number, a date or a time, otherwise false.
+   */
+  public static boolean isNumberLike(String dataType) {
+    String type = dataType.toLowerCase();
+    return Constant.INTEGER_DATA_TYPES.contains(type)
+      || Constant.NUMERIC_DATA_TYPES.contains(type)
+      || Constant.DATE_TIME_DATA_TYPES.contains(type);
+  }
+
+  /**
+   * To build the expression converting a value to a number, in the same way as Sqoop splits it:
+   * numbers as they are, and dates and times as minutes since 1900-01-01.
+   * The minutes are counted with `DATEDIFF_BIG`, as they overflow an int after the year 5983.
+   *
+   * @param valueExpression The expression of the value, e.g. "[OrderId]".
+   * @param dataType        The data type of the value.
+   * @return The expression of the number, or a null number if the data type is not a number or a date.
+   */
+  public static String numberExpression(String valueExpression, String dataType) {
+    String type = dataType.toLowerCase();
+    if (Constant.INTEGER_DATA_TYPES.contains(type) || Constant.NUMERIC_DATA_TYPES.contains(type)) {
+      return String.format("CAST(%s AS float)", valueExpression);
+    }
+    if (Constant.DATE_TIME_DATA_TYPES.contains(type)) {
+      return String.format("CAST(DATEDIFF_BIG(MINUTE, '19000101', CAST(%s AS datetime2)) AS float)", valueExpression);
+    }
+    return "CAST(NULL AS float)";
+  }
+
+  /**
+   * To build the expression converting a value to a string that can be used in a SQL literal
+   * without losing precision: ISO 8601 for dates and times, 17 significant digits for floats,
+   * and 4 decimal places for money, which a plain cast rounds to 2.
+   *
+   * @param valueExpression The expression of the value, e.g. "MIN([OrderId])".
+   * @param dataType        The data type of the value.
+   * @return The expression of the string.
+   */
+  public static String textExpression(String valueExpression, String dataType) {
+    String type = dataType.toLowerCase();
+    if (Constant.DATE_TIME_DATA_TYPES.contains(type)) {
+      return String.format("CONVERT(nvarchar(4000), %s, 126)", valueExpression);
+    }
+    if (type.equals("float") || type.equals("real")) {
+      return String.format("CONVERT(nvarchar(4000), %s, 3)", valueExpression);
+    }
+    if (type.equals("money") || type.equals("smallmoney")) {
+      return String.format("CONVERT(nvarchar(4000), %s, 2)", valueExpression);
+    }
+    return String.format("CAST(%s AS nvarchar(4000))", valueExpression);
+  }
+
+  /**
+   * To quote a value returned by {@link #textExpression} as a SQL literal of its data type.
+   *
+   * @param value    The value.
+   * @param dataType The data type of the value.
+   * @return The SQL literal, e.g. "42" or "'2023-07-13T00:00:00'".
+   */
+  public static String literal(String value, String dataType) {
+    if (Constant.INTEGER_DATA_TYPES.contains(dataType.toLowerCase()) || Constant.NUMERIC_DATA_TYPES.contains(dataType.toLowerCase())) {
+      return value;
+    }
+    return "'" + value.replace("'", "''") + "'";
+  }
+
+  /**
+   * To get the split boundaries of a column: its min value, the cut points between the given number of parts
+   * with the same number of rows, and its max value. Nulls are left out.
+   * With one part, only the min and max values are read, which needs no sort.
+   *
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @param columnName The name of the column.
+   * @param dataType   The data type of the column.
+   * @param parts      The number of parts, e.g. the number of mappers.
+   * @return The boundaries as SQL literals, empty if the column has only nulls.
+   * @throws SQLException If an error occurs.
+   */
+  public List<String> getBoundaries(String dbName,
+                                    String schemaName,
+                                    String tableName,
+                                    String columnName,
+                                    String dataType,
+                                    int parts)
+    throws SQLException {
+    String column = quoteName(columnName);
+    String table = objectName(dbName, schemaName, tableName);
+    String query;
+    if (parts <= 1) {
+      query = String.format("SELECT %s AS low_value, %s AS high_value FROM %s",
+        textExpression("MIN(" + column + ")", dataType), textExpression("MAX(" + column + ")", dataType), table);
+    } else {
+      query = String.format("SELECT %s AS low_value, %s AS high_value" +
+          " FROM (SELECT %s AS v, NTILE(%d) OVER (ORDER BY %s) AS tile FROM %s WHERE %s IS NOT NULL) AS tiles" +
+          " GROUP BY tile ORDER BY tile",
+        textExpression("MIN(v)", dataType), textExpression("MAX(v)", dataType), column, parts, column, table, column);
+    }
+
+    // The low value of each part, then the high value of the last part
+    List<String> boundaries = new ArrayList<>();
+    String highValue = null;
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          if (rs.getString("low_value") != null) {
+            boundaries.add(literal(rs.getString("low_value"), dataType));
+            highValue = rs.getString("high_value");
+          }
+        }
+      }
+    }
+    if (highValue != null) {
+      boundaries.add(literal(highValue, dataType));
+    }
+    return boundaries;
+  }
+
+  /**
+   * To get the min and max values of a column.
+   *
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @param columnName The name of the column.
+   * @param dataType   The data type of the column.
+   * @return The split stats with the column, its data type, and its min and max values.
+   * @throws SQLException If an error occurs.
+   */
+  public SplitStatsModel getMinMax(String dbName,
+                                   String schemaName,
+                                   String tableName,
+                                   String columnName,
+                                   String dataType)
+    throws SQLException {
+    String column = quoteName(columnName);
+    String query = String.format("SELECT %s AS min_value, %s AS max_value," +
+        " MIN(%s) AS min_number, MAX(%s) AS max_number" +
+        " FROM %s",
+      textExpression("MIN(" + column + ")", dataType), textExpression("MAX(" + column + ")", dataType),
+      numberExpression(column, dataType), numberExpression(column, dataType), objectName(dbName, schemaName, tableName));
+
+    SplitStatsModel splitStats = SplitStatsModel.builder()
+      .columnName(columnName)
+      .dataType(dataType)
+      .build();
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next()) {
+          splitStats.setMinValue(rs.getString("min_value"));
+          splitStats.setMaxValue(rs.getString("max_value"));
+          splitStats.setMinNumber(rs.getDouble("min_number"));
+          splitStats.setMaxNumber(rs.getDouble("max_number"));
+        }
+      }
+    }
+    return splitStats;
+  }
+
+  /**
+   * To get the value histogram of a column from the freshest statistics it leads, without touching table data.
+   * A histogram step holds the rows from the previous step's high key to its own high key.
+   *
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @param columnName The name of the column.
+   * @param dataType   The data type of the column.
+   * @return The histogram buckets, ordered by value, empty if the column leads no statistics.
+   * @throws SQLException If an error occurs.
+   */
+  public List<HistogramBucketModel> getHistogramFromStats(String dbName,
+                                                          String schemaName,
+                                                          String tableName,
+                                                          String columnName,
+                                                          String dataType)
+    throws SQLException {
+    String db = quoteName(dbName);
+    String query = String.format("SELECT %s AS high_number, hi.range_rows + hi.equal_rows AS rows" +
+        " FROM %s.sys.dm_db_stats_histogram(OBJECT_ID(?), (" +
+        "SELECT TOP 1 st.stats_id FROM %s.sys.stats AS st" +
+        " INNER JOIN %s.sys.stats_columns sc ON sc.object_id = st.object_id" +
+        " AND sc.stats_id = st.stats_id AND sc.stats_column_id = 1" +
+        " INNER JOIN %s.sys.columns co ON co.object_id = sc.object_id AND co.column_id = sc.column_id" +
+        " WHERE st.object_id = OBJECT_ID(?) AND co.name = ?" +
+        " ORDER BY STATS_DATE(st.object_id, st.stats_id) DESC)) AS hi" +
+        " WHERE hi.range_high_key IS NOT NULL" +
+        " ORDER BY hi.step_number",
+      numberExpression("hi.range_high_key", dataType), db, db, db, db);
+    String objectName = objectName(dbName, schemaName, tableName);
+
+    List<HistogramBucketModel> buckets = new ArrayList<>();
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      ps.setString(1, objectName);
+      ps.setString(2, objectName);
+      ps.setString(3, columnName);
+      try (ResultSet rs = ps.executeQuery()) {
+        double lowValue = Double.NaN;
+        while (rs.next()) {
+          double highValue = rs.getDouble("high_number");
+          buckets.add(HistogramBucketModel.builder()
+            .lowValue(Double.isNaN(lowValue) ? highValue : lowValue)
+            .highValue(highValue)
+            .rows(rs.getLong("rows"))
+            .build());
+          lowValue = highValue;
+        }
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * To get the value histogram of a column from a sample of the table,
+   * with the same number of sampled rows in each bucket (`NTILE`).
+   *
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @param columnName The name of the column.
+   * @param dataType   The data type of the column.
+   * @param sampleRows The max number of rows in the sample.
+   * @param buckets    The number of buckets.
+   * @return The histogram buckets, ordered by value, empty if the sample is empty.
+   * @throws SQLException If an error occurs.
+   */
+  public List<HistogramBucketModel> getHistogramFromSample(String dbName,
+                                                           String schemaName,
+                                                           String tableName,
+                                                           String columnName,
+                                                           String dataType,
+                                                           int sampleRows,
+                                                           int buckets)
+    throws SQLException {
+    String query = String.format("SELECT MIN(v) AS low_number, MAX(v) AS high_number, COUNT_BIG(*) AS rows" +
+        " FROM (SELECT v, NTILE(%d) OVER (ORDER BY v) AS tile" +
+        " FROM (SELECT TOP (%d) %s AS v FROM %s TABLESAMPLE (%d ROWS) WHERE %s IS NOT NULL) AS sample) AS tiles" +
+        " GROUP BY tile ORDER BY tile",
+      buckets, sampleRows, numberExpression(quoteName(columnName), dataType),
+      objectName(dbName, schemaName, tableName), sampleRows, quoteName(columnName));
+
+    List<HistogramBucketModel> histogram = new ArrayList<>();
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          histogram.add(HistogramBucketModel.builder()
+            .lowValue(rs.getDouble("low_number"))
+            .highValue(rs.getDouble("high_number"))
+            .rows(rs.getLong("rows"))
+            .build());
+        }
+      }
+    }
+    return histogram;
+  }
+}
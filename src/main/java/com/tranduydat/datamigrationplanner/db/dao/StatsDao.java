@@ -0,0 +1,112 @@
+package com.tranduydat.datamigrationplanner.db.dao;
+
+import com.tranduydat.datamigrationplanner.model.ColumnStatsModel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.objectName;
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.quoteLiteral;
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.quoteName;
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.tableKey;
+
+/**
+ * To read SQL Server statistics, which never touches table data
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+public class StatsDao {
+  // The connection to database
+  @Getter
+  @Setter
+  @NonNull
+  private Connection conn;
+
+  /**
+   * To get all statistics of a table, with their leading column.
+   * Statistics that have never been updated are skipped.
+   *
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @return The list of statistics.
+   * @throws SQLException If an error occurs.
+   */
+  public List<ColumnStatsModel> getColumnStats(String dbName,
+                                               String schemaName,
+                                               String tableName)
+    throws SQLException {
+    String db = quoteName(dbName);
+    String query = "SELECT st.name AS statsName, co.name AS columnName," +
+      " sp.rows, sp.last_updated, sp.modification_counter" +
+      " FROM " + db + ".sys.stats AS st" +
+      " INNER JOIN " + db + ".sys.stats_columns sc ON sc.object_id = st.object_id" +
+      " AND sc.stats_id = st.stats_id AND sc.stats_column_id = 1" +
+      " INNER JOIN " + db + ".sys.columns co ON co.object_id = sc.object_id AND co.column_id = sc.column_id" +
+      " CROSS APPLY " + db + ".sys.dm_db_stats_properties(st.object_id, st.stats_id) AS sp" +
+      " WHERE st.object_id = OBJECT_ID(?)" +
+      " AND sp.last_updated IS NOT NULL";
+
+    List<ColumnStatsModel> columnStats = new ArrayList<>();
+
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      ps.setString(1, objectName(dbName, schemaName, tableName));
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          Timestamp lastUpdated = rs.getTimestamp("last_updated");
+          columnStats.add(ColumnStatsModel.builder()
+            .statsName(rs.getString("statsName"))
+            .columnName(rs.getString("columnName"))
+            .rows(rs.getLong("rows"))
+            .lastUpdated(lastUpdated.toLocalDateTime())
+            .modificationCounter(rs.getLong("modification_counter"))
+            .build());
+        }
+      }
+    }
+    return columnStats;
+  }
+
+  /**
+   * To get the density of the leading column of a statistics object from its density vector,
+   * which is 1 / (the number of distinct values of the leading column).
+   *
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @param statsName  The name of the statistics.
+   * @return The density, or -1 if the statistics have no density vector.
+   * @throws SQLException If an error occurs.
+   */
+  public double getLeadingColumnDensity(String schemaName,
+                                        String tableName,
+                                        String statsName)
+    throws SQLException {
+    // DBCC takes no bind parameters, so the table is a quoted literal and the statistics a quoted name
+    String query = String.format("DBCC SHOW_STATISTICS (%s, %s) WITH DENSITY_VECTOR, NO_INFOMSGS",
+      quoteLiteral(tableKey(schemaName, tableName)), quoteName(statsName));
+
+    double density = -1;
+
+    // The first row of the density vector is about the leading column only
+    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next()) {
+          density = rs.getDouble("All density");
+        }
+      }
+    }
+    return density;
+  }
+}
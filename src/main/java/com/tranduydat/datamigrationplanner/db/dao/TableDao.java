@@ -1,11 +1,11 @@
 package com.tranduydat.datamigrationplanner.db.dao;
 
 import com.tranduydat.datamigrationplanner.model.SchemaTableModel;
+import com.tranduydat.datamigrationplanner.utils.NameInterner;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
-import org.apache.logging.log4j.LogManager;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -14,6 +14,8 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.quoteName;
+
 /**
  * @author Dat Tran (dattd6)
  * @version 1
@@ -21,27 +23,36 @@ import java.util.List;
  */
 @AllArgsConstructor
 public class TableDao {
-  private static final org.apache.logging.log4j.Logger logger = LogManager.getLogger(TableDao.class);
   @Getter
   @Setter
   @NonNull
   private Connection conn;
+  // The names read by the session, so that a name is held once
+  @Getter
+  @NonNull
+  private NameInterner names;
 
   /**
-   * To get all tables' name in a database
+   * To get all tables' name in a database, with their row count and used page count from the catalog,
+   * ordered by the page count, then the row count, from the biggest table.
    *
    * @param dbName The name of the database.
    * @return The list of table names.
+   * @throws SQLException If an error occurs, so that an empty plan is never saved over the last good one.
    */
-  public List<SchemaTableModel> getTableNamesByDb(String dbName) {
-    String query = String.format("SELECT sc.name AS schemaName, ta.name AS tableName" +
-      " FROM [%s].sys.tables AS ta" +
-      " INNER JOIN [%s].sys.partitions pa ON pa.OBJECT_ID = ta.OBJECT_ID" +
-      " INNER JOIN [%s].sys.schemas sc ON ta.schema_id = sc.schema_id" +
+  public List<SchemaTableModel> getTableNamesByDb(String dbName) throws SQLException {
+    String db = quoteName(dbName);
+    String query = "SELECT sc.name AS schemaName, ta.name AS tableName, SUM(pa.rows) AS rowCount," +
+      " SUM(au.pageCount) AS pageCount" +
+      " FROM " + db + ".sys.tables AS ta" +
+      " INNER JOIN " + db + ".sys.partitions pa ON pa.OBJECT_ID = ta.OBJECT_ID" +
+      " INNER JOIN " + db + ".sys.schemas sc ON ta.schema_id = sc.schema_id" +
+      " OUTER APPLY (SELECT SUM(al.used_pages) AS pageCount FROM " + db + ".sys.allocation_units al" +
+      " WHERE al.container_id IN (pa.hobt_id, pa.partition_id)) AS au" +
       " WHERE ta.is_ms_shipped = 0 AND pa.index_id IN (1,0)" +
       " GROUP BY sc.name, ta.name" +
       " HAVING SUM(pa.rows) > 0" +
-      " ORDER BY SUM(pa.rows) DESC", dbName, dbName, dbName);
+      " ORDER BY SUM(au.pageCount) DESC, SUM(pa.rows) DESC";
 
     // The list of table names.
     List<SchemaTableModel> tableNames = new ArrayList<>();
@@ -51,48 +62,15 @@ public class TableDao {
       try (ResultSet rs = ps.executeQuery()) {
         while (rs.next()) {
           tableNames.add(SchemaTableModel.builder()
-            .schemaName(rs.getString("schemaName"))
-            .tableName(rs.getString("tableName"))
+            .schemaName(this.names.intern(rs.getString("schemaName")))
+            .tableName(this.names.intern(rs.getString("tableName")))
+            .rowCount(rs.getLong("rowCount"))
+            .pageCount(rs.getLong("pageCount"))
             .build());
         }
       }
-    } catch (SQLException e) {
-      logger.error("target_db={},msg=Failed to get table names", dbName, e);
     }
 
     return tableNames;
   }
-
-  /**
-   * To get all columns of a table in a database
-   *
-   * @param dbName     The name of the database.
-   * @param schemaName The name of the schema.
-   * @param tableName  The name of the table.
-   * @return The list of columns.
-   * @throws SQLException If an error occurs.
-   */
-  public List<String> getAllColumnsOfTable(String dbName,
-                                           String schemaName,
-                                           String tableName)
-    throws SQLException {
-    String query = String.format("SELECT COLUMN_NAME" +
-        " FROM [%s].INFORMATION_SCHEMA.COLUMNS" +
-        " WHERE TABLE_SCHEMA = '%s' AND TABLE_NAME = '%s'",
-      dbName, schemaName, tableName);
-
-    List<String> columns = new ArrayList<>();
-
-    try (PreparedStatement ps = this.conn.prepareStatement(query)) {
-      try (ResultSet rs = ps.executeQuery()) {
-        while (rs.next()) {
-          columns.add(rs.getString("COLUMN_NAME"));
-        }
-      }
-    } catch (SQLException e) {
-      logger.error("db={},table={},msg=Failed to get all columns", dbName, tableName, e);
-    }
-
-    return columns;
-  }
 }
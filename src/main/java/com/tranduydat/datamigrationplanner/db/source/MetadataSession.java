@@ -0,0 +1,131 @@
+package com.tranduydat.datamigrationplanner.db.source;
+
+import com.tranduydat.datamigrationplanner.model.CatalogModel;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import com.tranduydat.datamigrationplanner.model.ColumnStatsModel;
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+import com.tranduydat.datamigrationplanner.model.SchemaTableModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The queries the planner runs on a database, within the query and table budgets of the session.
+ * The methods are those of the DAOs, which document them in detail.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public interface MetadataSession extends AutoCloseable {
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.TableDao#getTableNamesByDb(String)
+   */
+  List<SchemaTableModel> getTableNamesByDb(String dbName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CatalogDao#load(String)
+   */
+  CatalogModel loadCatalog(String dbName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CatalogDao#getColumnsByDb(String)
+   */
+  Map<String, List<ColumnModel>> getColumnsByDb(String dbName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CatalogDao#getFingerprintsByDb(String)
+   */
+  Map<String, TableFingerprintModel> getFingerprintsByDb(String dbName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CheckingDao#isApproxCountDistinctSupported()
+   */
+  boolean isApproxCountDistinctSupported();
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CheckingDao#countDistinctByColumn(String, String, String, String)
+   */
+  long countDistinctByColumn(String dbName, String schemaName, String tableName, String columnName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CheckingDao#countRowAndDistinctByColumns(String, String, String, List, Map)
+   */
+  long countRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                    List<String> columnNames, Map<String, Long> columnWithCount) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CheckingDao#countRowAndApproxDistinctByColumns(String, String, String, List, Map)
+   */
+  long countRowAndApproxDistinctByColumns(String dbName, String schemaName, String tableName,
+                                          List<String> columnNames, Map<String, Long> columnWithCount) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CheckingDao#countSampleRowAndDistinctByColumns(String, String, String, List, int, Map)
+   */
+  long countSampleRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                          List<String> columnNames, int sampleRows, Map<String, Long> columnWithCount)
+    throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.CheckingDao#countRowByColumn(String, String, String)
+   */
+  long countRowByColumn(String dbName, String schemaName, String tableName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.StatsDao#getColumnStats(String, String, String)
+   */
+  List<ColumnStatsModel> getColumnStats(String dbName, String schemaName, String tableName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.StatsDao#getLeadingColumnDensity(String, String, String)
+   */
+  double getLeadingColumnDensity(String schemaName, String tableName, String statsName) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.SplitDao#getMinMax(String, String, String, String, String)
+   */
+  SplitStatsModel getMinMax(String dbName, String schemaName, String tableName, String columnName, String dataType)
+    throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.SplitDao#getHistogramFromStats(String, String, String, String, String)
+   */
+  List<HistogramBucketModel> getHistogramFromStats(String dbName, String schemaName, String tableName,
+                                                   String columnName, String dataType) throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.SplitDao#getHistogramFromSample(String, String, String, String, String, int, int)
+   */
+  List<HistogramBucketModel> getHistogramFromSample(String dbName, String schemaName, String tableName,
+                                                    String columnName, String dataType, int sampleRows, int buckets)
+    throws SQLException;
+
+  /**
+   * @see com.tranduydat.datamigrationplanner.db.dao.SplitDao#getBoundaries(String, String, String, String, String, int)
+   */
+  List<String> getBoundaries(String dbName, String schemaName, String tableName, String columnName, String dataType,
+                             int parts)
+    throws SQLException;
+
+  /**
+   * Gets the budget that was exceeded since the session was opened or its budget was reset.
+   *
+   * @return "query_timeout" or "table_timeout", or null if no query ran over budget.
+   */
+  String getExceeded();
+
+  /**
+   * Gives the session fresh budgets, e.g. to fall back to cheaper queries after a budget was exceeded.
+   *
+   * @param queryTimeoutSeconds The budget of a single query, 0 for no budget.
+   * @param tableTimeoutSeconds The budget of all queries together from now, 0 for no budget.
+   */
+  void resetBudget(int queryTimeoutSeconds, int tableTimeoutSeconds);
+
+  @Override
+  void close() throws SQLException;
+}
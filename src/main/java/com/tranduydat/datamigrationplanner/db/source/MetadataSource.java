@@ -0,0 +1,34 @@
+package com.tranduydat.datamigrationplanner.db.source;
+
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+
+import java.sql.SQLException;
+
+/**
+ * Where the catalog, counts, statistics and split values of the tables come from.
+ * The planner only talks to a source through its sessions, so it can run against a live SQL Server
+ * or against a synthetic database, e.g. to load test the scheduler offline.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public interface MetadataSource {
+  /**
+   * Opens a session on a database, which is used by one thread at a time.
+   *
+   * @param target              The database.
+   * @param queryTimeoutSeconds The budget of a single query, 0 for no budget.
+   * @param tableTimeoutSeconds The budget of all queries of the session together, 0 for no budget.
+   * @return The session, to be closed by the caller.
+   * @throws SQLException If the session cannot be opened.
+   */
+  MetadataSession open(TargetModel target, int queryTimeoutSeconds, int tableTimeoutSeconds) throws SQLException;
+
+  /**
+   * Whether the sessions connect to a live SQL Server, through the connection pools.
+   *
+   * @return true for a live SQL Server, otherwise false.
+   */
+  boolean isLive();
+}
@@ -0,0 +1,183 @@
+package com.tranduydat.datamigrationplanner.db.source;
+
+import com.tranduydat.datamigrationplanner.metrics.Metrics;
+import com.tranduydat.datamigrationplanner.metrics.QueryType;
+import com.tranduydat.datamigrationplanner.model.CatalogModel;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import com.tranduydat.datamigrationplanner.model.ColumnStatsModel;
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+import com.tranduydat.datamigrationplanner.model.SchemaTableModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the latency of every query of a session in the metrics, by the kind of query,
+ * so that neither the DAOs nor the sources time their queries themselves.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class MeteredSession implements MetadataSession {
+  private final MetadataSession session;
+
+  /**
+   * @param session The session whose queries are timed.
+   */
+  public MeteredSession(MetadataSession session) {
+    this.session = session;
+  }
+
+  @Override
+  public List<SchemaTableModel> getTableNamesByDb(String dbName) throws SQLException {
+    return timed(QueryType.CATALOG, () -> this.session.getTableNamesByDb(dbName));
+  }
+
+  @Override
+  public CatalogModel loadCatalog(String dbName) throws SQLException {
+    return timed(QueryType.CATALOG, () -> this.session.loadCatalog(dbName));
+  }
+
+  @Override
+  public Map<String, List<ColumnModel>> getColumnsByDb(String dbName) throws SQLException {
+    return timed(QueryType.CATALOG, () -> this.session.getColumnsByDb(dbName));
+  }
+
+  @Override
+  public Map<String, TableFingerprintModel> getFingerprintsByDb(String dbName) throws SQLException {
+    return timed(QueryType.CATALOG, () -> this.session.getFingerprintsByDb(dbName));
+  }
+
+  @Override
+  public boolean isApproxCountDistinctSupported() {
+    long startTime = System.nanoTime();
+    try {
+      return this.session.isApproxCountDistinctSupported();
+    } finally {
+      record(QueryType.DISTINCT, startTime);
+    }
+  }
+
+  @Override
+  public long countDistinctByColumn(String dbName, String schemaName, String tableName, String columnName)
+    throws SQLException {
+    return timed(QueryType.DISTINCT, () -> this.session.countDistinctByColumn(dbName, schemaName, tableName, columnName));
+  }
+
+  @Override
+  public long countRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                           List<String> columnNames, Map<String, Long> columnWithCount)
+    throws SQLException {
+    return timed(QueryType.DISTINCT, () -> this.session.countRowAndDistinctByColumns(dbName, schemaName, tableName,
+      columnNames, columnWithCount));
+  }
+
+  @Override
+  public long countRowAndApproxDistinctByColumns(String dbName, String schemaName, String tableName,
+                                                 List<String> columnNames, Map<String, Long> columnWithCount)
+    throws SQLException {
+    return timed(QueryType.DISTINCT, () -> this.session.countRowAndApproxDistinctByColumns(dbName, schemaName, tableName,
+      columnNames, columnWithCount));
+  }
+
+  @Override
+  public long countSampleRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                                 List<String> columnNames, int sampleRows, Map<String, Long> columnWithCount)
+    throws SQLException {
+    return timed(QueryType.DISTINCT, () -> this.session.countSampleRowAndDistinctByColumns(dbName, schemaName, tableName,
+      columnNames, sampleRows, columnWithCount));
+  }
+
+  @Override
+  public long countRowByColumn(String dbName, String schemaName, String tableName) throws SQLException {
+    return timed(QueryType.COUNT, () -> this.session.countRowByColumn(dbName, schemaName, tableName));
+  }
+
+  @Override
+  public List<ColumnStatsModel> getColumnStats(String dbName, String schemaName, String tableName) throws SQLException {
+    return timed(QueryType.STATS, () -> this.session.getColumnStats(dbName, schemaName, tableName));
+  }
+
+  @Override
+  public double getLeadingColumnDensity(String schemaName, String tableName, String statsName) throws SQLException {
+    return timed(QueryType.STATS, () -> this.session.getLeadingColumnDensity(schemaName, tableName, statsName));
+  }
+
+  @Override
+  public SplitStatsModel getMinMax(String dbName, String schemaName, String tableName, String columnName, String dataType)
+    throws SQLException {
+    return timed(QueryType.SPLIT, () -> this.session.getMinMax(dbName, schemaName, tableName, columnName, dataType));
+  }
+
+  @Override
+  public List<HistogramBucketModel> getHistogramFromStats(String dbName, String schemaName, String tableName,
+                                                          String columnName, String dataType) throws SQLException {
+    return timed(QueryType.SPLIT, () -> this.session.getHistogramFromStats(dbName, schemaName, tableName, columnName,
+      dataType));
+  }
+
+  @Override
+  public List<HistogramBucketModel> getHistogramFromSample(String dbName, String schemaName, String tableName,
+                                                           String columnName, String dataType, int sampleRows, int buckets)
+    throws SQLException {
+    return timed(QueryType.SPLIT, () -> this.session.getHistogramFromSample(dbName, schemaName, tableName, columnName,
+      dataType, sampleRows, buckets));
+  }
+
+  @Override
+  public List<String> getBoundaries(String dbName, String schemaName, String tableName, String columnName, String dataType,
+                                    int parts) throws SQLException {
+    return timed(QueryType.SPLIT, () -> this.session.getBoundaries(dbName, schemaName, tableName, columnName, dataType,
+      parts));
+  }
+
+  @Override
+  public String getExceeded() {
+    return this.session.getExceeded();
+  }
+
+  @Override
+  public void resetBudget(int queryTimeoutSeconds, int tableTimeoutSeconds) {
+    this.session.resetBudget(queryTimeoutSeconds, tableTimeoutSeconds);
+  }
+
+  @Override
+  public void close() throws SQLException {
+    this.session.close();
+  }
+
+  /**
+   * Runs a query and records its latency, whether it succeeds or fails.
+   *
+   * @param queryType The kind of query.
+   * @param query     The query.
+   * @param <T>       The type of the result.
+   * @return The result of the query.
+   * @throws SQLException If the query fails.
+   */
+  private static <T> T timed(QueryType queryType, Query<T> query) throws SQLException {
+    long startTime = System.nanoTime();
+    try {
+      return query.run();
+    } finally {
+      record(queryType, startTime);
+    }
+  }
+
+  private static void record(QueryType queryType, long startTime) {
+    Metrics.getInstance().recordQuery(queryType, System.nanoTime() - startTime);
+  }
+
+  /**
+   * A query of the wrapped session.
+   *
+   * @param <T> The type of the result.
+   */
+  private interface Query<T> {
+    T run() throws SQLException;
+  }
+}
@@ -0,0 +1,166 @@
+package com.tranduydat.datamigrationplanner.db.source;
+
+import com.tranduydat.datamigrationplanner.db.connection.QueryGovernor;
+import com.tranduydat.datamigrationplanner.db.dao.CatalogDao;
+import com.tranduydat.datamigrationplanner.db.dao.CheckingDao;
+import com.tranduydat.datamigrationplanner.db.dao.SplitDao;
+import com.tranduydat.datamigrationplanner.db.dao.StatsDao;
+import com.tranduydat.datamigrationplanner.db.dao.TableDao;
+import com.tranduydat.datamigrationplanner.model.CatalogModel;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import com.tranduydat.datamigrationplanner.model.ColumnStatsModel;
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+import com.tranduydat.datamigrationplanner.model.SchemaTableModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import com.tranduydat.datamigrationplanner.utils.NameInterner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A session on a live SQL Server database: the DAOs over one pooled connection,
+ * whose queries are cancelled by a QueryGovernor once over budget
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class MsSqlServerSession implements MetadataSession {
+  // The pooled connection, given back to the pool when the session is closed
+  private final Connection rawConn;
+  // The names read by the session, so that a name is held once
+  private final NameInterner names = new NameInterner();
+  private QueryGovernor governor;
+  private TableDao tableDao;
+  private CatalogDao catalogDao;
+  private CheckingDao checkingDao;
+  private StatsDao statsDao;
+  private SplitDao splitDao;
+
+  /**
+   * @param rawConn             The pooled connection.
+   * @param queryTimeoutSeconds The budget of a single query, 0 for no budget.
+   * @param tableTimeoutSeconds The budget of all queries together, 0 for no budget.
+   */
+  public MsSqlServerSession(Connection rawConn, int queryTimeoutSeconds, int tableTimeoutSeconds) {
+    this.rawConn = rawConn;
+    this.resetBudget(queryTimeoutSeconds, tableTimeoutSeconds);
+  }
+
+  @Override
+  public void resetBudget(int queryTimeoutSeconds, int tableTimeoutSeconds) {
+    this.governor = new QueryGovernor(queryTimeoutSeconds, tableTimeoutSeconds);
+    Connection conn = this.governor.govern(this.rawConn);
+    this.tableDao = new TableDao(conn, this.names);
+    this.catalogDao = new CatalogDao(conn, this.names);
+    this.checkingDao = new CheckingDao(conn);
+    this.statsDao = new StatsDao(conn);
+    this.splitDao = new SplitDao(conn);
+  }
+
+  @Override
+  public String getExceeded() {
+    return this.governor.getExceeded();
+  }
+
+  @Override
+  public List<SchemaTableModel> getTableNamesByDb(String dbName) throws SQLException {
+    return this.tableDao.getTableNamesByDb(dbName);
+  }
+
+  @Override
+  public CatalogModel loadCatalog(String dbName) throws SQLException {
+    return this.catalogDao.load(dbName);
+  }
+
+  @Override
+  public Map<String, List<ColumnModel>> getColumnsByDb(String dbName) throws SQLException {
+    return this.catalogDao.getColumnsByDb(dbName);
+  }
+
+  @Override
+  public Map<String, TableFingerprintModel> getFingerprintsByDb(String dbName) throws SQLException {
+    return this.catalogDao.getFingerprintsByDb(dbName);
+  }
+
+  @Override
+  public boolean isApproxCountDistinctSupported() {
+    return this.checkingDao.isApproxCountDistinctSupported();
+  }
+
+  @Override
+  public long countDistinctByColumn(String dbName, String schemaName, String tableName, String columnName)
+    throws SQLException {
+    return this.checkingDao.countDistinctByColumn(dbName, schemaName, tableName, columnName);
+  }
+
+  @Override
+  public long countRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                           List<String> columnNames, Map<String, Long> columnWithCount)
+    throws SQLException {
+    return this.checkingDao.countRowAndDistinctByColumns(dbName, schemaName, tableName, columnNames, columnWithCount);
+  }
+
+  @Override
+  public long countRowAndApproxDistinctByColumns(String dbName, String schemaName, String tableName,
+                                                 List<String> columnNames, Map<String, Long> columnWithCount)
+    throws SQLException {
+    return this.checkingDao.countRowAndApproxDistinctByColumns(dbName, schemaName, tableName, columnNames, columnWithCount);
+  }
+
+  @Override
+  public long countSampleRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                                 List<String> columnNames, int sampleRows, Map<String, Long> columnWithCount)
+    throws SQLException {
+    return this.checkingDao.countSampleRowAndDistinctByColumns(dbName, schemaName, tableName, columnNames, sampleRows,
+      columnWithCount);
+  }
+
+  @Override
+  public long countRowByColumn(String dbName, String schemaName, String tableName) throws SQLException {
+    return this.checkingDao.countRowByColumn(dbName, schemaName, tableName);
+  }
+
+  @Override
+  public List<ColumnStatsModel> getColumnStats(String dbName, String schemaName, String tableName) throws SQLException {
+    return this.statsDao.getColumnStats(dbName, schemaName, tableName);
+  }
+
+  @Override
+  public double getLeadingColumnDensity(String schemaName, String tableName, String statsName) throws SQLException {
+    return this.statsDao.getLeadingColumnDensity(schemaName, tableName, statsName);
+  }
+
+  @Override
+  public SplitStatsModel getMinMax(String dbName, String schemaName, String tableName, String columnName, String dataType)
+    throws SQLException {
+    return this.splitDao.getMinMax(dbName, schemaName, tableName, columnName, dataType);
+  }
+
+  @Override
+  public List<HistogramBucketModel> getHistogramFromStats(String dbName, String schemaName, String tableName,
+                                                          String columnName, String dataType) throws SQLException {
+    return this.splitDao.getHistogramFromStats(dbName, schemaName, tableName, columnName, dataType);
+  }
+
+  @Override
+  public List<HistogramBucketModel> getHistogramFromSample(String dbName, String schemaName, String tableName,
+                                                           String columnName, String dataType, int sampleRows, int buckets)
+    throws SQLException {
+    return this.splitDao.getHistogramFromSample(dbName, schemaName, tableName, columnName, dataType, sampleRows, buckets);
+  }
+
+  @Override
+  public List<String> getBoundaries(String dbName, String schemaName, String tableName, String columnName, String dataType,
+                                    int parts) throws SQLException {
+    return this.splitDao.getBoundaries(dbName, schemaName, tableName, columnName, dataType, parts);
+  }
+
+  @Override
+  public void close() throws SQLException {
+    this.rawConn.close();
+  }
+}
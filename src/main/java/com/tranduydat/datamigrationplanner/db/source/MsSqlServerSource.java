@@ -0,0 +1,27 @@
+package com.tranduydat.datamigrationplanner.db.source;
+
+import com.tranduydat.datamigrationplanner.db.connection.MsSqlServerConnection;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The metadata of a live SQL Server, each session borrowing a connection from the pool of its instance
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class MsSqlServerSource implements MetadataSource {
+  @Override
+  public MetadataSession open(TargetModel target, int queryTimeoutSeconds, int tableTimeoutSeconds) throws SQLException {
+    Connection conn = MsSqlServerConnection.getConnection(target);
+    return new MeteredSession(new MsSqlServerSession(conn, queryTimeoutSeconds, tableTimeoutSeconds));
+  }
+
+  @Override
+  public boolean isLive() {
+    return true;
+  }
+}
@@ -0,0 +1,413 @@
+package com.tranduydat.datamigrationplanner.db.source;
+
+import com.tranduydat.datamigrationplanner.db.dao.SplitDao;
+import com.tranduydat.datamigrationplanner.model.CatalogModel;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import com.tranduydat.datamigrationplanner.model.ColumnStatsModel;
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+import com.tranduydat.datamigrationplanner.model.SchemaTableModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import com.tranduydat.datamigrationplanner.model.UniqueKeyModel;
+import com.tranduydat.datamigrationplanner.utils.NameInterner;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.tranduydat.datamigrationplanner.utils.SqlUtil.tableKey;
+
+/**
+ * A session on a synthetic database: each query answers from the generated catalog after sleeping its latency.
+ * A query is stopped once over budget like on a live server, and fails at random at the failure rate of the source,
+ * except the catalog queries, which a live planner cannot do without either.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class SyntheticSession implements MetadataSession {
+  private static final String SCHEMA_NAME = "dbo";
+  // The number of steps of a statistics histogram on SQL Server
+  private static final int HISTOGRAM_STEPS = 200;
+  private final SyntheticSource source;
+  // Draws the latencies and failures of this session
+  private final Random random;
+  // The names read by the session, so that a name is held once
+  private final NameInterner names = new NameInterner();
+  // The budget of a single query in milliseconds, 0 for no budget
+  private long queryTimeoutMillis;
+  // The time all queries must be done by, from System.currentTimeMillis(), 0 for no deadline
+  private long deadlineMillis;
+  // The budget that was exceeded, "query_timeout" or "table_timeout", null if none
+  private String exceeded;
+
+  /**
+   * @param source              The synthetic database.
+   * @param seed                The seed of the latencies and failures.
+   * @param queryTimeoutSeconds The budget of a single query, 0 for no budget.
+   * @param tableTimeoutSeconds The budget of all queries together, 0 for no budget.
+   */
+  public SyntheticSession(SyntheticSource source, long seed, int queryTimeoutSeconds, int tableTimeoutSeconds) {
+    this.source = source;
+    this.random = new Random(seed);
+    this.resetBudget(queryTimeoutSeconds, tableTimeoutSeconds);
+  }
+
+  @Override
+  public void resetBudget(int queryTimeoutSeconds, int tableTimeoutSeconds) {
+    this.queryTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0, queryTimeoutSeconds));
+    this.deadlineMillis = tableTimeoutSeconds > 0
+      ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(tableTimeoutSeconds)
+      : 0;
+    this.exceeded = null;
+  }
+
+  @Override
+  public String getExceeded() {
+    return this.exceeded;
+  }
+
+  @Override
+  public List<SchemaTableModel> getTableNamesByDb(String dbName) throws SQLException {
+    this.query(0, false);
+    // Biggest first, like the live query
+    List<SchemaTableModel> tableNames = new ArrayList<>(this.source.getTables());
+    for (int table = 0; table < this.source.getTables(); table++) {
+      long rows = this.source.rowCount(table);
+      tableNames.add(SchemaTableModel.builder()
+        .schemaName(SCHEMA_NAME)
+        .tableName(this.tableName(table))
+        .rowCount(rows)
+        .pageCount(rows / 80 + 1)
+        .build());
+    }
+    return tableNames;
+  }
+
+  @Override
+  public CatalogModel loadCatalog(String dbName) throws SQLException {
+    Map<String, List<ColumnModel>> columnsByTable = this.getColumnsByDb(dbName);
+    this.query(0, false);
+    Map<String, List<String>> primaryKeysByTable = new HashMap<>();
+    Map<String, List<UniqueKeyModel>> uniqueKeysByTable = new HashMap<>();
+    for (int table = 0; table < this.source.getTables(); table++) {
+      String tableKey = this.names.intern(tableKey(SCHEMA_NAME, this.tableName(table)));
+      switch (this.source.keyShape(table)) {
+        case "pk_single":
+          primaryKeysByTable.put(tableKey, Collections.singletonList(this.columnName(0)));
+          uniqueKeysByTable.put(tableKey, Collections.singletonList(new UniqueKeyModel(this.columnName(0),
+            "pk_" + this.tableName(table), "primary_key")));
+          break;
+        case "pk_composite":
+          List<String> primaryKeys = new ArrayList<>();
+          primaryKeys.add(this.columnName(0));
+          primaryKeys.add(this.columnName(1));
+          primaryKeysByTable.put(tableKey, primaryKeys);
+          break;
+        case "unique_key":
+          uniqueKeysByTable.put(tableKey, Collections.singletonList(new UniqueKeyModel(this.columnName(1),
+            "uq_" + this.tableName(table), "unique_constraint")));
+          break;
+        default:
+          break;
+      }
+    }
+    return CatalogModel.builder()
+      .columnsByTable(columnsByTable)
+      .primaryKeysByTable(primaryKeysByTable)
+      .uniqueKeysByTable(uniqueKeysByTable)
+      .build();
+  }
+
+  @Override
+  public Map<String, List<ColumnModel>> getColumnsByDb(String dbName) throws SQLException {
+    this.query(0, false);
+    Map<String, List<ColumnModel>> columnsByTable = new HashMap<>();
+    for (int table = 0; table < this.source.getTables(); table++) {
+      String keyShape = this.source.keyShape(table);
+      List<ColumnModel> columns = new ArrayList<>(this.source.getColumns());
+      for (int column = 0; column < this.source.getColumns(); column++) {
+        boolean key = (column == 0 && !keyShape.equals("none") && !keyShape.equals("unique_key"))
+          || (column == 1 && (keyShape.equals("pk_composite") || keyShape.equals("unique_key")));
+        String dataType = this.source.dataType(table, column);
+        columns.add(ColumnModel.builder()
+          .columnName(this.columnName(column))
+          .dataType(dataType)
+          .nullable(!key && this.source.unit(table, 3 * this.columns() + column) < 0.3)
+          .maxLength(dataType.endsWith("char") ? 100 : 8)
+          .identity(column == 0 && keyShape.equals("pk_single"))
+          .leadingIndexKey(key && !(column == 1 && keyShape.equals("pk_composite")))
+          .build());
+      }
+      columnsByTable.put(this.names.intern(tableKey(SCHEMA_NAME, this.tableName(table))), columns);
+    }
+    return columnsByTable;
+  }
+
+  @Override
+  public Map<String, TableFingerprintModel> getFingerprintsByDb(String dbName) throws SQLException {
+    this.query(0, false);
+    Map<String, TableFingerprintModel> fingerprints = new HashMap<>();
+    for (int table = 0; table < this.source.getTables(); table++) {
+      LocalDateTime statsDate = null;
+      for (int column = 0; column < this.source.getColumns(); column++) {
+        LocalDateTime date = this.source.statsDate(table, column);
+        statsDate = statsDate == null || date.isAfter(statsDate) ? date : statsDate;
+      }
+      fingerprints.put(tableKey(SCHEMA_NAME, this.tableName(table)), TableFingerprintModel.builder()
+        .modifyDate(LocalDateTime.of(2023, 1, 1, 0, 0).plusMinutes((long) (this.source.unit(table, -4) * 365 * 24 * 60)))
+        .rowCount(this.source.rowCount(table))
+        .statsDate(statsDate)
+        .build());
+    }
+    return fingerprints;
+  }
+
+  @Override
+  public boolean isApproxCountDistinctSupported() {
+    return true;
+  }
+
+  @Override
+  public long countDistinctByColumn(String dbName, String schemaName, String tableName, String columnName)
+    throws SQLException {
+    int table = this.table(tableName);
+    this.query(this.source.rowCount(table), true);
+    return this.source.distinctCount(table, this.column(columnName));
+  }
+
+  @Override
+  public long countRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                           List<String> columnNames, Map<String, Long> columnWithCount)
+    throws SQLException {
+    int table = this.table(tableName);
+    this.query(this.source.rowCount(table), true);
+    for (String columnName : columnNames) {
+      columnWithCount.put(columnName, this.source.distinctCount(table, this.column(columnName)));
+    }
+    return this.source.rowCount(table);
+  }
+
+  @Override
+  public long countRowAndApproxDistinctByColumns(String dbName, String schemaName, String tableName,
+                                                 List<String> columnNames, Map<String, Long> columnWithCount)
+    throws SQLException {
+    int table = this.table(tableName);
+    this.query(this.source.rowCount(table), true);
+    for (String columnName : columnNames) {
+      int column = this.column(columnName);
+      // Within 1% of the exact count, as APPROX_COUNT_DISTINCT is
+      double error = 0.02 * (this.source.unit(table, 4 * this.columns() + column) - 0.5);
+      columnWithCount.put(columnName, Math.max(1, Math.round(this.source.distinctCount(table, column) * (1 + error))));
+    }
+    return this.source.rowCount(table);
+  }
+
+  @Override
+  public long countSampleRowAndDistinctByColumns(String dbName, String schemaName, String tableName,
+                                                 List<String> columnNames, int sampleRows, Map<String, Long> columnWithCount)
+    throws SQLException {
+    int table = this.table(tableName);
+    long rows = Math.min(sampleRows, this.source.rowCount(table));
+    this.query(rows, true);
+    for (String columnName : columnNames) {
+      long distinct = this.source.distinctCount(table, this.column(columnName));
+      if (distinct == this.source.rowCount(table)) {
+        columnWithCount.put(columnName, rows);
+      } else {
+        // The expected number of distinct values among `rows` values drawn from `distinct` values
+        double expected = distinct * (1 - Math.pow(1 - 1.0 / distinct, rows));
+        columnWithCount.put(columnName, Math.max(1, Math.min(rows - 1, Math.round(expected))));
+      }
+    }
+    return rows;
+  }
+
+  @Override
+  public long countRowByColumn(String dbName, String schemaName, String tableName) throws SQLException {
+    int table = this.table(tableName);
+    this.query(this.source.rowCount(table), true);
+    return this.source.rowCount(table);
+  }
+
+  @Override
+  public List<ColumnStatsModel> getColumnStats(String dbName, String schemaName, String tableName) throws SQLException {
+    int table = this.table(tableName);
+    this.query(0, true);
+    List<ColumnStatsModel> columnStats = new ArrayList<>();
+    for (int column = 0; column < this.source.getColumns(); column++) {
+      columnStats.add(ColumnStatsModel.builder()
+        .statsName("_WA_Sys_" + this.columnName(column))
+        .columnName(this.columnName(column))
+        .rows(this.source.rowCount(table))
+        .lastUpdated(this.source.statsDate(table, column))
+        .modificationCounter((long) (this.source.rowCount(table) * 0.05 * this.source.unit(table, 5 * this.columns() + column)))
+        .build());
+    }
+    return columnStats;
+  }
+
+  @Override
+  public double getLeadingColumnDensity(String schemaName, String tableName, String statsName) throws SQLException {
+    int table = this.table(tableName);
+    this.query(0, true);
+    return 1.0 / this.source.distinctCount(table, this.column(statsName));
+  }
+
+  @Override
+  public SplitStatsModel getMinMax(String dbName, String schemaName, String tableName, String columnName, String dataType)
+    throws SQLException {
+    int table = this.table(tableName);
+    this.query(this.source.rowCount(table), true);
+    long distinct = this.source.distinctCount(table, this.column(columnName));
+    boolean numberLike = SplitDao.isNumberLike(dataType);
+    // The values of a column are 1 to its distinct count
+    return SplitStatsModel.builder()
+      .columnName(columnName)
+      .dataType(dataType)
+      .minValue("1")
+      .maxValue(String.valueOf(distinct))
+      .minNumber(numberLike ? 1 : 0)
+      .maxNumber(numberLike ? distinct : 0)
+      .build();
+  }
+
+  @Override
+  public List<HistogramBucketModel> getHistogramFromStats(String dbName, String schemaName, String tableName,
+                                                          String columnName, String dataType) throws SQLException {
+    int table = this.table(tableName);
+    this.query(0, true);
+    return this.histogram(table, this.column(columnName), HISTOGRAM_STEPS, this.source.rowCount(table));
+  }
+
+  @Override
+  public List<HistogramBucketModel> getHistogramFromSample(String dbName, String schemaName, String tableName,
+                                                           String columnName, String dataType, int sampleRows, int buckets)
+    throws SQLException {
+    int table = this.table(tableName);
+    long rows = Math.min(sampleRows, this.source.rowCount(table));
+    this.query(rows, true);
+    return this.histogram(table, this.column(columnName), buckets, rows);
+  }
+
+  @Override
+  public List<String> getBoundaries(String dbName, String schemaName, String tableName, String columnName, String dataType,
+                                    int parts) throws SQLException {
+    int table = this.table(tableName);
+    this.query(this.source.rowCount(table), true);
+    long distinct = this.source.distinctCount(table, this.column(columnName));
+    List<String> boundaries = new ArrayList<>();
+    for (int part = 0; part < Math.max(1, parts); part++) {
+      boundaries.add(SplitDao.literal(String.valueOf(1 + part * distinct / Math.max(1, parts)), dataType));
+    }
+    boundaries.add(SplitDao.literal(String.valueOf(distinct), dataType));
+    return boundaries;
+  }
+
+  @Override
+  public void close() {
+    // Nothing to release
+  }
+
+  /**
+   * Builds a uniform histogram of the values 1 to the distinct count of a column.
+   *
+   * @param table   The index of the table.
+   * @param column  The index of the column.
+   * @param buckets The number of buckets.
+   * @param rows    The number of rows in the histogram.
+   * @return The histogram buckets, ordered by value.
+   */
+  private List<HistogramBucketModel> histogram(int table, int column, int buckets, long rows) {
+    long distinct = this.source.distinctCount(table, column);
+    int count = (int) Math.max(1, Math.min(buckets, distinct));
+    List<HistogramBucketModel> histogram = new ArrayList<>(count);
+    for (int bucket = 0; bucket < count; bucket++) {
+      histogram.add(HistogramBucketModel.builder()
+        .lowValue(1 + (double) bucket * distinct / count)
+        .highValue((double) (bucket + 1) * distinct / count)
+        .rows(rows / count)
+        .build());
+    }
+    return histogram;
+  }
+
+  /**
+   * Runs a query: sleeps its latency, or its remaining budget if it runs over, and may fail.
+   *
+   * @param scanRows   The number of rows the query reads, 0 if it only reads metadata.
+   * @param mayFail    Whether the query fails at the failure rate.
+   * @throws SQLException If the query runs over budget or fails.
+   */
+  private void query(long scanRows, boolean mayFail) throws SQLException {
+    double latencyMillis = this.source.getLatencyMs() * (1 + this.source.getLatencyJitter() * (2 * this.random.nextDouble() - 1))
+      + this.source.getScanMsPerMillionRows() * scanRows / 1_000_000.0;
+    long latencyNanos = (long) (Math.max(0, latencyMillis) * 1_000_000);
+
+    // The budget left for this query, the smallest of the query and table budgets
+    long budgetNanos = Long.MAX_VALUE;
+    String budget = null;
+    if (this.queryTimeoutMillis > 0) {
+      budgetNanos = TimeUnit.MILLISECONDS.toNanos(this.queryTimeoutMillis);
+      budget = "query_timeout";
+    }
+    if (this.deadlineMillis > 0) {
+      long leftNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, this.deadlineMillis - System.currentTimeMillis()));
+      if (leftNanos < budgetNanos) {
+        budgetNanos = leftNanos;
+        budget = "table_timeout";
+      }
+    }
+
+    try {
+      TimeUnit.NANOSECONDS.sleep(Math.min(latencyNanos, budgetNanos));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("The query was interrupted", e);
+    }
+    if (latencyNanos > budgetNanos) {
+      this.exceeded = budget;
+      throw new SQLTimeoutException("The query was canceled");
+    }
+    if (mayFail && this.random.nextDouble() < this.source.getFailureRate()) {
+      throw new SQLTransientException("Injected failure");
+    }
+  }
+
+  private String tableName(int table) {
+    return this.names.intern(SyntheticSource.tableName(table));
+  }
+
+  private String columnName(int column) {
+    return this.names.intern(SyntheticSource.columnName(column));
+  }
+
+  private int table(String tableName) throws SQLException {
+    int table = this.source.tableIndex(tableName);
+    if (table < 0) {
+      throw new SQLException("Invalid object name " + tableName);
+    }
+    return table;
+  }
+
+  private int column(String columnName) throws SQLException {
+    int column = this.source.columnIndex(columnName);
+    if (column < 0) {
+      throw new SQLException("Invalid column name " + columnName);
+    }
+    return column;
+  }
+
+  private int columns() {
+    return this.source.getColumns();
+  }
+}
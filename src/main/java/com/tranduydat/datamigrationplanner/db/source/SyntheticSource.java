@@ -0,0 +1,269 @@
+package com.tranduydat.datamigrationplanner.db.source;
+
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process synthetic database of any size, to load test the planner offline.
+ * The catalog is generated from a seed, so every query on a table gets consistent answers:
+ * the row counts follow a Zipf law, some tables have a single-column primary key, a composite one
+ * or a unique constraint, some others have a unique column found only by profiling,
+ * and the other columns have random cardinalities. Each query takes a latency, longer for the scans of bigger tables,
+ * runs over budget like on a live server, and fails at the given rate.
+ * <p>
+ * It is built from a spec such as "tables=50000,columns=20,latency_ms=2,failure_rate=0.01".
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class SyntheticSource implements MetadataSource {
+  private static final List<String> DATA_TYPES = Arrays.asList("int", "bigint", "varchar", "nvarchar", "decimal");
+  // The number of tables and columns per table
+  @Getter
+  private int tables = 1000;
+  @Getter
+  private int columns = 20;
+  // The row count of the biggest table, the i-th biggest table has maxRows / i^skew rows
+  @Getter
+  private long maxRows = 10_000_000;
+  @Getter
+  private double skew = 1.0;
+  // The shares of tables with a single-column primary key, a composite primary key or a unique constraint
+  @Getter
+  private double pkSingle = 0.5;
+  @Getter
+  private double pkComposite = 0.2;
+  @Getter
+  private double uniqueKey = 0.1;
+  // The share of the tables without a single-column key that still have a unique column
+  @Getter
+  private double uniqueRate = 0.5;
+  // The latency of a query, randomly spread by +/- `latencyJitter` of itself
+  @Getter
+  private double latencyMs = 1.0;
+  @Getter
+  private double latencyJitter = 0.5;
+  // The extra latency of scanning a million rows
+  @Getter
+  private double scanMsPerMillionRows = 0;
+  // The share of queries failing with an error
+  @Getter
+  private double failureRate = 0;
+  @Getter
+  private long seed = 42;
+  // Statistics were last updated in the 3 days before this time, so they are as fresh in every run of the day
+  private final LocalDateTime statsTime = LocalDate.now().atStartOfDay();
+  // Numbers the sessions, so that each one draws different latencies and failures
+  private final AtomicLong countSession = new AtomicLong();
+
+  /**
+   * Builds a synthetic source from a spec of comma-separated "key=value" pairs, any missing key keeping its default:
+   * tables, columns, max_rows, skew, pk_single, pk_composite, unique_key, unique_rate,
+   * latency_ms, latency_jitter, scan_ms_per_million_rows, failure_rate and seed.
+   *
+   * @param spec The spec, e.g. "tables=50000,latency_ms=2".
+   * @return The synthetic source.
+   * @throws IllegalArgumentException If a key is unknown or a value is not a number.
+   */
+  public static SyntheticSource fromSpec(String spec) {
+    SyntheticSource source = new SyntheticSource();
+    for (String pair : spec.split(",")) {
+      if (pair.trim().isEmpty()) {
+        continue;
+      }
+      String[] keyValue = pair.split("=", 2);
+      if (keyValue.length != 2) {
+        throw new IllegalArgumentException("Invalid synthetic source setting: " + pair);
+      }
+      String value = keyValue[1].trim();
+      switch (keyValue[0].trim()) {
+        case "tables":
+          source.tables = Integer.parseInt(value);
+          break;
+        case "columns":
+          source.columns = Math.max(2, Integer.parseInt(value));
+          break;
+        case "max_rows":
+          source.maxRows = Long.parseLong(value);
+          break;
+        case "skew":
+          source.skew = Double.parseDouble(value);
+          break;
+        case "pk_single":
+          source.pkSingle = Double.parseDouble(value);
+          break;
+        case "pk_composite":
+          source.pkComposite = Double.parseDouble(value);
+          break;
+        case "unique_key":
+          source.uniqueKey = Double.parseDouble(value);
+          break;
+        case "unique_rate":
+          source.uniqueRate = Double.parseDouble(value);
+          break;
+        case "latency_ms":
+          source.latencyMs = Double.parseDouble(value);
+          break;
+        case "latency_jitter":
+          source.latencyJitter = Double.parseDouble(value);
+          break;
+        case "scan_ms_per_million_rows":
+          source.scanMsPerMillionRows = Double.parseDouble(value);
+          break;
+        case "failure_rate":
+          source.failureRate = Double.parseDouble(value);
+          break;
+        case "seed":
+          source.seed = Long.parseLong(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown synthetic source setting: " + keyValue[0]);
+      }
+    }
+    return source;
+  }
+
+  @Override
+  public MetadataSession open(TargetModel target, int queryTimeoutSeconds, int tableTimeoutSeconds) {
+    return new MeteredSession(new SyntheticSession(this, this.seed * 31 + this.countSession.incrementAndGet(),
+      queryTimeoutSeconds, tableTimeoutSeconds));
+  }
+
+  @Override
+  public boolean isLive() {
+    return false;
+  }
+
+  /**
+   * Gets the name of a table.
+   *
+   * @param table The index of the table.
+   * @return The name, e.g. "table_42".
+   */
+  static String tableName(int table) {
+    return "table_" + table;
+  }
+
+  /**
+   * Gets the index of a table from its name.
+   *
+   * @param tableName The name of the table.
+   * @return The index, or -1 if no such table.
+   */
+  int tableIndex(String tableName) {
+    try {
+      int table = Integer.parseInt(tableName.substring(tableName.lastIndexOf('_') + 1));
+      return table >= 0 && table < this.tables ? table : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  static String columnName(int column) {
+    return "column_" + column;
+  }
+
+  /**
+   * Gets the index of a column from its name, or from the name of the statistics it leads.
+   *
+   * @param columnName The name of the column, e.g. "column_3" or "_WA_Sys_column_3".
+   * @return The index, or -1 if no such column.
+   */
+  int columnIndex(String columnName) {
+    try {
+      int column = Integer.parseInt(columnName.substring(columnName.lastIndexOf('_') + 1));
+      return column >= 0 && column < this.columns ? column : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  long rowCount(int table) {
+    return Math.max(1, Math.round(this.maxRows / Math.pow(table + 1, this.skew)));
+  }
+
+  /**
+   * Gets the key shape of a table.
+   *
+   * @param table The index of the table.
+   * @return "pk_single", "pk_composite", "unique_key" or "none".
+   */
+  String keyShape(int table) {
+    double u = this.unit(table, -1);
+    if (u < this.pkSingle) {
+      return "pk_single";
+    }
+    if (u < this.pkSingle + this.pkComposite) {
+      return "pk_composite";
+    }
+    if (u < this.pkSingle + this.pkComposite + this.uniqueKey) {
+      return "unique_key";
+    }
+    return "none";
+  }
+
+  /**
+   * Gets the column of a table that is unique without being a key, which is only found by profiling.
+   *
+   * @param table The index of the table.
+   * @return The index of the column, or -1 if none.
+   */
+  int hiddenUniqueColumn(int table) {
+    if (!this.keyShape(table).equals("none") && !this.keyShape(table).equals("pk_composite")) {
+      return -1;
+    }
+    return this.unit(table, -2) < this.uniqueRate ? 2 + (int) (this.unit(table, -3) * (this.columns - 2)) : -1;
+  }
+
+  /**
+   * Gets the number of distinct values of a column.
+   *
+   * @param table  The index of the table.
+   * @param column The index of the column.
+   * @return The distinct count, the row count for a unique column.
+   */
+  long distinctCount(int table, int column) {
+    long rows = this.rowCount(table);
+    String keyShape = this.keyShape(table);
+    if ((column == 0 && keyShape.equals("pk_single")) || (column == 1 && keyShape.equals("unique_key"))
+      || column == this.hiddenUniqueColumn(table)) {
+      return rows;
+    }
+    // Mostly low cardinalities, as in real tables, and never unique
+    double ratio = Math.min(0.99, Math.pow(this.unit(table, column), 3));
+    return Math.max(1, Math.min(rows - 1, Math.round(rows * ratio)));
+  }
+
+  LocalDateTime statsDate(int table, int column) {
+    return this.statsTime.minusMinutes((long) (this.unit(table, 2 * this.columns + column) * 3 * 24 * 60));
+  }
+
+  String dataType(int table, int column) {
+    if (column < 2) {
+      return "bigint";
+    }
+    return DATA_TYPES.get((int) (this.unit(table, this.columns + column) * DATA_TYPES.size()));
+  }
+
+  /**
+   * Draws a number in [0, 1) that only depends on the seed, a table and a column (SplitMix64).
+   *
+   * @param table  The index of the table.
+   * @param column The index of the column, or a negative number for a property of the table.
+   * @return The number.
+   */
+  double unit(int table, int column) {
+    long z = this.seed + 0x9E3779B97F4A7C15L * (((long) table << 20) + column + 1);
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (z >>> 11) * 0x1.0p-53;
+  }
+}
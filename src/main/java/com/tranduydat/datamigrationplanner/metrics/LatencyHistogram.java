@@ -0,0 +1,79 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of durations over fixed buckets, in the shape of a Prometheus histogram:
+ * each bucket counts the durations up to its upper bound, and the last bucket has no bound.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class LatencyHistogram {
+  // The upper bounds of the buckets, in milliseconds, ascending
+  private final long[] boundsMillis;
+  // The number of durations in each bucket, not cumulative, plus one for the unbounded bucket
+  private final AtomicLongArray counts;
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * @param boundsMillis The upper bounds of the buckets, in milliseconds, ascending.
+   */
+  public LatencyHistogram(List<Long> boundsMillis) {
+    this.boundsMillis = boundsMillis.stream().mapToLong(Long::longValue).toArray();
+    this.counts = new AtomicLongArray(this.boundsMillis.length + 1);
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos The duration, in nanoseconds.
+   */
+  public void record(long nanos) {
+    int bucket = 0;
+    while (bucket < this.boundsMillis.length && nanos > this.boundsMillis[bucket] * 1_000_000L) {
+      bucket++;
+    }
+    this.counts.incrementAndGet(bucket);
+    this.count.increment();
+    this.sumNanos.add(nanos);
+    this.maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  public long[] getBoundsMillis() {
+    return this.boundsMillis.clone();
+  }
+
+  /**
+   * Gets the number of durations up to the bound of each bucket, the last one being all durations.
+   *
+   * @return The cumulative counts, one more than the bounds.
+   */
+  public long[] getCumulativeCounts() {
+    long[] cumulativeCounts = new long[this.counts.length()];
+    long total = 0;
+    for (int i = 0; i < cumulativeCounts.length; i++) {
+      total += this.counts.get(i);
+      cumulativeCounts[i] = total;
+    }
+    return cumulativeCounts;
+  }
+
+  public long getCount() {
+    return this.count.sum();
+  }
+
+  public long getSumNanos() {
+    return this.sumNanos.sum();
+  }
+
+  public long getMaxNanos() {
+    return this.maxNanos.get();
+  }
+}
@@ -0,0 +1,220 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.model.PhaseMetricsModel;
+import com.tranduydat.datamigrationplanner.model.TableMetricsModel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * To collect the metrics of a run: the latency of each kind of query, the profiling time and speed of the tables,
+ * the time spent waiting for a pooled connection, the strategies used and the duration of each phase.
+ * Recording is lock-free, so it can be called from every worker, except keeping the slowest tables,
+ * which is only done when the metrics are saved.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class Metrics {
+  private static volatile Metrics instance;
+  @Getter
+  private final LocalDateTime startedAt = LocalDateTime.now();
+  private final long startNanos = System.nanoTime();
+  private final Map<QueryType, LatencyHistogram> queryLatencies = new EnumMap<>(QueryType.class);
+  @Getter
+  private final LatencyHistogram tableLatency = new LatencyHistogram(Constant.METRICS_LATENCY_BUCKETS_MILLIS);
+  private final LongAdder tableRows = new LongAdder();
+  private final LongAdder tableMillis = new LongAdder();
+  // The slowest tables so far, the fastest of them first, so that it is the one evicted
+  private final PriorityQueue<TableMetricsModel> slowestTables =
+    new PriorityQueue<>(Comparator.comparingLong(TableMetricsModel::getDurationMillis));
+  // The number of slowest tables to keep, 0 to keep none, e.g. when the metrics are not saved
+  @Setter
+  private volatile int slowestTableLimit = 0;
+  private final ConcurrentLinkedQueue<PhaseMetricsModel> phases = new ConcurrentLinkedQueue<>();
+  private final ConcurrentMap<String, LongAdder> strategyCounts = new ConcurrentHashMap<>();
+  // By pool name, e.g. "dmp-host:port"
+  private final ConcurrentMap<String, LatencyHistogram> poolWaitLatencies = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> poolTimeoutCounts = new ConcurrentHashMap<>();
+
+  private Metrics() {
+    for (QueryType queryType : QueryType.values()) {
+      this.queryLatencies.put(queryType, new LatencyHistogram(Constant.METRICS_LATENCY_BUCKETS_MILLIS));
+    }
+  }
+
+  public static Metrics getInstance() {
+    if (instance == null) {
+      synchronized (Metrics.class) {
+        if (instance == null) {
+          instance = new Metrics();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Starts the metrics over, e.g. between the iterations of a benchmark, so that they do not pile up.
+   */
+  public static synchronized void reset() {
+    instance = new Metrics();
+  }
+
+  /**
+   * Records how long a query took, whether it succeeded or not.
+   *
+   * @param queryType The kind of query.
+   * @param nanos     The duration, in nanoseconds.
+   */
+  public void recordQuery(QueryType queryType, long nanos) {
+    this.queryLatencies.get(queryType).record(nanos);
+  }
+
+  /**
+   * Records a profiled table, and counts its strategy.
+   * The table itself is only kept while it is among the slowest tables.
+   *
+   * @param tableMetrics The metrics of the table.
+   */
+  public void recordTable(TableMetricsModel tableMetrics) {
+    this.tableLatency.record(tableMetrics.getDurationMillis() * 1_000_000L);
+    this.tableRows.add(tableMetrics.getRowCount());
+    this.tableMillis.add(tableMetrics.getDurationMillis());
+    this.recordStrategy(tableMetrics.getStrategy());
+
+    int limit = this.slowestTableLimit;
+    if (limit > 0) {
+      synchronized (this.slowestTables) {
+        this.slowestTables.add(tableMetrics);
+        while (this.slowestTables.size() > limit) {
+          this.slowestTables.poll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts a table that was not profiled, e.g. taken from the cache or the journal.
+   *
+   * @param strategy How the table was handled.
+   */
+  public void recordStrategy(String strategy) {
+    this.strategyCounts.computeIfAbsent(strategy, x -> new LongAdder()).increment();
+  }
+
+  /**
+   * Records how long a phase of the pipeline of a database took.
+   *
+   * @param dbName         The name of the database.
+   * @param phase          The phase, e.g. "read".
+   * @param durationMillis The duration, in milliseconds.
+   */
+  public void recordPhase(String dbName, String phase, long durationMillis) {
+    this.phases.add(new PhaseMetricsModel(dbName, phase, durationMillis));
+  }
+
+  /**
+   * Records how long a connection took to be borrowed from a pool.
+   *
+   * @param poolName The name of the pool.
+   * @param nanos    The wait, in nanoseconds.
+   */
+  public void recordPoolWait(String poolName, long nanos) {
+    this.getPoolWaitLatency(poolName).record(nanos);
+  }
+
+  /**
+   * Counts a connection that could not be borrowed from a pool in time.
+   *
+   * @param poolName The name of the pool.
+   */
+  public void recordPoolTimeout(String poolName) {
+    this.poolTimeoutCounts.computeIfAbsent(poolName, x -> new LongAdder()).increment();
+    // So that a pool with only timeouts is still listed
+    this.getPoolWaitLatency(poolName);
+  }
+
+  private LatencyHistogram getPoolWaitLatency(String poolName) {
+    return this.poolWaitLatencies.computeIfAbsent(poolName, x -> new LatencyHistogram(Constant.METRICS_LATENCY_BUCKETS_MILLIS));
+  }
+
+  public LatencyHistogram getQueryLatency(QueryType queryType) {
+    return this.queryLatencies.get(queryType);
+  }
+
+  /**
+   * Gets the slowest profiled tables, the slowest first.
+   *
+   * @return The metrics of the tables, at most the slowest table limit.
+   */
+  public List<TableMetricsModel> getSlowestTables() {
+    List<TableMetricsModel> sortedTables;
+    synchronized (this.slowestTables) {
+      sortedTables = new ArrayList<>(this.slowestTables);
+    }
+    sortedTables.sort((x, y) -> Long.compare(y.getDurationMillis(), x.getDurationMillis()));
+    return sortedTables;
+  }
+
+  /**
+   * Gets the rows of all profiled tables.
+   *
+   * @return The number of rows.
+   */
+  public long getTableRows() {
+    return this.tableRows.sum();
+  }
+
+  /**
+   * Gets the profiling time of all profiled tables.
+   *
+   * @return The duration, in milliseconds.
+   */
+  public long getTableMillis() {
+    return this.tableMillis.sum();
+  }
+
+  public List<PhaseMetricsModel> getPhases() {
+    return new ArrayList<>(this.phases);
+  }
+
+  public Map<String, Long> getStrategyCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    this.strategyCounts.forEach((strategy, count) -> counts.put(strategy, count.sum()));
+    return counts;
+  }
+
+  public Map<String, LatencyHistogram> getPoolWaitLatencies() {
+    return new TreeMap<>(this.poolWaitLatencies);
+  }
+
+  public Map<String, Long> getPoolTimeoutCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    this.poolTimeoutCounts.forEach((poolName, count) -> counts.put(poolName, count.sum()));
+    return counts;
+  }
+
+  /**
+   * Gets how long the run has taken so far.
+   *
+   * @return The duration, in milliseconds.
+   */
+  public long getElapsedMillis() {
+    return (System.nanoTime() - this.startNanos) / 1_000_000L;
+  }
+}
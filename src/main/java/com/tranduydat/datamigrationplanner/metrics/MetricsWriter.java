@@ -0,0 +1,208 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import com.tranduydat.datamigrationplanner.model.PhaseMetricsModel;
+import com.tranduydat.datamigrationplanner.model.TableMetricsModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.tranduydat.datamigrationplanner.utils.JsonUtil.quote;
+
+/**
+ * This class is responsible for writing the metrics of a run to a JSON file, to compare runs,
+ * and to a Prometheus text-format file, e.g. for the textfile collector of the node exporter.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class MetricsWriter {
+  private static final Logger logger = LogManager.getLogger(MetricsWriter.class);
+  public static final String JSON_FILE_NAME = "dmp_metrics.json";
+  public static final String PROMETHEUS_FILE_NAME = "dmp_metrics.prom";
+
+  /**
+   * Saves the metrics to both files in a directory, which is created if needed.
+   *
+   * @param metricsDir The directory to save the metrics to.
+   * @param metrics    The metrics of the run.
+   * @return true if both files were saved, otherwise false.
+   */
+  public boolean write(String metricsDir, Metrics metrics) {
+    try {
+      Path dir = Files.createDirectories(Paths.get(metricsDir));
+      Files.write(dir.resolve(JSON_FILE_NAME), toJson(metrics).getBytes(StandardCharsets.UTF_8));
+      Files.write(dir.resolve(PROMETHEUS_FILE_NAME), toPrometheus(metrics).getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      logger.error("metrics_dir={},msg=Failed to save metrics,e={}", metricsDir, e.getMessage());
+      return false;
+    }
+    logger.info("metrics_dir={},msg=Saved metrics", metricsDir);
+    return true;
+  }
+
+  /**
+   * Formats the metrics as a JSON document. Durations are in milliseconds, and only the slowest tables are listed,
+   * the slowest first.
+   *
+   * @param metrics The metrics of the run.
+   * @return The JSON document.
+   */
+  static String toJson(Metrics metrics) {
+    StringBuilder json = new StringBuilder("{\n");
+    json.append("  \"started_at\": ").append(quote(metrics.getStartedAt().toString())).append(",\n");
+    json.append("  \"duration_ms\": ").append(metrics.getElapsedMillis()).append(",\n");
+
+    json.append("  \"phases\": [");
+    List<PhaseMetricsModel> phases = metrics.getPhases();
+    for (int i = 0; i < phases.size(); i++) {
+      PhaseMetricsModel x = phases.get(i);
+      json.append(i == 0 ? "\n" : ",\n").append("    {\"db\": ").append(quote(x.getDbName()))
+        .append(", \"phase\": ").append(quote(x.getPhase()))
+        .append(", \"duration_ms\": ").append(x.getDurationMillis()).append("}");
+    }
+    json.append(phases.isEmpty() ? "],\n" : "\n  ],\n");
+
+    json.append("  \"queries\": {");
+    QueryType[] queryTypes = QueryType.values();
+    for (int i = 0; i < queryTypes.length; i++) {
+      json.append(i == 0 ? "\n" : ",\n").append("    ").append(quote(queryTypes[i].getValue())).append(": ")
+        .append(histogramToJson(metrics.getQueryLatency(queryTypes[i])));
+    }
+    json.append("\n  },\n");
+
+    json.append("  \"pool_wait\": {");
+    Map<String, Long> poolTimeoutCounts = metrics.getPoolTimeoutCounts();
+    Iterator<Map.Entry<String, LatencyHistogram>> pools = metrics.getPoolWaitLatencies().entrySet().iterator();
+    while (pools.hasNext()) {
+      Map.Entry<String, LatencyHistogram> pool = pools.next();
+      json.append("\n    ").append(quote(pool.getKey())).append(": {\"timeouts\": ")
+        .append(poolTimeoutCounts.getOrDefault(pool.getKey(), 0L))
+        .append(", \"latency\": ").append(histogramToJson(pool.getValue())).append("}")
+        .append(pools.hasNext() ? "," : "\n  ");
+    }
+    json.append("},\n");
+
+    json.append("  \"strategies\": {");
+    Iterator<Map.Entry<String, Long>> strategies = metrics.getStrategyCounts().entrySet().iterator();
+    while (strategies.hasNext()) {
+      Map.Entry<String, Long> strategy = strategies.next();
+      json.append(quote(strategy.getKey())).append(": ").append(strategy.getValue()).append(strategies.hasNext() ? ", " : "");
+    }
+    json.append("},\n");
+
+    List<TableMetricsModel> tables = metrics.getSlowestTables();
+    long totalRows = metrics.getTableRows();
+    long totalMillis = metrics.getTableMillis();
+    json.append("  \"table_latency\": ").append(histogramToJson(metrics.getTableLatency())).append(",\n");
+    json.append("  \"rows\": ").append(totalRows).append(",\n");
+    json.append("  \"rows_per_second\": ").append(formatNumber(totalMillis > 0 ? totalRows * 1000.0 / totalMillis : 0)).append(",\n");
+    json.append("  \"slowest_tables\": [");
+    for (int i = 0; i < tables.size(); i++) {
+      TableMetricsModel x = tables.get(i);
+      json.append(i == 0 ? "\n" : ",\n").append("    {\"db\": ").append(quote(x.getDbName()))
+        .append(", \"table\": ").append(quote(x.getTableKey()))
+        .append(", \"strategy\": ").append(quote(x.getStrategy()))
+        .append(", \"duration_ms\": ").append(x.getDurationMillis())
+        .append(", \"rows\": ").append(x.getRowCount())
+        .append(", \"rows_per_second\": ").append(formatNumber(x.getRowsPerSecond())).append("}");
+    }
+    json.append(tables.isEmpty() ? "]\n" : "\n  ]\n");
+    return json.append("}\n").toString();
+  }
+
+  /**
+   * Formats the metrics in the Prometheus text format. Durations are in seconds, as Prometheus recommends.
+   *
+   * @param metrics The metrics of the run.
+   * @return The metrics, one sample per line.
+   */
+  static String toPrometheus(Metrics metrics) {
+    StringBuilder prom = new StringBuilder();
+    prom.append("# HELP dmp_run_duration_seconds How long the run took.\n")
+      .append("# TYPE dmp_run_duration_seconds gauge\n")
+      .append("dmp_run_duration_seconds ").append(formatNumber(metrics.getElapsedMillis() / 1000.0)).append("\n");
+
+    prom.append("# HELP dmp_phase_duration_seconds How long each phase of the pipeline of a database took.\n")
+      .append("# TYPE dmp_phase_duration_seconds gauge\n");
+    for (PhaseMetricsModel x : metrics.getPhases()) {
+      prom.append("dmp_phase_duration_seconds{db=").append(label(x.getDbName())).append(",phase=").append(label(x.getPhase()))
+        .append("} ").append(formatNumber(x.getDurationMillis() / 1000.0)).append("\n");
+    }
+
+    prom.append("# HELP dmp_query_duration_seconds The latency of the queries, by kind.\n")
+      .append("# TYPE dmp_query_duration_seconds histogram\n");
+    for (QueryType queryType : QueryType.values()) {
+      appendHistogram(prom, "dmp_query_duration_seconds", "type=" + label(queryType.getValue()), metrics.getQueryLatency(queryType));
+    }
+
+    prom.append("# HELP dmp_table_duration_seconds The profiling time of the tables.\n")
+      .append("# TYPE dmp_table_duration_seconds histogram\n");
+    appendHistogram(prom, "dmp_table_duration_seconds", null, metrics.getTableLatency());
+
+    // No series per table, which would be as many as the tables; the slowest tables are in the JSON file
+    prom.append("# HELP dmp_table_rows_total The rows of the profiled tables.\n")
+      .append("# TYPE dmp_table_rows_total counter\n")
+      .append("dmp_table_rows_total ").append(metrics.getTableRows()).append("\n");
+
+    prom.append("# HELP dmp_pool_wait_seconds The time spent waiting for a pooled connection, by pool.\n")
+      .append("# TYPE dmp_pool_wait_seconds histogram\n");
+    metrics.getPoolWaitLatencies().forEach((poolName, histogram) ->
+      appendHistogram(prom, "dmp_pool_wait_seconds", "pool=" + label(poolName), histogram));
+    prom.append("# HELP dmp_pool_timeouts_total The connections that could not be borrowed in time, by pool.\n")
+      .append("# TYPE dmp_pool_timeouts_total counter\n");
+    metrics.getPoolTimeoutCounts().forEach((poolName, count) ->
+      prom.append("dmp_pool_timeouts_total{pool=").append(label(poolName)).append("} ").append(count).append("\n"));
+
+    prom.append("# HELP dmp_strategy_tables_total The tables handled by each strategy.\n")
+      .append("# TYPE dmp_strategy_tables_total counter\n");
+    metrics.getStrategyCounts().forEach((strategy, count) ->
+      prom.append("dmp_strategy_tables_total{strategy=").append(label(strategy)).append("} ").append(count).append("\n"));
+    return prom.toString();
+  }
+
+  private static String histogramToJson(LatencyHistogram histogram) {
+    StringBuilder json = new StringBuilder("{\"count\": ").append(histogram.getCount())
+      .append(", \"sum_ms\": ").append(formatNumber(histogram.getSumNanos() / 1e6))
+      .append(", \"max_ms\": ").append(formatNumber(histogram.getMaxNanos() / 1e6))
+      .append(", \"buckets\": {");
+    long[] boundsMillis = histogram.getBoundsMillis();
+    long[] cumulativeCounts = histogram.getCumulativeCounts();
+    for (int i = 0; i < cumulativeCounts.length; i++) {
+      json.append(i == 0 ? "" : ", ").append(quote(i < boundsMillis.length ? "le_" + boundsMillis[i] : "le_inf"))
+        .append(": ").append(cumulativeCounts[i]);
+    }
+    return json.append("}}").toString();
+  }
+
+  private static void appendHistogram(StringBuilder prom, String name, String labels, LatencyHistogram histogram) {
+    String prefix = labels == null ? "" : labels + ",";
+    long[] boundsMillis = histogram.getBoundsMillis();
+    long[] cumulativeCounts = histogram.getCumulativeCounts();
+    for (int i = 0; i < cumulativeCounts.length; i++) {
+      String bound = i < boundsMillis.length ? formatNumber(boundsMillis[i] / 1000.0) : "+Inf";
+      prom.append(name).append("_bucket{").append(prefix).append("le=\"").append(bound).append("\"} ")
+        .append(cumulativeCounts[i]).append("\n");
+    }
+    String suffix = labels == null ? " " : "{" + labels + "} ";
+    prom.append(name).append("_sum").append(suffix).append(formatNumber(histogram.getSumNanos() / 1e9)).append("\n");
+    prom.append(name).append("_count").append(suffix).append(histogram.getCount()).append("\n");
+  }
+
+  private static String formatNumber(double value) {
+    return String.format(Locale.ROOT, "%.6f", value).replaceAll("\\.?0+$", "");
+  }
+
+  private static String label(String value) {
+    return "\"" + String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+  }
+}
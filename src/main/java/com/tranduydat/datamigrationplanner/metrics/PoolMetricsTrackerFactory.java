@@ -0,0 +1,30 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * To feed the time spent waiting for a connection of each HikariCP pool into the metrics of the run
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+  @Override
+  public IMetricsTracker create(String poolName, PoolStats poolStats) {
+    Metrics metrics = Metrics.getInstance();
+    return new IMetricsTracker() {
+      @Override
+      public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        metrics.recordPoolWait(poolName, elapsedAcquiredNanos);
+      }
+
+      @Override
+      public void recordConnectionTimeout() {
+        metrics.recordPoolTimeout(poolName);
+      }
+    };
+  }
+}
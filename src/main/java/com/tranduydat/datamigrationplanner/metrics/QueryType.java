@@ -0,0 +1,31 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import lombok.Getter;
+
+/**
+ * The kinds of queries whose latency is measured
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public enum QueryType {
+  // Set-based queries on the catalog views, e.g. columns, keys and row counts of all tables
+  CATALOG("catalog"),
+  // `COUNT(*)` of a table
+  COUNT("count"),
+  // (Approximate) distinct counts of one or more columns, on a table or on a sample of it
+  DISTINCT("distinct"),
+  // Statistics headers and density vectors
+  STATS("stats"),
+  // Min/max, histograms and boundaries of split columns
+  SPLIT("split");
+
+  // The value used in metrics labels
+  @Getter
+  private final String value;
+
+  QueryType(String value) {
+    this.value = value;
+  }
+}
@@ -0,0 +1,79 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * To store the metadata of all tables in a database, loaded once before profiling.
+ * All maps are keyed by "[schema].[table]".
+ * It is only read by the profiling workers after being loaded.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@Builder
+public class CatalogModel {
+  @Getter
+  @Setter
+  private Map<String, List<ColumnModel>> columnsByTable;
+  @Getter
+  @Setter
+  private Map<String, List<String>> primaryKeysByTable;
+  @Getter
+  @Setter
+  private Map<String, List<UniqueKeyModel>> uniqueKeysByTable;
+
+  /**
+   * Gets the columns of a table, ordered by their position.
+   *
+   * @param tableKey The key of the table, "[schema].[table]".
+   * @return The list of columns, empty if the table is unknown.
+   */
+  public List<ColumnModel> getColumns(String tableKey) {
+    return columnsByTable.getOrDefault(tableKey, Collections.emptyList());
+  }
+
+  /**
+   * Gets the (composite) primary keys of a table, ordered by their position in the key.
+   *
+   * @param tableKey The key of the table, "[schema].[table]".
+   * @return The list of primary keys, empty if the table has none.
+   */
+  public List<String> getPrimaryKeys(String tableKey) {
+    return new ArrayList<>(primaryKeysByTable.getOrDefault(tableKey, Collections.emptyList()));
+  }
+
+  /**
+   * Gets the single-column unique keys of a table, the preferred one first.
+   *
+   * @param tableKey The key of the table, "[schema].[table]".
+   * @return The list of unique keys, empty if the table has none.
+   */
+  public List<UniqueKeyModel> getUniqueKeys(String tableKey) {
+    return uniqueKeysByTable.getOrDefault(tableKey, Collections.emptyList());
+  }
+
+  /**
+   * Gets the data type of a column.
+   *
+   * @param tableKey   The key of the table, "[schema].[table]".
+   * @param columnName The name of the column.
+   * @return The data type, null if the column is unknown.
+   */
+  public String getDataType(String tableKey, String columnName) {
+    return getColumns(tableKey).stream()
+      .filter(column -> column.getColumnName().equals(columnName))
+      .map(ColumnModel::getDataType)
+      .findFirst()
+      .orElse(null);
+  }
+}
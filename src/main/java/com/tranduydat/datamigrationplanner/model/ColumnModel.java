@@ -0,0 +1,39 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+/**
+ * To store column info
+ * TableModel -> ColumnModel
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class ColumnModel {
+  @Setter
+  @Getter
+  private String columnName;
+  // The SQL Server data type, e.g. `int`, `nvarchar`, `ntext`
+  @Setter
+  @Getter
+  private String dataType;
+  @Setter
+  @Getter
+  private boolean nullable;
+  // The max length in bytes, -1 for `(max)` types
+  @Setter
+  @Getter
+  private int maxLength;
+  @Setter
+  @Getter
+  private boolean identity;
+  // Whether the column is the first key column of any index
+  @Setter
+  @Getter
+  private boolean leadingIndexKey;
+}
@@ -0,0 +1,38 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * To store the statistics object that a column leads
+ * TableModel -> ColumnStatsModel
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class ColumnStatsModel {
+  @Setter
+  @Getter
+  private String statsName;
+  // The leading column of the statistics
+  @Setter
+  @Getter
+  private String columnName;
+  // The number of rows in the table when the statistics were last updated
+  @Setter
+  @Getter
+  private long rows;
+  @Setter
+  @Getter
+  private LocalDateTime lastUpdated;
+  // The number of modifications of the leading column since the statistics were last updated
+  @Setter
+  @Getter
+  private long modificationCounter;
+}
@@ -21,6 +21,7 @@ public class DbModel {
   @Getter
   @Setter
   private String dbName;
+  // Filled concurrently by the profiling workers, so it must be a thread-safe map
   @Getter
   @Setter
   private Map<String, TableModel> tableMap;
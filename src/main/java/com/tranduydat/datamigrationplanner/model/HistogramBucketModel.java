@@ -0,0 +1,29 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+/**
+ * To store a bucket of a value histogram of a column,
+ * with values converted to numbers so they can be compared with the split ranges of Sqoop
+ * SplitStatsModel -> HistogramBucketModel
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class HistogramBucketModel {
+  @Setter
+  @Getter
+  private double lowValue;
+  @Setter
+  @Getter
+  private double highValue;
+  // The number of rows with a value in [lowValue, highValue]
+  @Setter
+  @Getter
+  private long rows;
+}
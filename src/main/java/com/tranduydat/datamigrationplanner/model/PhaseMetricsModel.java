@@ -0,0 +1,27 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+/**
+ * To store how long a phase of the pipeline of a database took
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class PhaseMetricsModel {
+  @Setter
+  @Getter
+  private String dbName;
+  // The phase, e.g. "read", "make", "write", "stream" or "boundaries"
+  @Setter
+  @Getter
+  private String phase;
+  @Setter
+  @Getter
+  private long durationMillis;
+}
@@ -0,0 +1,44 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * To store how the plan of a table changed since the previous plan
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class PlanChangeModel {
+  // "added", "removed" or "changed"
+  @Setter
+  @Getter
+  private String change;
+  @Setter
+  @Getter
+  private String tableName;
+  // The split columns in the previous and the new plan, null if the table is not in that plan
+  @Setter
+  @Getter
+  private String previousUniqueColumn;
+  @Setter
+  @Getter
+  private String uniqueColumn;
+  // The row counts in the previous and the new plan, -1 if unknown
+  @Setter
+  @Getter
+  private long previousRowCount;
+  @Setter
+  @Getter
+  private long rowCount;
+  // What changed, "split_column" and/or "row_count", null if added or removed
+  @Setter
+  @Getter
+  private List<String> changedFields;
+}
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 /**
  * To store plan detail info
  *
@@ -18,10 +20,28 @@ public class PlanDetailModel {
   @Getter
   @Setter
   private String tableName;
+  // The row count of the table
   @Getter
   @Setter
-  private TableModel tableModel;
+  private long rowCount;
   @Getter
   @Setter
   private String uniqueColumn;
+  // Why the unique column was chosen, e.g. "primary_key=PK_Orders", "distinct_count", "none"
+  @Getter
+  @Setter
+  private String reason;
+  // The split score of the unique column, -1 if it was not scored
+  @Getter
+  @Setter
+  private double splitScore;
+  // How evenly the unique column splits the table, null if it was not scored
+  @Getter
+  @Setter
+  private SplitStatsModel splitStats;
+  // The split boundaries as SQL literals: the min value, the cut points if any, then the max value.
+  // Null if they were not computed
+  @Getter
+  @Setter
+  private List<String> splitBoundaries;
 }
@@ -0,0 +1,31 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * To store the profile of a table in the profile cache
+ * ProfileCache -> ProfileCacheEntryModel
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProfileCacheEntryModel implements Serializable {
+  private static final long serialVersionUID = 1L;
+  @Setter
+  @Getter
+  private TableFingerprintModel fingerprint;
+  @Setter
+  @Getter
+  private TableModel tableModel;
+  // When the table was profiled
+  @Setter
+  @Getter
+  private LocalDateTime profiledAt;
+}
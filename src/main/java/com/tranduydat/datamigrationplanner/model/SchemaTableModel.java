@@ -20,4 +20,12 @@ public class SchemaTableModel {
   @Setter
   @Getter
   private String tableName;
+  // The number of rows from the catalog, which is not transactionally exact
+  @Setter
+  @Getter
+  private long rowCount;
+  // The number of used pages of the heap or clustered index, which is what a scan reads
+  @Setter
+  @Getter
+  private long pageCount;
 }
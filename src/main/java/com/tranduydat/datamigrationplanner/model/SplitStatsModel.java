@@ -0,0 +1,50 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * To store how well a unique column splits a table into Sqoop mappers
+ * TableModel -> SplitStatsModel
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class SplitStatsModel implements Serializable {
+  private static final long serialVersionUID = 1L;
+  @Setter
+  @Getter
+  private String columnName;
+  @Setter
+  @Getter
+  private String dataType;
+  // The min and max values as returned by the server, null if unknown
+  @Setter
+  @Getter
+  private String minValue;
+  @Setter
+  @Getter
+  private String maxValue;
+  // The min and max values converted to numbers in the way Sqoop splits them
+  @Setter
+  @Getter
+  private double minNumber;
+  @Setter
+  @Getter
+  private double maxNumber;
+  // The share of rows of an average mapper over the share of rows of the busiest mapper,
+  // from 1 (all mappers get the same number of rows) down to 1 / number of mappers
+  @Setter
+  @Getter
+  private double balance;
+  // The balance weighted by how well Sqoop splits the data type, the higher the better
+  @Setter
+  @Getter
+  private double score;
+}
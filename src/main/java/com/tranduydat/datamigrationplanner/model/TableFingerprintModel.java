@@ -0,0 +1,35 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * To store what tells whether a table changed since it was profiled
+ * ProfileCacheEntryModel -> TableFingerprintModel
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+@EqualsAndHashCode
+public class TableFingerprintModel implements Serializable {
+  private static final long serialVersionUID = 1L;
+  // The last time the table was altered, from `sys.tables.modify_date`
+  @Setter
+  @Getter
+  private LocalDateTime modifyDate;
+  // The number of rows from the partitions of the heap or clustered index
+  @Setter
+  @Getter
+  private long rowCount;
+  // The last time any statistics of the table were updated, null if never
+  @Setter
+  @Getter
+  private LocalDateTime statsDate;
+}
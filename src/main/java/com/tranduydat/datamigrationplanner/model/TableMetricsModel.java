@@ -0,0 +1,44 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+/**
+ * To store how long a table took to be profiled, and how
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class TableMetricsModel {
+  @Setter
+  @Getter
+  private String dbName;
+  // The key of the table, "[schema].[table]"
+  @Setter
+  @Getter
+  private String tableKey;
+  // How the table was profiled, e.g. "single_scan", "unique_key", "cached" or "fallback_table_timeout"
+  @Setter
+  @Getter
+  private String strategy;
+  @Setter
+  @Getter
+  private long durationMillis;
+  // The number of rows of the table
+  @Setter
+  @Getter
+  private long rowCount;
+
+  /**
+   * Gets the number of rows of the table profiled per second.
+   *
+   * @return The rows per second, or 0 if the table took no measurable time.
+   */
+  public double getRowsPerSecond() {
+    return this.durationMillis > 0 ? this.rowCount * 1000.0 / this.durationMillis : 0;
+  }
+}
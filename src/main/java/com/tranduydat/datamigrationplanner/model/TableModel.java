@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,20 +21,83 @@ import java.util.Map;
  */
 @AllArgsConstructor
 @Builder
-public class TableModel {
+public class TableModel implements Serializable {
+  private static final long serialVersionUID = 4L;
+  // The names of the columns in ordinal order
   @Getter
   @Setter
-  private Map<String, Integer> columnWithCount;
+  private String[] columnNames;
+  // The distinct count of each column, at the ordinal of its name, -1 if it was not counted
   @Getter
   @Setter
-  private int totalCount;
+  private long[] distinctCounts;
+  @Getter
+  @Setter
+  private long totalCount;
   @Getter
   @Setter
   private List<String> primaryKeys;
+  // The single-column unique key of the table, null if it has none
+  @Getter
+  @Setter
+  private UniqueKeyModel uniqueKey;
+  // How evenly each unique column splits the table, only when split columns are scored
+  @Getter
+  @Setter
+  private Map<String, SplitStatsModel> splitStatsByColumn;
+  // Why the table was not profiled as configured, e.g. "table_timeout", null if it was
+  @Getter
+  @Setter
+  private String fallback;
+  // Whether the distinct counts were estimated from statistics instead of counted
+  @Getter
+  @Setter
+  private boolean estimated;
+  // Whether the row count or the distinct count of a column failed, so the profile must not be reused by a later run
+  @Getter
+  @Setter
+  private boolean incomplete;
 
   public TableModel() {
-    this.columnWithCount = new HashMap<>();
+    this.columnNames = new String[0];
+    this.distinctCounts = new long[0];
     this.totalCount = 0;
     this.primaryKeys = new ArrayList<>();
+    this.uniqueKey = null;
+    this.splitStatsByColumn = new HashMap<>();
+    this.fallback = null;
+    this.estimated = false;
+    this.incomplete = false;
+  }
+
+  /**
+   * Gets the distinct count of a column.
+   *
+   * @param columnName The name of the column.
+   * @return The distinct count, -1 if the column was not counted.
+   */
+  public long getDistinctCount(String columnName) {
+    for (int i = 0; i < columnNames.length; i++) {
+      if (columnNames[i].equals(columnName)) {
+        return distinctCounts[i];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Lays out the distinct counts of columns at the ordinals of their names.
+   *
+   * @param columnNames     The names of the columns in ordinal order.
+   * @param columnWithCount The map of each counted column and its distinct count, negative or null if its count failed.
+   * @return The distinct counts, -1 for the columns that were not counted or whose count failed.
+   */
+  public static long[] toDistinctCounts(String[] columnNames, Map<String, Long> columnWithCount) {
+    long[] distinctCounts = new long[columnNames.length];
+    for (int i = 0; i < columnNames.length; i++) {
+      Long distinctCount = columnWithCount.get(columnNames[i]);
+      distinctCounts[i] = distinctCount != null && distinctCount >= 0 ? distinctCount : -1;
+    }
+    return distinctCounts;
   }
 }
@@ -0,0 +1,39 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+/**
+ * To store a database to be planned and where its plan is saved
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class TargetModel {
+  @Setter
+  @Getter
+  private String host;
+  @Setter
+  @Getter
+  private int port;
+  @Setter
+  @Getter
+  private String dbName;
+  // The file path to save the plan of the database
+  @Setter
+  @Getter
+  private String savePath;
+
+  /**
+   * Gets the key of the SQL Server instance of the database, "host:port".
+   *
+   * @return The key of the instance.
+   */
+  public String getInstanceKey() {
+    return this.host + ":" + this.port;
+  }
+}
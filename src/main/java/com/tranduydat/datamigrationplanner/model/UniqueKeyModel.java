@@ -0,0 +1,33 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * To store a single-column unique key of a table,
+ * which is a primary key, a unique constraint or a unique index
+ * TableModel -> UniqueKeyModel
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class UniqueKeyModel implements Serializable {
+  private static final long serialVersionUID = 1L;
+  @Setter
+  @Getter
+  private String columnName;
+  // The name of the index backing the key
+  @Setter
+  @Getter
+  private String indexName;
+  // "primary_key", "unique_constraint" or "unique_index"
+  @Setter
+  @Getter
+  private String keyType;
+}
@@ -0,0 +1,133 @@
+package com.tranduydat.datamigrationplanner.pipeline;
+
+import com.tranduydat.datamigrationplanner.config.Config;
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.db.connection.MsSqlServerConnection;
+import com.tranduydat.datamigrationplanner.db.source.MetadataSource;
+import com.tranduydat.datamigrationplanner.db.source.MsSqlServerSource;
+import com.tranduydat.datamigrationplanner.db.source.SyntheticSource;
+import com.tranduydat.datamigrationplanner.metrics.Metrics;
+import com.tranduydat.datamigrationplanner.metrics.MetricsWriter;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.task.ConcurrencyController;
+import com.tranduydat.datamigrationplanner.task.TaskScheduler;
+import com.tranduydat.datamigrationplanner.utils.DateTimeUtil;
+import lombok.AllArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The pipeline for planning a batch of databases, over one or more instances, at once.
+ * Each database runs its own MakingPlanPipeline, and all of them share
+ * one connection pool per instance and one task scheduler.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+@AllArgsConstructor
+public class BatchPlanningPipeline implements Runnable {
+  private static final org.apache.logging.log4j.Logger logger = LogManager.getLogger(BatchPlanningPipeline.class);
+  private final Config config = Config.getInstance();
+  // The databases to plan
+  private final List<TargetModel> targets;
+
+  @Override
+  public void run() {
+    // Print out DMP logo and job info
+    showJobInfo();
+
+    long startTime, endTime;
+    startTime = System.currentTimeMillis();
+    // The slowest tables are only kept to be saved
+    if (config.getMetricsDir() != null) {
+      Metrics.getInstance().setSlowestTableLimit(Constant.METRICS_SLOWEST_TABLES);
+    }
+
+    MetadataSource source = config.getSyntheticSource() != null
+      ? SyntheticSource.fromSpec(config.getSyntheticSource())
+      : new MsSqlServerSource();
+    if (!source.isLive()) {
+      logger.warn("synthetic_source={},msg=Planning a synthetic database instead of the targets", config.getSyntheticSource());
+    }
+
+    // One pool per instance: the table tasks take at most `cp_max_size` connections,
+    // each database being planned keeps one more for its catalog queries,
+    // and the adaptive concurrency one more for its probe, so a task never waits on the pool.
+    Map<String, Integer> countDbByInstance = new LinkedHashMap<>();
+    for (TargetModel target : targets) {
+      countDbByInstance.merge(target.getInstanceKey(), 1, Integer::sum);
+    }
+    // A synthetic database needs no connection
+    if (source.isLive()) {
+      for (TargetModel target : targets) {
+        MsSqlServerConnection.getInstance(target.getHost(), target.getPort(),
+          config.getCpMaxSize() + countDbByInstance.get(target.getInstanceKey()) + (config.isAdaptiveConcurrency() ? 1 : 0));
+      }
+    }
+    int parallelism = config.getMaxParallelism() > 0
+      ? config.getMaxParallelism()
+      : config.getCpMaxSize() * countDbByInstance.size();
+    TaskScheduler scheduler = new TaskScheduler(parallelism, config.getCpMaxSize(), config.getMaxHeavyScans());
+
+    // Each instance gets its own controller, as each server has its own load
+    List<ConcurrencyController> controllers = new ArrayList<>();
+    if (config.isAdaptiveConcurrency() && source.isLive()) {
+      Map<String, TargetModel> targetByInstance = new LinkedHashMap<>();
+      targets.forEach(target -> targetByInstance.putIfAbsent(target.getInstanceKey(), target));
+      for (TargetModel target : targetByInstance.values()) {
+        ConcurrencyController controller = new ConcurrencyController(target.getHost(), target.getPort(), scheduler);
+        controller.start();
+        controllers.add(controller);
+      }
+    }
+
+    // Each database is planned by its own thread, which only waits on its table tasks
+    List<Thread> threads = new ArrayList<>(targets.size());
+    for (TargetModel target : targets) {
+      Thread thread = new Thread(new MakingPlanPipeline(target, scheduler, source), "dmp-" + target.getDbName() + "-pipeline");
+      thread.start();
+      threads.add(thread);
+    }
+    try {
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.fatal("msg=Interrupted while planning databases");
+    } finally {
+      controllers.forEach(ConcurrencyController::stop);
+      scheduler.shutdown();
+      MsSqlServerConnection.closeAll();
+    }
+
+    endTime = System.currentTimeMillis();
+    logger.info("count_db={},count_instance={},BatchPlanningProcess time: {} ms\n",
+      targets.size(), countDbByInstance.size(), endTime - startTime);
+
+    if (config.getMetricsDir() != null) {
+      new MetricsWriter().write(config.getMetricsDir(), Metrics.getInstance());
+    }
+  }
+
+  /**
+   * Prints the ASCII logo and job information.
+   */
+  private void showJobInfo() {
+    logger.info("\n" + Constant.ASCII_LOGO);
+
+    StringBuilder jobInfoMsg = new StringBuilder("\nStart at: " + DateTimeUtil.getCurrentTime());
+    for (TargetModel target : targets) {
+      jobInfoMsg.append("\n- Target: ").append(target.getInstanceKey()).append("/").append(target.getDbName());
+    }
+    jobInfoMsg.append("\n- Max connections size: ").append(config.getCpMaxSize())
+      .append("\n- Min idle connection: ").append(config.getCpMinIdle())
+      .append("\n");
+    logger.info(jobInfoMsg.toString());
+  }
+}
@@ -1,29 +1,51 @@
 package com.tranduydat.datamigrationplanner.pipeline;
 
+import com.tranduydat.datamigrationplanner.config.BoundaryMode;
 import com.tranduydat.datamigrationplanner.config.Config;
 import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.db.source.MetadataSource;
+import com.tranduydat.datamigrationplanner.metrics.Metrics;
 import com.tranduydat.datamigrationplanner.model.DbModel;
 import com.tranduydat.datamigrationplanner.model.PlanModel;
+import com.tranduydat.datamigrationplanner.model.TableModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.task.BoundaryReader;
 import com.tranduydat.datamigrationplanner.task.DbReader;
 import com.tranduydat.datamigrationplanner.task.MakingPlanProcessor;
+import com.tranduydat.datamigrationplanner.task.PlanDiff;
+import com.tranduydat.datamigrationplanner.task.PlanStreamWriter;
 import com.tranduydat.datamigrationplanner.task.PlanWriter;
+import com.tranduydat.datamigrationplanner.task.ProfileJournal;
+import com.tranduydat.datamigrationplanner.task.TaskScheduler;
 import com.tranduydat.datamigrationplanner.utils.DateTimeUtil;
-import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
- * The pipeline for generating and saving a plan.
+ * The pipeline for generating and saving the plan of a database.
  *
  * @author Dat Tran (dattd6)
  * @version 0.1
  * @since 2023/07/13
  */
-@NoArgsConstructor
+@AllArgsConstructor
 public class MakingPlanPipeline implements Runnable {
   private static final org.apache.logging.log4j.Logger logger = LogManager.getLogger(MakingPlanPipeline.class);
   private final Config config = Config.getInstance();
+  // The database to plan
+  private final TargetModel target;
+  // The scheduler shared by all databases being planned
+  private final TaskScheduler scheduler;
+  // Where the metadata of the database is read from
+  private final MetadataSource source;
 
   /**
    * Generates the plan model based on the database model.
@@ -37,29 +59,112 @@ public class MakingPlanPipeline implements Runnable {
     MakingPlanProcessor processor = new MakingPlanProcessor();
     PlanModel planModel = processor.makeAndGet(dbModel);
     endTime = System.currentTimeMillis();
-    logger.info("MakingPlanProcess time: " + (endTime - startTime) + " ms\n");
+    Metrics.getInstance().recordPhase(dbModel.getDbName(), "make", endTime - startTime);
+    logger.info("db=" + dbModel.getDbName() + ",MakingPlanProcess time: " + (endTime - startTime) + " ms\n");
     return planModel;
   }
 
   @Override
   public void run() {
-    // Print out DMP logo and job info
+    // Print out job info
     showJobInfo();
 
     try {
-      // Step 1: Database Reading
-      DbModel dbModel = read();
+      PlanModel planModel;
+      if (config.isStreaming()) {
+        // Step 1-3: Database Reading, Plan Processing and Plan Saving, table by table
+        planModel = stream();
+      } else {
+        // Step 1: Database Reading
+        DbModel dbModel = read();
 
-      // Step 2: Plan Processing
-      PlanModel planModel = make(dbModel);
+        // Step 2: Plan Processing
+        planModel = make(dbModel);
 
-      // Step 3: Plan Saving
-      write(planModel);
+        // Step 3: Plan Saving
+        write(planModel);
+      }
+
+      // Step 4: Split Boundaries (optional)
+      if (config.getBoundaryMode() != BoundaryMode.NONE) {
+        writeBoundaries(planModel);
+      }
     } catch (SQLException e) {
-      logger.fatal("Failed to get MS SQL Server connection");
+      logger.fatal("db={},instance={},msg=Failed to get MS SQL Server connection,e={}",
+        target.getDbName(), target.getInstanceKey(), e.getMessage());
     }
   }
 
+  /**
+   * Reads, plans and writes the tables one by one: each table model goes through a bounded queue
+   * to a writer thread, which plans it and appends it to the plan file, so no table model is kept once it is planned.
+   * If a table cannot be queued, or the reading fails, the plan is discarded.
+   *
+   * @return The plan model, with details only if the split boundaries are needed.
+   * @throws SQLException if there is an error in getting the MS SQL Server connection.
+   */
+  private PlanModel stream() throws SQLException {
+    long startTime, endTime;
+    startTime = System.currentTimeMillis();
+    BlockingQueue<Map.Entry<String, TableModel>> queue = new ArrayBlockingQueue<>(Math.max(1, config.getStreamQueueSize()));
+    // Loaded before the new plan replaces it
+    PlanDiff diff = loadPreviousPlan();
+    PlanStreamWriter streamWriter = new PlanStreamWriter(queue, target, config.getPlanFormat(), Constant.DELIMITER,
+      config.getBoundaryMode() != BoundaryMode.NONE, diff);
+    Thread writerThread = new Thread(streamWriter, "dmp-" + target.getDbName() + "-writer");
+    writerThread.start();
+
+    boolean read = false;
+    try {
+      new DbReader(source).read(target, scheduler, (tableKey, tableModel) -> {
+        try {
+          queue.put(new AbstractMap.SimpleImmutableEntry<>(tableKey, tableModel));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          streamWriter.abort();
+          throw new IllegalStateException("Interrupted while queuing table " + tableKey, e);
+        }
+      });
+      read = true;
+    } finally {
+      // A plan missing tables is never committed
+      if (!read) {
+        streamWriter.abort();
+      }
+      // The writer always drains the queue, so the end marker always gets in
+      boolean interrupted = false;
+      boolean ended = false;
+      while (!ended || writerThread.isAlive()) {
+        try {
+          if (!ended) {
+            queue.put(PlanStreamWriter.END);
+            ended = true;
+          }
+          writerThread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (streamWriter.isSucceeded()) {
+      // The plan is saved, so there is nothing left to resume
+      ProfileJournal.delete(ProfileJournal.pathOf(target.getSavePath()));
+    }
+    writeDiff(diff, streamWriter.isSucceeded());
+    endTime = System.currentTimeMillis();
+    Metrics.getInstance().recordPhase(target.getDbName(), "stream", endTime - startTime);
+    logger.info("db=" + target.getDbName() + ",StreamingPlanProcess time: " + (endTime - startTime) + " ms\n");
+    return PlanModel.builder()
+      .dbName(target.getDbName())
+      .numberOfTables(streamWriter.getNumberOfTables())
+      .details(streamWriter.getDetails())
+      .build();
+  }
+
   /**
    * Writes the plan model to a file.
    *
@@ -68,11 +173,77 @@ public class MakingPlanPipeline implements Runnable {
   private void write(PlanModel planModel) {
     long startTime, endTime;
     startTime = System.currentTimeMillis();
-    PlanWriter writer = new PlanWriter();
+    // Loaded before the new plan replaces it
+    PlanDiff diff = loadPreviousPlan();
     // Write plan to a file (read from args)
-    writer.write(config.getSavePath(), planModel, Constant.DELIMITER);
+    boolean committed = PlanWriter.write(target.getSavePath(), planModel, config.getPlanFormat(), Constant.DELIMITER, target);
+    if (committed) {
+      // The plan is saved, so there is nothing left to resume
+      ProfileJournal.delete(ProfileJournal.pathOf(target.getSavePath()));
+      if (diff != null) {
+        planModel.getDetails().forEach(diff::add);
+      }
+    }
+    writeDiff(diff, committed);
+    endTime = System.currentTimeMillis();
+    Metrics.getInstance().recordPhase(target.getDbName(), "write", endTime - startTime);
+    logger.info("db=" + target.getDbName() + ",SavingPlanProcess time: " + (endTime - startTime) + " ms\n");
+  }
+
+  /**
+   * Saves the changes of the new plan to `<save_path>.diff`, or deletes the diff of an older plan
+   * when the new plan or its diff could not be saved.
+   *
+   * @param diff      The diff against the previous plan, null if no plan diff is asked for.
+   * @param committed Whether the new plan was saved.
+   */
+  private void writeDiff(PlanDiff diff, boolean committed) {
+    if (diff == null) {
+      return;
+    }
+    String diffPath = target.getSavePath() + ".diff";
+    if (!committed || !diff.write(diffPath, config.getPlanFormat(), Constant.DELIMITER)) {
+      PlanDiff.delete(diffPath);
+    }
+  }
+
+  /**
+   * Loads the plan at the save path, to save the changes of the new plan since it.
+   *
+   * @return The diff against the previous plan, or null if no plan diff is asked for or it cannot be made.
+   */
+  private PlanDiff loadPreviousPlan() {
+    if (!config.isPlanDiff()) {
+      return null;
+    }
+    if (config.getPlanFormat() == PlanFormat.SQOOP) {
+      logger.warn("db={},msg=No plan diff for Sqoop options files, each of which is only replaced when it is written",
+        target.getDbName());
+      return null;
+    }
+    try {
+      return PlanDiff.load(target.getSavePath(), config.getPlanFormat(), Constant.DELIMITER, config.getDiffRowCountShift());
+    } catch (IOException | RuntimeException e) {
+      logger.error("db={},save_file_path={},msg=Failed to load previous plan, no plan diff,e={}",
+        target.getDbName(), target.getSavePath(), e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Computes the split boundaries of the plan and writes them next to the plan file.
+   *
+   * @param planModel The plan model.
+   * @throws SQLException if there is an error in getting the MS SQL Server connection.
+   */
+  private void writeBoundaries(PlanModel planModel) throws SQLException {
+    long startTime, endTime;
+    startTime = System.currentTimeMillis();
+    new BoundaryReader(source).fill(target, planModel, scheduler);
+    PlanWriter.writeBoundaries(target.getSavePath() + ".boundaries", planModel, Constant.DELIMITER);
     endTime = System.currentTimeMillis();
-    logger.info("SavingPlanProcess time: " + (endTime - startTime) + " ms\n");
+    Metrics.getInstance().recordPhase(target.getDbName(), "boundaries", endTime - startTime);
+    logger.info("db=" + target.getDbName() + ",BoundaryProcess time: " + (endTime - startTime) + " ms\n");
   }
 
   /**
@@ -84,26 +255,24 @@ public class MakingPlanPipeline implements Runnable {
   private DbModel read() throws SQLException {
     long startTime, endTime;
     startTime = System.currentTimeMillis();
-    DbReader reader = new DbReader();
+    DbReader reader = new DbReader(source);
     // Get all tables, and columns of each table in a database (read from args)
-    DbModel dbModel = reader.get(config.getMssqlServerDb());
+    DbModel dbModel = reader.get(target, scheduler);
     endTime = System.currentTimeMillis();
-    logger.info("DbProcess time: " + (endTime - startTime) + " ms\n");
+    Metrics.getInstance().recordPhase(target.getDbName(), "read", endTime - startTime);
+    logger.info("db=" + target.getDbName() + ",DbProcess time: " + (endTime - startTime) + " ms\n");
     return dbModel;
   }
 
   /**
-   * Prints the ASCII logo and job information.
+   * Prints the job information.
    */
   private void showJobInfo() {
-    logger.info("\n" + Constant.ASCII_LOGO);
-
     String jobInfoMsg = "\nStart at: " + DateTimeUtil.getCurrentTime()
-      + "\n- Target host: " + config.getMssqlServerHost()
-      + "\n- Target port: " + config.getMssqlServerPort()
-      + "\n- Target database: " + config.getMssqlServerDb()
-      + "\n- Max connections size: " + config.getCpMaxSize()
-      + "\n- Min idle connection: " + config.getCpMinIdle()
+      + "\n- Target host: " + target.getHost()
+      + "\n- Target port: " + target.getPort()
+      + "\n- Target database: " + target.getDbName()
+      + "\n- Save path: " + target.getSavePath()
       + "\n";
     logger.info(jobInfoMsg);
   }
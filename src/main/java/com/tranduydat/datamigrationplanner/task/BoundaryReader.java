@@ -0,0 +1,134 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.BoundaryMode;
+import com.tranduydat.datamigrationplanner.config.Config;
+import com.tranduydat.datamigrationplanner.db.dao.SplitDao;
+import com.tranduydat.datamigrationplanner.db.source.MetadataSession;
+import com.tranduydat.datamigrationplanner.db.source.MetadataSource;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
+import com.tranduydat.datamigrationplanner.model.PlanModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.utils.SqlUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * To precompute the split boundaries of the split column of each table in a plan,
+ * so Sqoop does not need to run its own boundary query
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class BoundaryReader {
+  private static final Logger logger = LogManager.getLogger(BoundaryReader.class);
+  private final Config config = Config.getInstance();
+  // Where the split values of the tables come from
+  private final MetadataSource source;
+
+  /**
+   * @param source Where the split values of the tables come from.
+   */
+  public BoundaryReader(MetadataSource source) {
+    this.source = source;
+  }
+
+  /**
+   * Computes the split boundaries of each plan detail with a split column, and sets them to the plan detail.
+   * Only number, date and time columns get boundaries, as Sqoop splits other types on text.
+   * The min and max values read when the split column was scored are reused, so min_max boundaries need no query then.
+   * Tables are processed in parallel, each with its own pooled connection, and a failure only skips its table.
+   *
+   * @param target    The database of the plan.
+   * @param planModel The plan model.
+   * @param scheduler The scheduler to run the table tasks on.
+   * @throws SQLException If the columns of the database cannot be loaded.
+   */
+  public void fill(TargetModel target, PlanModel planModel, TaskScheduler scheduler) throws SQLException {
+    String dbName = target.getDbName();
+    logger.info("db={},boundary_mode={},msg=Starting BoundaryTask", dbName, config.getBoundaryMode().getValue());
+
+    Map<String, List<ColumnModel>> columnsByTable;
+    try (MetadataSession session = this.source.open(target, config.getQueryTimeoutSeconds(), 0)) {
+      columnsByTable = session.getColumnsByDb(dbName);
+    }
+    int parts = config.getBoundaryMode() == BoundaryMode.QUANTILES ? Math.max(1, config.getMappers()) : 1;
+
+    List<Future<?>> futures = new ArrayList<>();
+    int reusedTables = 0;
+    try {
+      for (PlanDetailModel planDetail : planModel.getDetails()) {
+        if (planDetail.getUniqueColumn().equals("-1")) {
+          continue;
+        }
+        String dataType = columnsByTable.getOrDefault(planDetail.getTableName(), Collections.emptyList()).stream()
+          .filter(column -> column.getColumnName().equals(planDetail.getUniqueColumn()))
+          .map(ColumnModel::getDataType)
+          .findFirst()
+          .orElse(null);
+        if (dataType == null || !SplitDao.isNumberLike(dataType)) {
+          continue;
+        }
+        SplitStatsModel splitStats = planDetail.getSplitStats();
+        if (parts == 1 && splitStats != null && splitStats.getMinValue() != null && splitStats.getMaxValue() != null) {
+          planDetail.setSplitBoundaries(Arrays.asList(
+            SplitDao.literal(splitStats.getMinValue(), dataType), SplitDao.literal(splitStats.getMaxValue(), dataType)));
+          reusedTables++;
+          continue;
+        }
+        futures.add(scheduler.submit(target.getInstanceKey(), () -> this.fillTable(target, planDetail, dataType, parts)));
+      }
+
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          logger.error("db={},msg=Unexpected error in boundary task,e={}", dbName, e.getMessage(), e);
+        } catch (CancellationException e) {
+          logger.error("db={},msg=Boundary task was cancelled", dbName);
+        }
+      }
+      logger.info("db={},count_table_with_boundaries={},count_reused_table={},msg=Finished BoundaryTask",
+        dbName, futures.size() + reusedTables, reusedTables);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.forEach(future -> future.cancel(true));
+      throw new SQLException("Interrupted while computing boundaries of " + dbName, e);
+    }
+  }
+
+  /**
+   * Computes the split boundaries of a single table with its own pooled connection.
+   *
+   * @param target     The database of the table.
+   * @param planDetail The plan detail of the table.
+   * @param dataType   The data type of the split column.
+   * @param parts      The number of parts to split the table into.
+   */
+  private void fillTable(TargetModel target, PlanDetailModel planDetail, String dataType, int parts) {
+    String dbName = target.getDbName();
+    String[] schemaAndTable = SqlUtil.splitTableKey(planDetail.getTableName());
+    try (MetadataSession session = this.source.open(target, config.getQueryTimeoutSeconds(), 0)) {
+      List<String> boundaries = session.getBoundaries(dbName, schemaAndTable[0], schemaAndTable[1],
+        planDetail.getUniqueColumn(), dataType, parts);
+      planDetail.setSplitBoundaries(boundaries);
+      logger.info("db={},schema_table={},unique_column={},boundaries={}",
+        dbName, planDetail.getTableName(), planDetail.getUniqueColumn(), boundaries);
+    } catch (SQLException e) {
+      logger.warn("db={},schema_table={},unique_column={},msg=Failed to get boundaries,e={}",
+        dbName, planDetail.getTableName(), planDetail.getUniqueColumn(), e.getMessage());
+    }
+  }
+}
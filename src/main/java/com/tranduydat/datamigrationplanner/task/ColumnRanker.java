@@ -0,0 +1,78 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Ranking columns of a table by how likely they are unique,
+ * from cheap metadata signals only
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ColumnRanker {
+  private ColumnRanker() {
+    // Private constructor to prevent direct instantiation
+  }
+
+  /**
+   * Checks if a column can be a split column at all.
+   * Large objects and types that Sqoop cannot split on are never candidates.
+   *
+   * @param column The column.
+   * @return true if the column can be a split column, otherwise false.
+   */
+  public static boolean isSplittable(ColumnModel column) {
+    return !Constant.NON_SPLITTABLE_DATA_TYPES.contains(column.getDataType().toLowerCase())
+      && column.getMaxLength() != -1;
+  }
+
+  /**
+   * Scores a column by how likely it is unique, the higher the more likely.
+   *
+   * @param column The column.
+   * @return The score.
+   */
+  public static int score(ColumnModel column) {
+    int score = 0;
+    if (column.isIdentity()) {
+      score += 100;
+    }
+    if (column.isLeadingIndexKey()) {
+      score += 40;
+    }
+    if (Constant.INTEGER_DATA_TYPES.contains(column.getDataType().toLowerCase())) {
+      score += 30;
+    } else if (Constant.NUMERIC_DATA_TYPES.contains(column.getDataType().toLowerCase())) {
+      score += 15;
+    } else if (Constant.DATE_TIME_DATA_TYPES.contains(column.getDataType().toLowerCase())) {
+      score += 10;
+    }
+    if (column.getColumnName().toLowerCase().endsWith("id")) {
+      score += 25;
+    }
+    if (!column.isNullable()) {
+      score += 20;
+    }
+    return score;
+  }
+
+  /**
+   * Ranks the splittable columns of a table, the most likely unique first.
+   * Columns with the same score keep their position in the table.
+   *
+   * @param columns The columns of a table, ordered by their position.
+   * @return The splittable columns, ranked.
+   */
+  public static List<ColumnModel> rank(List<ColumnModel> columns) {
+    return columns.stream()
+      .filter(ColumnRanker::isSplittable)
+      .sorted(Comparator.comparingInt(ColumnRanker::score).reversed())
+      .collect(Collectors.toList());
+  }
+}
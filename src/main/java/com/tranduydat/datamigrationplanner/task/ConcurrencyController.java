@@ -0,0 +1,137 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.Config;
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.db.connection.MsSqlServerConnection;
+import com.tranduydat.datamigrationplanner.db.dao.ServerStatsDao;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * To adapt how many tables are profiled at once on an instance to how busy the instance is, in AIMD fashion:
+ * at each interval, one more worker is allowed while the instance has headroom,
+ * and the workers are halved as soon as it is under pressure.
+ * <p>
+ * The instance is under pressure when the latency of a small probe query grows well over the best latency seen,
+ * or, optionally, when too many user requests wait on a resource.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ConcurrencyController {
+  private static final Logger logger = LogManager.getLogger(ConcurrencyController.class);
+  private final Config config = Config.getInstance();
+  private final String host;
+  private final int port;
+  private final TaskScheduler scheduler;
+  private final ScheduledExecutorService executor;
+  private final int minWorkers;
+  private final int maxWorkers;
+  // The best probe latency seen, slowly relaxed so it follows lasting changes of the network
+  private double baselineMillis = Double.MAX_VALUE;
+  private int workers;
+
+  /**
+   * @param host      The hostname of the instance.
+   * @param port      The port number of the instance.
+   * @param scheduler The scheduler running the tasks of the instance.
+   */
+  public ConcurrencyController(String host, int port, TaskScheduler scheduler) {
+    this.host = host;
+    this.port = port;
+    this.scheduler = scheduler;
+    this.maxWorkers = Math.max(1, config.getCpMaxSize());
+    this.minWorkers = Math.max(1, Math.min(config.getAdaptiveMinWorkers(), this.maxWorkers));
+    this.workers = this.minWorkers;
+    this.executor = Executors.newSingleThreadScheduledExecutor(new WorkerThreadFactory(host + ":" + port, "controller"));
+  }
+
+  /**
+   * Starts with the min number of workers, and adjusts it at each interval.
+   */
+  public void start() {
+    this.scheduler.setInstanceLimit(this.getInstanceKey(), this.workers);
+    long interval = Math.max(1, config.getAdaptiveIntervalSeconds());
+    this.executor.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.SECONDS);
+    logger.info("instance={},min_workers={},max_workers={},msg=Started adaptive concurrency",
+      this.getInstanceKey(), this.minWorkers, this.maxWorkers);
+  }
+
+  /**
+   * Stops adjusting the number of workers.
+   */
+  public void stop() {
+    this.executor.shutdownNow();
+  }
+
+  private String getInstanceKey() {
+    return this.host + ":" + this.port;
+  }
+
+  /**
+   * Measures the instance, then grows the workers by one if it has headroom, or halves them if it is under pressure.
+   */
+  private void adjust() {
+    double latencyMillis = -1;
+    int countWaiting = -1;
+    try (Connection conn = MsSqlServerConnection.getInstance(this.host, this.port, config.getCpMaxSize()).getConnection()) {
+      ServerStatsDao serverStatsDao = new ServerStatsDao(conn);
+      latencyMillis = serverStatsDao.probeLatencyMillis();
+      if (config.isAdaptiveWaitStats()) {
+        countWaiting = serverStatsDao.countWaitingRequests();
+      }
+    } catch (SQLException | RuntimeException e) {
+      logger.warn("instance={},msg=Failed to probe instance,e={}", this.getInstanceKey(), e.getMessage());
+      latencyMillis = -1;
+    }
+
+    boolean pressure = this.isUnderPressure(latencyMillis, countWaiting);
+    int previousWorkers = this.workers;
+    this.scheduler.setInstanceLimit(this.getInstanceKey(), this.nextWorkers(pressure));
+    logger.info("instance={},latency_ms={},baseline_ms={},count_waiting={},pressure={},workers={},previous_workers={}",
+      this.getInstanceKey(), String.format("%.2f", latencyMillis), String.format("%.2f", this.baselineMillis),
+      countWaiting, pressure, this.workers, previousWorkers);
+  }
+
+  /**
+   * Tells whether the instance is under pressure from its measures, and relaxes the baseline latency.
+   *
+   * @param latencyMillis The latency of the probe, negative if the probe failed.
+   * @param countWaiting  The number of user requests waiting on a resource, negative if not measured.
+   * @return true if the instance is under pressure, otherwise false.
+   */
+  boolean isUnderPressure(double latencyMillis, int countWaiting) {
+    // An instance that cannot even answer the probe is under pressure
+    if (latencyMillis < 0) {
+      return true;
+    }
+    this.baselineMillis = Math.min(latencyMillis, this.baselineMillis * Constant.ADAPTIVE_BASELINE_RELAX);
+    boolean pressure = latencyMillis > Math.max(this.baselineMillis * config.getAdaptiveLatencyFactor(),
+      this.baselineMillis + Constant.ADAPTIVE_LATENCY_SLACK_MILLIS);
+    return pressure || (countWaiting >= 0 && countWaiting > config.getAdaptiveMaxWaitingRequests());
+  }
+
+  /**
+   * Grows the workers by one, or halves them under pressure, within the min and max workers.
+   *
+   * @param pressure Whether the instance is under pressure.
+   * @return The new number of workers.
+   */
+  int nextWorkers(boolean pressure) {
+    this.workers = pressure
+      ? Math.max(this.minWorkers, this.workers / 2)
+      : Math.min(this.maxWorkers, this.workers + 1);
+    return this.workers;
+  }
+
+  double getBaselineMillis() {
+    return this.baselineMillis;
+  }
+}
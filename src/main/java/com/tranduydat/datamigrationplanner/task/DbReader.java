@@ -1,19 +1,48 @@
 package com.tranduydat.datamigrationplanner.task;
 
-import com.tranduydat.datamigrationplanner.db.connection.MsSqlServerConnection;
-import com.tranduydat.datamigrationplanner.db.dao.CheckingDao;
-import com.tranduydat.datamigrationplanner.db.dao.TableDao;
+import com.tranduydat.datamigrationplanner.config.Config;
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.config.ProfileMode;
+import com.tranduydat.datamigrationplanner.config.RowCountMode;
+import com.tranduydat.datamigrationplanner.db.dao.SplitDao;
+import com.tranduydat.datamigrationplanner.db.source.MetadataSession;
+import com.tranduydat.datamigrationplanner.db.source.MetadataSource;
+import com.tranduydat.datamigrationplanner.db.source.MsSqlServerSource;
+import com.tranduydat.datamigrationplanner.metrics.Metrics;
+import com.tranduydat.datamigrationplanner.model.CatalogModel;
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import com.tranduydat.datamigrationplanner.model.ColumnStatsModel;
 import com.tranduydat.datamigrationplanner.model.DbModel;
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+import com.tranduydat.datamigrationplanner.model.ProfileCacheEntryModel;
 import com.tranduydat.datamigrationplanner.model.SchemaTableModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import com.tranduydat.datamigrationplanner.model.TableMetricsModel;
 import com.tranduydat.datamigrationplanner.model.TableModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.model.UniqueKeyModel;
+import com.tranduydat.datamigrationplanner.utils.SqlUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.sql.Connection;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 /**
  * To retrieve necessary database's info
@@ -24,91 +53,498 @@ import java.util.Map;
  */
 public class DbReader {
   private static final Logger logger = LogManager.getLogger(DbReader.class);
+  private final Config config = Config.getInstance();
+  private final Metrics metrics = Metrics.getInstance();
+  // Where the metadata of the tables comes from
+  private final MetadataSource source;
+  // The profile mode actually used, after checking what the server supports
+  private ProfileMode profileMode;
+  // Instrumentation of the sampling stage
+  private final AtomicLong countSampledTable = new AtomicLong();
+  private final AtomicLong countRejectedColumn = new AtomicLong();
+  private final AtomicLong countSavedScan = new AtomicLong();
 
   /**
-   * Retrieves the list of columns for the given table.
+   * Reads from the live SQL Server.
+   */
+  public DbReader() {
+    this(new MsSqlServerSource());
+  }
+
+  /**
+   * @param source Where the metadata of the tables comes from.
+   */
+  public DbReader(MetadataSource source) {
+    this.source = source;
+  }
+
+  /**
+   * Profiles all tables of a database on the scheduler, and gets the database model.
    *
-   * @param tableDao   The TableDao instance.
-   * @param dbName     The name of the database.
-   * @param schemaName The name of the schema.
-   * @param tableName  The name of the table.
-   * @return The list of column names.
+   * @param target    The database to profile.
+   * @param scheduler The scheduler to run the table tasks on.
+   * @return The database model.
+   * @throws SQLException If the catalog of the database cannot be loaded.
    */
-  private static List<String> getColumns(TableDao tableDao,
-                                         String dbName,
-                                         String schemaName,
-                                         String tableName) {
-    List<String> columns = null;
+  public DbModel get(TargetModel target, TaskScheduler scheduler) throws SQLException {
+    DbModel dbModel = DbModel.builder()
+      .dbName(target.getDbName())
+      .tableMap(new ConcurrentHashMap<>())
+      .build();
+    this.read(target, scheduler, dbModel.getTableMap()::put);
+    return dbModel;
+  }
+
+  /**
+   * Profiles all tables of a database on the scheduler, and hands each table model to a sink as soon as it is done,
+   * so the caller decides whether to keep them all or to pass them on.
+   * The sink is called from the worker threads, and a table that failed is handed over with an empty profile.
+   *
+   * @param target    The database to profile.
+   * @param scheduler The scheduler to run the table tasks on.
+   * @param sink      The consumer of "[schema].[table]" and its table model.
+   * @throws SQLException If the catalog of the database cannot be loaded.
+   */
+  public void read(TargetModel target, TaskScheduler scheduler, BiConsumer<String, TableModel> sink) throws SQLException {
+    String dbName = target.getDbName();
+    logger.info("db={},instance={},msg=Starting DbTask", dbName, target.getInstanceKey());
+
+    // Get all tables in a database, and load the metadata of all of them at once
+    // The catalog connection is given back to the pool before the workers start,
+    // so every worker can borrow its own connection.
+    // Each catalog query has the budget of a single query, and a cancelled one fails the database,
+    // as a partial catalog would silently leave tables out of the plan.
+    List<SchemaTableModel> tables;
+    CatalogModel catalog;
+    Map<String, TableFingerprintModel> fingerprints;
+    try (MetadataSession session = this.source.open(target, config.getQueryTimeoutSeconds(), 0)) {
+      tables = this.getTables(dbName, session);
+      catalog = session.loadCatalog(dbName);
+      this.profileMode = this.resolveProfileMode(session);
+      // Tell whether a table changed since it was cached or journaled
+      fingerprints = session.getFingerprintsByDb(dbName);
+      if (session.getExceeded() != null) {
+        throw new SQLException("The catalog of " + dbName + " could not be loaded within " + session.getExceeded());
+      }
+    }
+
+    // Tables that did not change since the last run are taken from the profile cache
+    ProfileCache cache = config.getCacheDir() == null
+      ? null
+      : ProfileCache.load(Paths.get(config.getCacheDir(), this.getCacheFileName(target)), this.getProfileSettings());
+    int cachedTables = 0;
+
+    // Tables finished by a previous run are replayed from the journal, and each finished table is appended to it
+    ProfileJournal journal = config.isJournal()
+      ? ProfileJournal.open(ProfileJournal.pathOf(target.getSavePath()), "db=" + dbName + "," + this.getProfileSettings(),
+      config.isResume())
+      : ProfileJournal.disabled(ProfileJournal.pathOf(target.getSavePath()));
+    int resumedTables = 0;
+
+    // Each task borrows one pooled connection, and the scheduler bounds the tasks per instance
+    AtomicInteger failedTables = new AtomicInteger();
+    AtomicInteger incompleteTables = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>(tables.size());
     try {
-      columns = tableDao.getAllColumnsOfTable(dbName, schemaName, tableName);
-    } catch (SQLException e) {
-      logger.error("db={},schema={},table={},msg=Failed to get list of columns,e={}", dbName, schemaName, tableName, e.getMessage(), e);
+      // Submit a profiling task for each table
+      for (SchemaTableModel schemaTableModel : tables) {
+        String tableKey = SqlUtil.tableKey(schemaTableModel.getSchemaName(), schemaTableModel.getTableName());
+        TableFingerprintModel fingerprint = fingerprints.get(tableKey);
+        ProfileCacheEntryModel replayedEntry = journal.getReplayedEntry(tableKey, fingerprint);
+        if (replayedEntry != null) {
+          sink.accept(tableKey, replayedEntry.getTableModel());
+          if (cache != null) {
+            cache.put(tableKey, replayedEntry);
+          }
+          metrics.recordStrategy("resumed");
+          resumedTables++;
+          continue;
+        }
+        TableModel cachedTableModel = cache == null ? null : cache.get(tableKey, fingerprint, config.getCacheMaxAgeHours());
+        if (cachedTableModel != null) {
+          sink.accept(tableKey, cachedTableModel);
+          metrics.recordStrategy("cached");
+          cachedTables++;
+          continue;
+        }
+        // The biggest tables go first, and only a few heavy tables are scanned at once on an instance
+        long tableSize = Math.max(schemaTableModel.getPageCount(), 1);
+        boolean heavy = config.getHeavyTablePages() > 0 && schemaTableModel.getPageCount() >= config.getHeavyTablePages();
+        futures.add(scheduler.submit(target.getInstanceKey(), tableSize, heavy, () -> {
+          long startTime = System.currentTimeMillis();
+          TableModel tableModel = this.profileTable(target, schemaTableModel, catalog);
+          metrics.recordTable(TableMetricsModel.builder()
+            .dbName(dbName)
+            .tableKey(tableKey)
+            .strategy(this.getStrategy(tableModel))
+            .durationMillis(System.currentTimeMillis() - startTime)
+            .rowCount(schemaTableModel.getRowCount())
+            .build());
+          if (tableModel == null) {
+            failedTables.incrementAndGet();
+            sink.accept(tableKey, new TableModel());
+            return;
+          }
+          // A profile with failed counts is planned, but neither journaled nor cached, so the next run profiles it again
+          if (tableModel.isIncomplete()) {
+            incompleteTables.incrementAndGet();
+          } else {
+            // The fingerprint was taken before profiling, so a change during profiling is caught by the next run
+            ProfileCacheEntryModel entry = ProfileCacheEntryModel.builder()
+              .fingerprint(fingerprint)
+              .tableModel(tableModel)
+              .profiledAt(LocalDateTime.now())
+              .build();
+            journal.append(tableKey, entry);
+            if (cache != null) {
+              cache.put(tableKey, entry);
+            }
+          }
+          sink.accept(tableKey, tableModel);
+        }));
+      }
+
+      // Wait for all tasks to finish
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          failedTables.incrementAndGet();
+          logger.error("db={},msg=Unexpected error in profiling task,e={}", dbName, e.getMessage(), e);
+        } catch (CancellationException e) {
+          failedTables.incrementAndGet();
+          logger.error("db={},msg=Profiling task was cancelled", dbName);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.forEach(future -> future.cancel(true));
+      throw new SQLException("Interrupted while profiling tables of " + dbName, e);
+    } finally {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        logger.warn("db={},msg=Failed to close profile journal,e={}", dbName, e.getMessage());
+      }
+    }
+
+    if (cache != null) {
+      cache.save();
+    }
+
+    logger.info("db={},count_table={},count_resumed_table={},count_cached_table={},count_failed_table={},count_incomplete_table={},msg=Finished DbTask",
+      dbName, tables.size(), resumedTables, cachedTables, failedTables.get(), incompleteTables.get());
+    if (config.getSampleRows() > 0) {
+      logger.info("db={},count_sampled_table={},count_rejected_column={},count_saved_scan={},msg=Finished sampling stage",
+        dbName, countSampledTable.get(), countRejectedColumn.get(), countSavedScan.get());
     }
-    logger.info("db={},schema={},table={},number_of_columns={},columns={}", dbName, schemaName, tableName, columns.size(), columns);
-    return columns;
   }
 
-  public DbModel get(String dbName) throws SQLException {
-    logger.info("db={},msg=Starting DbTask", dbName);
+  /**
+   * Gets how a table was profiled, for the metrics.
+   *
+   * @param tableModel The table model, or null if the table failed to be profiled.
+   * @return The strategy, e.g. "single_scan", "unique_key" or "fallback_table_timeout".
+   */
+  private String getStrategy(TableModel tableModel) {
+    if (tableModel == null) {
+      return "failed";
+    }
+    if (tableModel.getUniqueKey() != null) {
+      return "unique_key";
+    }
+    if (tableModel.getFallback() != null) {
+      return "fallback_" + tableModel.getFallback();
+    }
+    return this.profileMode.getValue();
+  }
 
-    // Try to get connection pool
-    try (Connection conn = MsSqlServerConnection.getInstance().getConnection()) {
-      TableDao tableDao = new TableDao(conn);
-      CheckingDao checkingDao = new CheckingDao(conn);
-      DbModel dbModel = DbModel.builder()
-        .dbName(dbName)
-        .tableMap(new HashMap<>())
-        .build();
+  /**
+   * Profiles a single table with its own pooled connection.
+   * Any error is isolated to this table: it is logged, and the caller still lists the table with an empty profile
+   * so that it gets a plan without a unique column instead of being dropped.
+   *
+   * @param target           The database of the table.
+   * @param schemaTableModel The schema and table to be profiled.
+   * @param catalog          The metadata of all tables in the database.
+   * @return The table model, or null if the table failed to be profiled.
+   */
+  private TableModel profileTable(TargetModel target,
+                                  SchemaTableModel schemaTableModel,
+                                  CatalogModel catalog) {
+    String dbName = target.getDbName();
+    String schemaName = schemaTableModel.getSchemaName();
+    String tableName = schemaTableModel.getTableName();
+    String tableKey = SqlUtil.tableKey(schemaName, tableName);
 
-      // Get all tables in a database
-      List<SchemaTableModel> tables = this.getTables(dbName, tableDao);
+    // A single-column unique key is already a unique column, so there is nothing to count
+    List<UniqueKeyModel> uniqueKeys = catalog.getUniqueKeys(tableKey);
+    if (!uniqueKeys.isEmpty() && !config.isScoreSplitColumns()) {
+      logger.info("db={},schema={},table={},unique_key={},msg=Skip profiling", dbName, schemaName, tableName, uniqueKeys.get(0));
+      TableModel tableModel = new TableModel();
+      tableModel.setTotalCount(schemaTableModel.getRowCount());
+      tableModel.setUniqueKey(uniqueKeys.get(0));
+      return tableModel;
+    }
 
-      // Iterate over all tables
-      tables.parallelStream().forEach(schemaTableModel -> {
-        String schemaName = schemaTableModel.getSchemaName();
-        String tableName = schemaTableModel.getTableName();
+    // Queries over their own budget or over the budget of the table are cancelled
+    try (MetadataSession session = this.source.open(target, config.getQueryTimeoutSeconds(), config.getTableTimeoutSeconds())) {
+      // When split columns are scored, the unique key that splits the table best is kept
+      if (!uniqueKeys.isEmpty()) {
+        List<String> keyColumns = uniqueKeys.stream().map(UniqueKeyModel::getColumnName).collect(Collectors.toList());
+        Map<String, SplitStatsModel> splitStats = this.getSplitStats(session, dbName, schemaName, tableName, tableKey, catalog, keyColumns);
+        UniqueKeyModel bestKey = uniqueKeys.get(0);
+        for (UniqueKeyModel uniqueKey : uniqueKeys) {
+          if (splitStats.containsKey(uniqueKey.getColumnName())
+            && (!splitStats.containsKey(bestKey.getColumnName())
+            || splitStats.get(uniqueKey.getColumnName()).getScore() > splitStats.get(bestKey.getColumnName()).getScore())) {
+            bestKey = uniqueKey;
+          }
+        }
+        logger.info("db={},schema={},table={},unique_key={},msg=Skip profiling", dbName, schemaName, tableName, bestKey);
+        TableModel tableModel = new TableModel();
+        tableModel.setTotalCount(schemaTableModel.getRowCount());
+        tableModel.setUniqueKey(bestKey);
+        tableModel.setSplitStatsByColumn(splitStats);
+        return tableModel;
+      }
 
-        // 1. Get primary keys
-        // In the case of a composite site key,
-        // it cannot guarantee that one of the columns is unique,
-        // and Sqoop does not support this type of key in `split-by`.
-        // Therefore, besides retrieving primary keys, it is necessary to further consider other columns.
-        List<String> primaryKeys = this.getPrimaryKey(checkingDao, dbName, schemaName, tableName);
+      // 1. Get primary keys
+      // In the case of a composite site key,
+      // it cannot guarantee that one of the columns is unique,
+      // and Sqoop does not support this type of key in `split-by`.
+      // Therefore, besides retrieving primary keys, it is necessary to further consider other columns.
+      List<String> primaryKeys = catalog.getPrimaryKeys(tableKey);
 
-        // 2. Get total count of a table
-        int totalCount = this.getCountTotal(checkingDao, dbName, schemaName, tableName);
+      // 2. Get all columns in a table, the most likely unique first
+      // KNOWN ISSUE: `ntext` data type does not support (distinct) count, then skip
+      List<String> columns = ColumnRanker.rank(catalog.getColumns(tableKey)).stream()
+        .map(ColumnModel::getColumnName)
+        .collect(Collectors.toList());
+      logger.info("db={},schema={},table={},primary_keys={},number_of_columns={},columns={}",
+        dbName, schemaName, tableName, primaryKeys, columns.size(), columns);
 
-        // 3. Get all columns in a table
-        List<String> columns = getColumns(tableDao, dbName, schemaName, tableName);
+      // A table over the row ceiling is never scanned
+      String fallback = config.getMaxScanRows() > 0 && schemaTableModel.getRowCount() > config.getMaxScanRows()
+        ? "row_ceiling"
+        : null;
 
-        // 4. Get count distinct for each column
-        // KNOWN ISSUE: `ntext` data type does not support (distinct) count, then skip
-        Map<String, Integer> countDistinctColumnMap = this.getCountDistinctColumns(checkingDao, dbName, schemaName, tableName, columns);
+      // Rule out the columns with duplicates in a small sample, so they are never counted exactly
+      // It is only worth it when the table is much bigger than the sample
+      if (fallback == null && config.getSampleRows() > 0 && this.profileMode != ProfileMode.STATS
+        && schemaTableModel.getRowCount() > config.getSampleRows() && !columns.isEmpty()) {
+        columns = this.getColumnsUniqueInSample(session, dbName, schemaName, tableName, columns);
+      }
 
-        // Build table model with all retrieved info
-        TableModel tableModel = TableModel.builder()
-          .totalCount(totalCount)
-          .primaryKeys(primaryKeys)
-          .columnWithCount(countDistinctColumnMap)
-          .build();
+      // 3. Get total count of a table and count distinct for each column
+      // In single scan and approx modes, the exact total count comes for free with the distinct counts
+      Map<String, Long> countDistinctColumnMap = new HashMap<>();
+      long totalCount;
+      boolean isMetadataCount = config.getRowCountMode() == RowCountMode.METADATA;
+      // Whether the distinct counts are estimated from statistics, so a unique column is less certain
+      boolean estimated = false;
+      if (fallback != null) {
+        // Counted from statistics below
+        totalCount = 0;
+      } else if (this.profileMode == ProfileMode.LAZY) {
+        totalCount = this.getCountTotalAndFirstUniqueColumn(session, dbName, schemaName, tableName,
+          schemaTableModel.getRowCount(), columns, countDistinctColumnMap);
+        isMetadataCount = false;
+      } else if (this.profileMode == ProfileMode.STATS) {
+        // Either estimated against a row count verified as needed, or counted by a scan
+        Map<String, ColumnStatsModel> statsByColumn = this.getUsableColumnStats(session, dbName, schemaName, tableName, columns, true);
+        estimated = statsByColumn != null;
+        totalCount = estimated
+          ? this.getCountTotalAndDistinctColumnsFromStats(session, dbName, schemaName, tableName,
+          schemaTableModel.getRowCount(), statsByColumn, countDistinctColumnMap, true)
+          : this.getCountTotalAndDistinctColumns(session, dbName, schemaName, tableName, columns, countDistinctColumnMap);
+        isMetadataCount = false;
+      } else if (this.profileMode == ProfileMode.APPROX) {
+        totalCount = this.getCountTotalAndApproxDistinctColumns(session, dbName, schemaName, tableName, columns, countDistinctColumnMap);
+        isMetadataCount = false;
+      } else if (this.profileMode == ProfileMode.SINGLE_SCAN) {
+        totalCount = this.getCountTotalAndDistinctColumns(session, dbName, schemaName, tableName, columns, countDistinctColumnMap);
+        isMetadataCount = false;
+      } else {
+        totalCount = isMetadataCount
+          ? schemaTableModel.getRowCount()
+          : this.getCountTotal(session, dbName, schemaName, tableName);
+        countDistinctColumnMap = this.getCountDistinctColumns(session, dbName, schemaName, tableName, columns);
+      }
+
+      // 4. A row count from the catalog may lag behind the table,
+      // so verify it before a column is taken as unique or not against it
+      long metadataCount = totalCount;
+      if (fallback == null && isMetadataCount && config.isVerifyRowCount()
+        && countDistinctColumnMap.values().stream().anyMatch(x -> x != null && this.isNearRowCount(x, metadataCount))) {
+        totalCount = this.getCountTotal(session, dbName, schemaName, tableName);
+      }
+
+      // A cancelled query leaves the counts incomplete, so the table falls back to its statistics,
+      // which never scan the table, with a fresh connection budget but no table budget
+      if (fallback == null) {
+        fallback = session.getExceeded();
+      }
+      if (fallback != null) {
+        logger.warn("db={},schema={},table={},row_count={},fallback={},msg=Falling back to statistics",
+          dbName, schemaName, tableName, schemaTableModel.getRowCount(), fallback);
+        countDistinctColumnMap = new HashMap<>();
+        session.resetBudget(config.getQueryTimeoutSeconds(), 0);
+        Map<String, ColumnStatsModel> statsByColumn = this.getUsableColumnStats(session, dbName, schemaName, tableName, columns, false);
+        estimated = true;
+        totalCount = this.getCountTotalAndDistinctColumnsFromStats(session, dbName, schemaName, tableName,
+          schemaTableModel.getRowCount(), statsByColumn, countDistinctColumnMap, false);
+      }
 
-        // Put table model to database model (a database contains multiple tables)
-        dbModel.getTableMap().put("[" + schemaName + "].[" + tableName + "]", tableModel);
-      });
+      // 5. Score the unique columns by how evenly they split the table
+      Map<String, SplitStatsModel> splitStats = new HashMap<>();
+      if (config.isScoreSplitColumns() && fallback == null) {
+        long uniqueCount = totalCount;
+        List<String> uniqueColumns = countDistinctColumnMap.entrySet().stream()
+          .filter(x -> uniqueCount >= 0 && x.getValue() != null && x.getValue() == uniqueCount)
+          .map(Map.Entry::getKey)
+          .collect(Collectors.toList());
+        splitStats = this.getSplitStats(session, dbName, schemaName, tableName, tableKey, catalog, uniqueColumns);
+      }
+
+      // Build table model with all retrieved info, the distinct counts laid out by column ordinal
+      String[] columnNames = catalog.getColumns(tableKey).stream()
+        .map(ColumnModel::getColumnName)
+        .toArray(String[]::new);
+      TableModel tableModel = TableModel.builder()
+        .totalCount(totalCount)
+        .primaryKeys(primaryKeys)
+        .columnNames(columnNames)
+        .distinctCounts(TableModel.toDistinctCounts(columnNames, countDistinctColumnMap))
+        .splitStatsByColumn(splitStats)
+        .fallback(fallback)
+        .estimated(estimated)
+        .incomplete(totalCount < 0 || countDistinctColumnMap.values().stream().anyMatch(x -> x == null || x < 0))
+        .build();
+      if (tableModel.isIncomplete()) {
+        logger.warn("db={},schema={},table={},count_total={},msg=Some counts failed, the profile will not be reused",
+          dbName, schemaName, tableName, totalCount);
+      }
 
-      return dbModel;
+      return tableModel;
+    } catch (SQLException | RuntimeException e) {
+      logger.error("db={},schema={},table={},msg=Failed to profile table,e={}", dbName, schemaName, tableName, e.getMessage(), e);
+      return null;
     }
   }
 
+  /**
+   * Retrieves how evenly each of the given unique columns splits the given table.
+   * The value histogram of a number or date column comes from its statistics if they can be read, otherwise from a sample.
+   * Columns that fail are skipped.
+   *
+   * @param session    The metadata session.
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @param tableKey   The key of the table, "[schema].[table]".
+   * @param catalog    The metadata of all tables in the database.
+   * @param columns    The list of unique column names.
+   * @return A map of column names and their split stats.
+   */
+  private Map<String, SplitStatsModel> getSplitStats(MetadataSession session,
+                                                     String dbName,
+                                                     String schemaName,
+                                                     String tableName,
+                                                     String tableKey,
+                                                     CatalogModel catalog,
+                                                     List<String> columns) {
+    Map<String, SplitStatsModel> splitStatsByColumn = new HashMap<>();
+    for (String columnName : columns) {
+      String dataType = catalog.getDataType(tableKey, columnName);
+      if (dataType == null) {
+        continue;
+      }
+      try {
+        SplitStatsModel splitStats = session.getMinMax(dbName, schemaName, tableName, columnName, dataType);
+        List<HistogramBucketModel> histogram = new ArrayList<>();
+        if (SplitDao.isNumberLike(dataType)) {
+          try {
+            histogram = session.getHistogramFromStats(dbName, schemaName, tableName, columnName, dataType);
+          } catch (SQLException e) {
+            logger.warn("db={},schema={},table={},column={},msg=Failed to get histogram from statistics, sampling instead,e={}",
+              dbName, schemaName, tableName, columnName, e.getMessage());
+          }
+          if (histogram.isEmpty()) {
+            histogram = session.getHistogramFromSample(dbName, schemaName, tableName, columnName, dataType,
+              Constant.SPLIT_SAMPLE_ROWS, Constant.SPLIT_HISTOGRAM_BUCKETS);
+          }
+        }
+        double balance = SplitScorer.balance(histogram, splitStats.getMinNumber(), splitStats.getMaxNumber(), config.getMappers());
+        splitStats.setBalance(balance);
+        splitStats.setScore(SplitScorer.score(dataType, balance));
+        splitStatsByColumn.put(columnName, splitStats);
+      } catch (SQLException e) {
+        logger.warn("db={},schema={},table={},column={},msg=Failed to score split column,e={}",
+          dbName, schemaName, tableName, columnName, e.getMessage());
+      }
+    }
+    logger.info("db={},schema={},table={},split_stats={}", dbName, schemaName, tableName, splitStatsByColumn.values());
+    return splitStatsByColumn;
+  }
+
+  /**
+   * Gets the name of the profile cache file of a database, which is unique per server and database.
+   *
+   * @param target The database.
+   * @return The file name.
+   */
+  private String getCacheFileName(TargetModel target) {
+    String name = target.getHost() + "_" + target.getPort() + "_" + target.getDbName();
+    return name.replaceAll("[^A-Za-z0-9._-]", "_") + ".profile";
+  }
+
+  /**
+   * Gets the profile settings that change the result of profiling a table,
+   * so the cached profiles are only reused with the same settings.
+   *
+   * @return The profile settings.
+   */
+  private String getProfileSettings() {
+    return "profile_mode=" + this.profileMode.getValue()
+      + ",sample_rows=" + config.getSampleRows()
+      + ",score_split_columns=" + config.isScoreSplitColumns()
+      + ",mappers=" + config.getMappers()
+      + ",row_count_mode=" + config.getRowCountMode().getValue()
+      + ",verify_row_count=" + config.isVerifyRowCount()
+      + ",stats_max_age_hours=" + config.getStatsMaxAgeHours()
+      + ",query_timeout_seconds=" + config.getQueryTimeoutSeconds()
+      + ",table_timeout_seconds=" + config.getTableTimeoutSeconds()
+      + ",max_scan_rows=" + config.getMaxScanRows();
+  }
+
+  /**
+   * Resolves the profile mode to use, falling back to single scan
+   * if the server does not support `APPROX_COUNT_DISTINCT`.
+   *
+   * @param session     The metadata session.
+   * @return The profile mode to use.
+   */
+  private ProfileMode resolveProfileMode(MetadataSession session) {
+    ProfileMode mode = config.getProfileMode();
+    if (mode == ProfileMode.APPROX && !session.isApproxCountDistinctSupported()) {
+      logger.warn("msg=APPROX_COUNT_DISTINCT is not available, falling back to profile_mode={}", ProfileMode.SINGLE_SCAN.getValue());
+      mode = ProfileMode.SINGLE_SCAN;
+    }
+    logger.info("profile_mode={}", mode.getValue());
+    return mode;
+  }
+
   /**
    * Retrieves the list of tables for the given database name.
    *
    * @param dbName   The name of a database.
-   * @param tableDao The TableDao instance.
+   * @param session  The metadata session.
    * @return The list of SchemaTableModel representing the tables (and its schema) in a database.
+   * @throws SQLException If the tables cannot be listed.
    */
-  private List<SchemaTableModel> getTables(String dbName, TableDao tableDao) {
-    List<SchemaTableModel> tables = tableDao.getTableNamesByDb(dbName);
+  private List<SchemaTableModel> getTables(String dbName, MetadataSession session) throws SQLException {
+    List<SchemaTableModel> tables = session.getTableNamesByDb(dbName);
     logger.info("db={},count_table={},tables={}", dbName, tables.size(), tables);
     logger.info("db={},msg=Starting processing each table", dbName);
     return tables;
@@ -117,24 +553,24 @@ public class DbReader {
   /**
    * Retrieves the distinct count of columns for the given table.
    *
-   * @param checkingDao The CheckingDao instance.
+   * @param session     The metadata session.
    * @param dbName      The name of the database.
    * @param schemaName  The name of the schema.
    * @param tableName   The name of the table.
    * @param columns     The list of column names.
    * @return A map of column names and their distinct counts.
    */
-  private Map<String, Integer> getCountDistinctColumns(CheckingDao checkingDao,
-                                                       String dbName,
-                                                       String schemaName,
-                                                       String tableName,
-                                                       List<String> columns) {
-    Map<String, Integer> distinctColumnByColumnMap = new HashMap<>();
+  private Map<String, Long> getCountDistinctColumns(MetadataSession session,
+                                                    String dbName,
+                                                    String schemaName,
+                                                    String tableName,
+                                                    List<String> columns) {
+    Map<String, Long> distinctColumnByColumnMap = new HashMap<>();
     for (String columnName : columns) {
       // Count distinct row by a column
-      Integer distinctCount = null;
+      Long distinctCount = null;
       try {
-        distinctCount = checkingDao.countDistinctByColumn(dbName, schemaName, tableName, columnName);
+        distinctCount = session.countDistinctByColumn(dbName, schemaName, tableName, columnName);
       } catch (SQLException e) {
         logger.error("db={},schema={},table={},msg=Failed to get distinct count by column,e={}", dbName, schemaName, tableName, e.getMessage(), e);
       }
@@ -146,42 +582,351 @@ public class DbReader {
   }
 
   /**
-   * Retrieves the total count of rows for the given table.
+   * Filters the columns of the given table to those without duplicates in a small sample.
+   * The columns with duplicates in the sample cannot be unique, so they do not need an exact count.
+   * If sampling fails, all columns are kept.
    *
-   * @param checkingDao The CheckingDao instance.
+   * @param session     The metadata session.
    * @param dbName      The name of the database.
    * @param schemaName  The name of the schema.
    * @param tableName   The name of the table.
+   * @param columns     The list of column names.
+   * @return The columns without duplicates in the sample, in the same order.
+   */
+  private List<String> getColumnsUniqueInSample(MetadataSession session,
+                                                String dbName,
+                                                String schemaName,
+                                                String tableName,
+                                                List<String> columns) {
+    Map<String, Long> sampleColumnWithCount = new HashMap<>();
+    long sampleCount;
+    try {
+      sampleCount = session.countSampleRowAndDistinctByColumns(dbName, schemaName, tableName, columns,
+        config.getSampleRows(), sampleColumnWithCount);
+    } catch (SQLException e) {
+      logger.warn("db={},schema={},table={},msg=Failed to sample, keeping all columns,e={}",
+        dbName, schemaName, tableName, e.getMessage());
+      return columns;
+    }
+    if (sampleCount <= 0) {
+      return columns;
+    }
+
+    List<String> survivors = columns.stream()
+      .filter(column -> sampleColumnWithCount.get(column) == sampleCount)
+      .collect(Collectors.toList());
+    int countRejected = columns.size() - survivors.size();
+    long countSaved = this.countScans(columns.size()) - this.countScans(survivors.size());
+    countSampledTable.incrementAndGet();
+    countRejectedColumn.addAndGet(countRejected);
+    countSavedScan.addAndGet(countSaved);
+    logger.info("db={},schema={},table={},count_sample_rows={},count_rejected_column={},count_saved_scan={},candidates={}",
+      dbName, schemaName, tableName, sampleCount, countRejected, countSaved, survivors);
+    return survivors;
+  }
+
+  /**
+   * Counts the full scans needed to count the distinct rows of the given number of columns
+   * in the current profile mode, not counting the scan for the total count.
+   * In lazy mode, it is the worst case where every column is counted.
+   *
+   * @param countColumn The number of columns.
+   * @return The number of full scans.
+   */
+  private long countScans(int countColumn) {
+    if (this.profileMode == ProfileMode.SINGLE_SCAN || this.profileMode == ProfileMode.APPROX) {
+      int batchSize = Math.max(1, config.getDistinctBatchSize());
+      return (countColumn + batchSize - 1) / batchSize;
+    }
+    return countColumn;
+  }
+
+  /**
+   * Retrieves the total count of rows for the given table, then counts the distinct rows
+   * of its columns one by one, in the given order, until a column is unique.
+   * The columns after the unique column are not counted.
+   * A row count from the catalog is verified with `COUNT_BIG(*)` as soon as a distinct count is near it,
+   * if verification is enabled.
+   *
+   * @param session         The metadata session.
+   * @param dbName          The name of the database.
+   * @param schemaName      The name of the schema.
+   * @param tableName       The name of the table.
+   * @param rowCount        The row count of the table from the catalog.
+   * @param columns         The list of column names, the most likely unique first.
+   * @param columnWithCount The map to put each counted column with its distinct count into.
    * @return The total count of rows.
    */
-  private int getCountTotal(CheckingDao checkingDao, String dbName, String schemaName, String tableName) {
-    int totalCount = -1;
+  private long getCountTotalAndFirstUniqueColumn(MetadataSession session,
+                                                 String dbName,
+                                                 String schemaName,
+                                                 String tableName,
+                                                 long rowCount,
+                                                 List<String> columns,
+                                                 Map<String, Long> columnWithCount) {
+    boolean isMetadataCount = config.getRowCountMode() == RowCountMode.METADATA;
+    long totalCount = isMetadataCount ? rowCount : this.getCountTotal(session, dbName, schemaName, tableName);
+
+    for (String columnName : columns) {
+      long distinctCount = -1;
+      try {
+        distinctCount = session.countDistinctByColumn(dbName, schemaName, tableName, columnName);
+      } catch (SQLException e) {
+        logger.error("db={},schema={},table={},msg=Failed to get distinct count by column,e={}", dbName, schemaName, tableName, e.getMessage(), e);
+      }
+      columnWithCount.put(columnName, distinctCount);
+
+      if (isMetadataCount && config.isVerifyRowCount() && this.isNearRowCount(distinctCount, totalCount)) {
+        totalCount = this.getCountTotal(session, dbName, schemaName, tableName);
+        isMetadataCount = false;
+      }
+      if (totalCount >= 0 && distinctCount == totalCount) {
+        break;
+      }
+    }
+    logger.info("db={},schema={},table={},count_total={},count_evaluated_column={},count_candidate_column={},column_with_distinct_count={}",
+      dbName, schemaName, tableName, totalCount, columnWithCount.size(), columns.size(), columnWithCount);
+    return totalCount;
+  }
+
+  /**
+   * Retrieves the total count of rows and the distinct count of columns for the given table,
+   * scanning the table once per batch of columns instead of once per column.
+   * If a batch fails, its columns are counted one by one instead.
+   *
+   * @param session         The metadata session.
+   * @param dbName          The name of the database.
+   * @param schemaName      The name of the schema.
+   * @param tableName       The name of the table.
+   * @param columns         The list of column names.
+   * @param columnWithCount The map to put each column with its distinct count into.
+   * @return The total count of rows.
+   */
+  private long getCountTotalAndDistinctColumns(MetadataSession session,
+                                               String dbName,
+                                               String schemaName,
+                                               String tableName,
+                                               List<String> columns,
+                                               Map<String, Long> columnWithCount) {
+    long totalCount = -1;
+    int batchSize = Math.max(1, config.getDistinctBatchSize());
+    // A table without countable columns still needs its total count
+    if (columns.isEmpty()) {
+      return this.getCountTotal(session, dbName, schemaName, tableName);
+    }
+
+    for (int from = 0; from < columns.size(); from += batchSize) {
+      List<String> batch = columns.subList(from, Math.min(from + batchSize, columns.size()));
+      try {
+        totalCount = session.countRowAndDistinctByColumns(dbName, schemaName, tableName, batch, columnWithCount);
+      } catch (SQLException e) {
+        logger.warn("db={},schema={},table={},columns={},msg=Failed to count a batch of columns, counting one by one,e={}",
+          dbName, schemaName, tableName, batch, e.getMessage());
+        columnWithCount.putAll(this.getCountDistinctColumns(session, dbName, schemaName, tableName, batch));
+        if (totalCount < 0) {
+          totalCount = this.getCountTotal(session, dbName, schemaName, tableName);
+        }
+      }
+    }
+    logger.info("db={},schema={},table={},count_total={},column_with_distinct_count={}",
+      dbName, schemaName, tableName, totalCount, columnWithCount);
+    return totalCount;
+  }
+
+  /**
+   * Retrieves the total count of rows and the estimated distinct count of columns for the given table.
+   * Only the columns whose estimation is close enough to the total count to possibly be unique
+   * are verified with an exact distinct count, others keep their estimation.
+   * If the estimation fails, all columns are counted exactly instead.
+   *
+   * @param session         The metadata session.
+   * @param dbName          The name of the database.
+   * @param schemaName      The name of the schema.
+   * @param tableName       The name of the table.
+   * @param columns         The list of column names.
+   * @param columnWithCount The map to put each column with its distinct count into.
+   * @return The total count of rows.
+   */
+  private long getCountTotalAndApproxDistinctColumns(MetadataSession session,
+                                                     String dbName,
+                                                     String schemaName,
+                                                     String tableName,
+                                                     List<String> columns,
+                                                     Map<String, Long> columnWithCount) {
+    if (columns.isEmpty()) {
+      return this.getCountTotal(session, dbName, schemaName, tableName);
+    }
+
+    // 1. Estimate the distinct count of all columns
+    Map<String, Long> approxColumnWithCount = new HashMap<>();
+    long totalCount = -1;
+    int batchSize = Math.max(1, config.getDistinctBatchSize());
+    for (int from = 0; from < columns.size(); from += batchSize) {
+      List<String> batch = columns.subList(from, Math.min(from + batchSize, columns.size()));
+      try {
+        totalCount = session.countRowAndApproxDistinctByColumns(dbName, schemaName, tableName, batch, approxColumnWithCount);
+      } catch (SQLException e) {
+        logger.warn("db={},schema={},table={},msg=Failed to estimate distinct count, counting exactly,e={}",
+          dbName, schemaName, tableName, e.getMessage());
+        return this.getCountTotalAndDistinctColumns(session, dbName, schemaName, tableName, columns, columnWithCount);
+      }
+    }
+
+    // 2. Keep only the columns that may be unique
+    double minDistinctCount = totalCount * (1 - Constant.APPROX_COUNT_DISTINCT_TOLERANCE);
+    List<String> candidates = columns.stream()
+      .filter(column -> approxColumnWithCount.get(column) >= minDistinctCount)
+      .collect(Collectors.toList());
+    columnWithCount.putAll(approxColumnWithCount);
+    logger.info("db={},schema={},table={},count_total={},column_with_approx_distinct_count={},candidates={}",
+      dbName, schemaName, tableName, totalCount, approxColumnWithCount, candidates);
+
+    // 3. Verify the candidates with an exact distinct count
+    if (!candidates.isEmpty()) {
+      totalCount = this.getCountTotalAndDistinctColumns(session, dbName, schemaName, tableName, candidates, columnWithCount);
+    }
+    return totalCount;
+  }
+
+  /**
+   * Gets the freshest statistics led by each countable column of the given table,
+   * if they can be used to estimate the distinct count of the columns.
+   * If the table has no statistics, or they are older than the configured max age, it has to be scanned instead,
+   * unless scanning is not allowed: then stale statistics are still used, and no statistics give no estimation.
+   *
+   * @param session    The metadata session.
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @param columns    The list of column names.
+   * @param allowScan  Whether the table may be scanned when its statistics cannot be used.
+   * @return A map of column names and their statistics, or null if the table has to be scanned instead.
+   */
+  private Map<String, ColumnStatsModel> getUsableColumnStats(MetadataSession session,
+                                                             String dbName,
+                                                             String schemaName,
+                                                             String tableName,
+                                                             List<String> columns,
+                                                             boolean allowScan) {
+    // 1. Get the freshest statistics led by each countable column
+    Map<String, ColumnStatsModel> statsByColumn = new HashMap<>();
     try {
-      totalCount = checkingDao.countRowByColumn(dbName, schemaName, tableName);
+      for (ColumnStatsModel stats : session.getColumnStats(dbName, schemaName, tableName)) {
+        if (columns.contains(stats.getColumnName())) {
+          statsByColumn.merge(stats.getColumnName(), stats,
+            (x, y) -> x.getLastUpdated().isAfter(y.getLastUpdated()) ? x : y);
+        }
+      }
     } catch (SQLException e) {
-      logger.error("db={},schema={},table={},msg=Failed to get total count rows,e={}", dbName, schemaName, tableName, e.getMessage(), e);
+      logger.warn("db={},schema={},table={},allow_scan={},msg=Failed to get statistics,e={}",
+        dbName, schemaName, tableName, allowScan, e.getMessage());
+      return allowScan ? null : new HashMap<>();
     }
-    logger.info("db={},schema={},table={},count_total={}", dbName, schemaName, tableName, totalCount);
+
+    // 2. Check if the statistics are fresh enough
+    ColumnStatsModel oldest = statsByColumn.values().stream()
+      .min((x, y) -> x.getLastUpdated().compareTo(y.getLastUpdated()))
+      .orElse(null);
+    if (oldest == null) {
+      logger.info("db={},schema={},table={},allow_scan={},msg=No statistics", dbName, schemaName, tableName, allowScan);
+      return allowScan ? null : statsByColumn;
+    }
+    long statsAgeHours = Duration.between(oldest.getLastUpdated(), LocalDateTime.now()).toHours();
+    if (allowScan && statsAgeHours > config.getStatsMaxAgeHours()) {
+      logger.info("db={},schema={},table={},stats_age_hours={},stats_max_age_hours={},msg=Statistics are stale, scanning instead",
+        dbName, schemaName, tableName, statsAgeHours, config.getStatsMaxAgeHours());
+      return null;
+    }
+    logger.info("db={},schema={},table={},stats_age_hours={},count_stats={}",
+      dbName, schemaName, tableName, statsAgeHours, statsByColumn.size());
+    return statsByColumn;
+  }
+
+  /**
+   * Estimates the total count of rows and the distinct count of columns for the given table
+   * from its statistics, without touching table data.
+   * The distinct count of a column comes from the density vector of the statistics it leads,
+   * scaled to the row count of the table from the catalog, so a column estimated as unique
+   * gets a distinct count equal to the total count. Columns without statistics are not counted.
+   * If verification is enabled and scanning is allowed, the row count is verified with `COUNT_BIG(*)`
+   * before the columns near it are scaled to it.
+   *
+   * @param session         The metadata session.
+   * @param dbName          The name of the database.
+   * @param schemaName      The name of the schema.
+   * @param tableName       The name of the table.
+   * @param rowCount        The row count of the table from the catalog.
+   * @param statsByColumn   The map of column names and the statistics they lead.
+   * @param columnWithCount The map to put each column with its estimated distinct count into.
+   * @param allowScan       Whether the row count may be verified.
+   * @return The total count of rows.
+   */
+  private long getCountTotalAndDistinctColumnsFromStats(MetadataSession session,
+                                                        String dbName,
+                                                        String schemaName,
+                                                        String tableName,
+                                                        long rowCount,
+                                                        Map<String, ColumnStatsModel> statsByColumn,
+                                                        Map<String, Long> columnWithCount,
+                                                        boolean allowScan) {
+    // 1. Estimate the share of distinct rows of each column from its density
+    Map<String, Double> distinctRatioByColumn = new HashMap<>();
+    for (ColumnStatsModel stats : statsByColumn.values()) {
+      try {
+        double density = session.getLeadingColumnDensity(schemaName, tableName, stats.getStatsName());
+        if (density > 0 && stats.getRows() > 0) {
+          distinctRatioByColumn.put(stats.getColumnName(), Math.min(1, 1 / density / stats.getRows()));
+        }
+      } catch (SQLException e) {
+        logger.warn("db={},schema={},table={},stats={},msg=Failed to get density,e={}",
+          dbName, schemaName, tableName, stats.getStatsName(), e.getMessage());
+        columnWithCount.put(stats.getColumnName(), -1L);
+      }
+    }
+
+    // 2. Scale the shares to the row count, verified first if a column may be unique
+    long totalCount = rowCount;
+    if (allowScan && config.isVerifyRowCount() && distinctRatioByColumn.values().stream()
+      .anyMatch(x -> this.isNearRowCount(Math.round(rowCount * x), rowCount))) {
+      totalCount = this.getCountTotal(session, dbName, schemaName, tableName);
+    }
+    for (Map.Entry<String, Double> entry : distinctRatioByColumn.entrySet()) {
+      columnWithCount.put(entry.getKey(), Math.round(totalCount * entry.getValue()));
+    }
+    logger.info("db={},schema={},table={},count_total={},column_with_estimated_distinct_count={}",
+      dbName, schemaName, tableName, totalCount, columnWithCount);
     return totalCount;
   }
 
   /**
-   * Retrieves the primary keys for the given table.
+   * Checks if a distinct count is near enough to a row count from the catalog for the column to be unique,
+   * given that the row count may lag behind the table.
    *
-   * @param checkingDao The CheckingDao instance.
+   * @param distinctCount The distinct count of a column, negative if it failed.
+   * @param rowCount      The row count of the table from the catalog.
+   * @return True if the column may be unique.
+   */
+  private boolean isNearRowCount(long distinctCount, long rowCount) {
+    return distinctCount >= 0 && Math.abs(distinctCount - rowCount) <= rowCount * Constant.ROW_COUNT_STALENESS_TOLERANCE;
+  }
+
+  /**
+   * Retrieves the total count of rows for the given table.
+   *
+   * @param session     The metadata session.
    * @param dbName      The name of the database.
    * @param schemaName  The name of the schema.
    * @param tableName   The name of the table.
-   * @return The list of primary keys.
+   * @return The total count of rows.
    */
-  private List<String> getPrimaryKey(CheckingDao checkingDao, String dbName, String schemaName, String tableName) {
-    List<String> primaryKeys = null;
+  private long getCountTotal(MetadataSession session, String dbName, String schemaName, String tableName) {
+    long totalCount = -1;
     try {
-      primaryKeys = checkingDao.getPrimaryKeys(dbName, schemaName, tableName);
+      totalCount = session.countRowByColumn(dbName, schemaName, tableName);
     } catch (SQLException e) {
-      logger.error("db={},schema={},table={},msg=Failed to get primary keys,e={}", dbName, schemaName, tableName, e.getMessage(), e);
+      logger.error("db={},schema={},table={},msg=Failed to get total count rows,e={}", dbName, schemaName, tableName, e.getMessage(), e);
     }
-    logger.info("db={},schema={},table={},primary_keys={}", dbName, schemaName, tableName, primaryKeys);
-    return primaryKeys;
+    logger.info("db={},schema={},table={},count_total={}", dbName, schemaName, tableName, totalCount);
+    return totalCount;
   }
 }
@@ -3,11 +3,14 @@ package com.tranduydat.datamigrationplanner.task;
 import com.tranduydat.datamigrationplanner.model.DbModel;
 import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
 import com.tranduydat.datamigrationplanner.model.PlanModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
 import com.tranduydat.datamigrationplanner.model.TableModel;
 import lombok.NoArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -24,62 +27,114 @@ public class MakingPlanProcessor {
   private static final Logger logger = LogManager.getLogger(MakingPlanProcessor.class);
 
   /**
-   * Compares columns of a table model based on the total row count.
-   * If a column's distinct count equals the total row count, it is considered unique.
+   * Ranks the profiled unique columns of a table model and returns the first one.
+   * A column is unique if its distinct count equals the total row count.
+   * A table whose row count failed has no unique column, and the columns that were not counted are never unique.
+   * The unique columns rank by split score, the best first, when they were scored,
+   * then by ordinal, so the same table model always gives the same column.
    *
    * @param tableModel The table model.
-   * @return The first column with its distinct count equal to the total count, otherwise returns "-1".
+   * @return The first ranked unique column, otherwise returns "-1".
    */
   private String compareColumnsByTotalRow(TableModel tableModel) {
-    return tableModel.getColumnWithCount()
-      .entrySet().parallelStream()
-      .filter(x -> x.getValue() == tableModel.getTotalCount())
-      .findFirst()
-      .map(Map.Entry::getKey)
-      .orElse("-1");
+    Map<String, SplitStatsModel> splitStats = tableModel.getSplitStatsByColumn();
+    String[] columnNames = tableModel.getColumnNames();
+    long[] distinctCounts = tableModel.getDistinctCounts();
+    String uniqueColumn = "-1";
+    double bestScore = Double.NEGATIVE_INFINITY;
+    if (tableModel.getTotalCount() < 0) {
+      return uniqueColumn;
+    }
+    // A few columns at most, so a plain scan rather than a stream
+    for (int i = 0; i < distinctCounts.length; i++) {
+      if (distinctCounts[i] < 0 || distinctCounts[i] != tableModel.getTotalCount()) {
+        continue;
+      }
+      SplitStatsModel stats = splitStats.get(columnNames[i]);
+      double score = stats != null ? stats.getScore() : -1;
+      // Strictly better only, so a tie keeps the lower ordinal
+      if (score > bestScore) {
+        uniqueColumn = columnNames[i];
+        bestScore = score;
+      }
+    }
+    return uniqueColumn;
   }
 
   /**
-   * Determines the unique column of a table model.
+   * Determines the unique column of a table model, and why it was chosen,
+   * then sets them to the plan detail model.
+   * The unique column is "-1" if there is none.
    *
-   * @param tableModel The table model.
-   * @return The unique column.
+   * @param tableModel      The table model.
+   * @param planDetailModel The plan detail model to set the unique column and the reason to.
    */
-  private String determineUniqueColumn(TableModel tableModel) {
-    // If Primary key is the only one key, it must be unique (not Composite primary key)
+  private void determineUniqueColumn(TableModel tableModel, PlanDetailModel planDetailModel) {
     String uniqueColumn = "-1";
-    if (tableModel.getPrimaryKeys().size() == 1) {
+    String reason = "none";
+    if (tableModel.getUniqueKey() != null) {
+      // A single-column unique key, found from the catalog without profiling
+      uniqueColumn = tableModel.getUniqueKey().getColumnName();
+      reason = tableModel.getUniqueKey().getKeyType() + "=" + tableModel.getUniqueKey().getIndexName();
+    } else if (tableModel.getPrimaryKeys().size() == 1) {
+      // If Primary key is the only one key, it must be unique (not Composite primary key)
       uniqueColumn = tableModel.getPrimaryKeys().get(0);
+      reason = "primary_key";
     } else {
+      // A distinct count estimated from statistics may be rounded to the total count, so it is told apart
       uniqueColumn = compareColumnsByTotalRow(tableModel);
+      reason = tableModel.isEstimated() ? "stats_estimate" : "distinct_count";
     }
 
     // Reverse keyword in Sqoop
     if (uniqueColumn.equalsIgnoreCase("Key")) {
       uniqueColumn = "-1";
+      reason = "reserved_keyword";
+    } else if (uniqueColumn.equals("-1")) {
+      reason = "none";
     }
 
-    return uniqueColumn;
+    // A table that fell back to a cheaper strategy is flagged, as its split column is less certain
+    if (tableModel.getFallback() != null) {
+      reason = reason + ",fallback=" + tableModel.getFallback();
+    }
+
+    planDetailModel.setUniqueColumn(uniqueColumn);
+    planDetailModel.setReason(reason);
+    planDetailModel.setSplitStats(tableModel.getSplitStatsByColumn().get(uniqueColumn));
+    planDetailModel.setSplitScore(planDetailModel.getSplitStats() != null ? planDetailModel.getSplitStats().getScore() : -1);
   }
 
   /**
    * Creates a plan detail model based on the provided table model entry.
+   * It only depends on the table itself, so tables can be planned one by one as they are profiled,
+   * or all at once in parallel.
    *
    * @param entry The table model entry.
    * @return The plan detail model.
    */
-  private PlanDetailModel createPlanDetailModel(Map.Entry<String, TableModel> entry) {
-    String tableName = entry.getKey();
-    TableModel tableModel = entry.getValue();
-    String uniqueColumn = determineUniqueColumn(tableModel);
-
-    logger.info("db={}, schema_table={}, unique_column={}", tableName, tableName, uniqueColumn);
+  public PlanDetailModel createPlanDetailModel(Map.Entry<String, TableModel> entry) {
+    return createPlanDetailModel(entry.getKey(), entry.getValue());
+  }
 
-    return PlanDetailModel.builder()
+  /**
+   * Creates a plan detail model based on the provided table model.
+   *
+   * @param tableName  The key of the table.
+   * @param tableModel The table model.
+   * @return The plan detail model.
+   */
+  public PlanDetailModel createPlanDetailModel(String tableName, TableModel tableModel) {
+    PlanDetailModel planDetailModel = PlanDetailModel.builder()
       .tableName(tableName)
-      .uniqueColumn(uniqueColumn)
-      .tableModel(tableModel)
+      .rowCount(tableModel.getTotalCount())
       .build();
+    determineUniqueColumn(tableModel, planDetailModel);
+
+    logger.info("db={}, schema_table={}, unique_column={}, reason={}, split_score={}",
+      tableName, tableName, planDetailModel.getUniqueColumn(), planDetailModel.getReason(), planDetailModel.getSplitScore());
+
+    return planDetailModel;
   }
 
   /**
@@ -107,9 +162,14 @@ public class MakingPlanProcessor {
   public PlanModel makeAndGet(DbModel dbModel) {
     logger.info("db={},msg=Start making plan process", dbModel.getDbName());
 
-    // Generate plan details
-    List<PlanDetailModel> planDetails = dbModel.getTableMap().entrySet().stream()
-      .map(this::createPlanDetailModel)
+    // Generate plan details, in parallel across tables, as each table is planned on its own.
+    // The tables are in key order whatever the order they were profiled in,
+    // and the parallel stream keeps that order, so the same model always gives the same plan
+    Map<String, TableModel> tableMap = dbModel.getTableMap();
+    List<String> tableKeys = new ArrayList<>(tableMap.keySet());
+    Collections.sort(tableKeys);
+    List<PlanDetailModel> planDetails = tableKeys.parallelStream()
+      .map(tableKey -> createPlanDetailModel(tableKey, tableMap.get(tableKey)))
       .collect(Collectors.toList());
 
     // Build and return the plan model
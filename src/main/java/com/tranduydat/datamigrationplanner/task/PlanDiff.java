@@ -0,0 +1,270 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.model.PlanChangeModel;
+import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.tranduydat.datamigrationplanner.utils.JsonUtil.getValue;
+import static com.tranduydat.datamigrationplanner.utils.JsonUtil.quote;
+
+/**
+ * To find the tables whose plan changed since the previous plan: the added and removed tables,
+ * and the tables with a new split column or a row count that shifted by at least a given share.
+ * Row counts are only in NDJSON plans, so a shift is only found when both plans are NDJSON.
+ * <p>
+ * The previous plan is loaded first, then the new plan is compared table by table as it is planned,
+ * so the diff works in streaming mode too. The changes are saved in table key order.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class PlanDiff {
+  private static final Logger logger = LogManager.getLogger(PlanDiff.class);
+  // The previous plan by table, removed once the table is in the new plan, so the rest are the removed tables
+  private final Map<String, PlanDetailModel> previousDetails;
+  // The share of the previous row count from which a row count shift is a change, e.g. 0.5 for 50%
+  private final double rowCountShift;
+  private final List<PlanChangeModel> changes = new ArrayList<>();
+
+  private PlanDiff(Map<String, PlanDetailModel> previousDetails, double rowCountShift) {
+    this.previousDetails = previousDetails;
+    this.rowCountShift = rowCountShift;
+  }
+
+  /**
+   * Loads the previous plan.
+   *
+   * @param saveFilePath  The path of the previous plan, in text or NDJSON.
+   * @param format        The format of the previous plan.
+   * @param delimiter     The delimiter of a text plan.
+   * @param rowCountShift The share of the previous row count from which a row count shift is a change.
+   * @return The diff against the previous plan, with no previous table if there is no previous plan.
+   * @throws IOException If the previous plan cannot be read.
+   */
+  public static PlanDiff load(String saveFilePath, PlanFormat format, String delimiter, double rowCountShift)
+    throws IOException {
+    Map<String, PlanDetailModel> previousDetails = new HashMap<>();
+    Path path = Paths.get(saveFilePath);
+    if (!Files.isRegularFile(path)) {
+      logger.warn("save_file_path={},msg=No previous plan to diff against, all tables are added", saveFilePath);
+      return new PlanDiff(previousDetails, rowCountShift);
+    }
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        PlanDetailModel x = format == PlanFormat.NDJSON ? parseJson(line) : parseLine(line, delimiter);
+        if (x != null) {
+          previousDetails.put(x.getTableName(), x);
+        }
+      }
+    }
+    logger.info("save_file_path={},count_table={},msg=Loaded previous plan", saveFilePath, previousDetails.size());
+    return new PlanDiff(previousDetails, rowCountShift);
+  }
+
+  /**
+   * Deletes the diff of a plan, e.g. when the plan was not saved, so the diff of an older plan is not taken for it.
+   *
+   * @param saveFilePath The path of the diff.
+   */
+  public static void delete(String saveFilePath) {
+    try {
+      if (Files.deleteIfExists(Paths.get(saveFilePath))) {
+        logger.warn("save_file_path={},msg=Deleted the plan diff, which is not of the current plan", saveFilePath);
+      }
+    } catch (IOException e) {
+      logger.warn("save_file_path={},msg=Failed to delete plan diff,e={}", saveFilePath, e.getMessage());
+    }
+  }
+
+  /**
+   * Compares the plan of a table with its previous plan. Tables may come from several threads.
+   *
+   * @param x The plan detail of the table.
+   */
+  public synchronized void add(PlanDetailModel x) {
+    PlanDetailModel previous = this.previousDetails.remove(x.getTableName());
+    if (previous == null) {
+      this.changes.add(PlanChangeModel.builder()
+        .change("added")
+        .tableName(x.getTableName())
+        .uniqueColumn(x.getUniqueColumn())
+        .previousRowCount(-1)
+        .rowCount(x.getRowCount())
+        .build());
+      return;
+    }
+
+    List<String> changedFields = new ArrayList<>();
+    if (!previous.getUniqueColumn().equals(x.getUniqueColumn())) {
+      changedFields.add("split_column");
+    }
+    if (previous.getRowCount() >= 0 && x.getRowCount() >= 0
+      && Math.abs(x.getRowCount() - previous.getRowCount()) >= this.rowCountShift * Math.max(1, previous.getRowCount())) {
+      changedFields.add("row_count");
+    }
+    if (!changedFields.isEmpty()) {
+      this.changes.add(PlanChangeModel.builder()
+        .change("changed")
+        .tableName(x.getTableName())
+        .previousUniqueColumn(previous.getUniqueColumn())
+        .uniqueColumn(x.getUniqueColumn())
+        .previousRowCount(previous.getRowCount())
+        .rowCount(x.getRowCount())
+        .changedFields(changedFields)
+        .build());
+    }
+  }
+
+  /**
+   * Saves the changes, the tables left from the previous plan being the removed ones.
+   * A text diff has one line per table: `<change>%<table>%<split column>%<what changed>`,
+   * with the split column of the previous plan for a removed table,
+   * and an NDJSON diff has one object per table with both the previous and the new split column and row count.
+   *
+   * @param saveFilePath The path of the file to save the changes to.
+   * @param format       The format of the plan, text or NDJSON.
+   * @param delimiter    The delimiter of a text diff.
+   * @return true if the file was saved, otherwise false.
+   */
+  public synchronized boolean write(String saveFilePath, PlanFormat format, String delimiter) {
+    List<PlanChangeModel> allChanges = new ArrayList<>(this.changes);
+    for (PlanDetailModel previous : this.previousDetails.values()) {
+      allChanges.add(PlanChangeModel.builder()
+        .change("removed")
+        .tableName(previous.getTableName())
+        .previousUniqueColumn(previous.getUniqueColumn())
+        .previousRowCount(previous.getRowCount())
+        .rowCount(-1)
+        .build());
+    }
+    allChanges.sort(Comparator.comparing(PlanChangeModel::getTableName));
+
+    try (PlanFileWriter writer = new PlanFileWriter(Paths.get(saveFilePath))) {
+      for (PlanChangeModel x : allChanges) {
+        writer.write(format == PlanFormat.NDJSON ? formatJson(x) : formatLine(x, delimiter));
+      }
+      writer.commit();
+    } catch (IOException e) {
+      logger.error("save_file_path={},msg=Failed to save plan diff,e={}", saveFilePath, e.getMessage());
+      return false;
+    }
+    logger.info("save_file_path={},count_change={},msg=Saved plan diff", saveFilePath, allChanges.size());
+    return true;
+  }
+
+  /**
+   * Formats a change as a line of a text diff.
+   *
+   * @param x         The change.
+   * @param delimiter The delimiter.
+   * @return The line, with its line break.
+   */
+  static String formatLine(PlanChangeModel x, String delimiter) {
+    String changedFields;
+    if (x.getChange().equals("changed")) {
+      // Each field is built on its own, as a split column may have any name, e.g. "row_count"
+      List<String> fields = new ArrayList<>(x.getChangedFields().size());
+      for (String field : x.getChangedFields()) {
+        switch (field) {
+          case "split_column":
+            fields.add("split_column=" + x.getPreviousUniqueColumn() + "->" + x.getUniqueColumn());
+            break;
+          case "row_count":
+            fields.add("row_count=" + x.getPreviousRowCount() + "->" + x.getRowCount());
+            break;
+          default:
+            fields.add(field);
+            break;
+        }
+      }
+      changedFields = String.join(",", fields);
+    } else {
+      changedFields = x.getChange().equals("added") ? "new_table" : "dropped_table";
+    }
+    return x.getChange() + delimiter + x.getTableName() + delimiter
+      + (x.getChange().equals("removed") ? x.getPreviousUniqueColumn() : x.getUniqueColumn()) + delimiter
+      + changedFields + "\n";
+  }
+
+  /**
+   * Formats a change as a line of an NDJSON diff. A split column or row count is null if unknown or none.
+   *
+   * @param x The change.
+   * @return The JSON object on one line, with its line break.
+   */
+  static String formatJson(PlanChangeModel x) {
+    return "{\"change\": " + quote(x.getChange())
+      + ", \"table\": " + quote(x.getTableName())
+      + ", \"previous_split_column\": " + quote(splitColumnOrNull(x.getPreviousUniqueColumn()))
+      + ", \"split_column\": " + quote(splitColumnOrNull(x.getUniqueColumn()))
+      + ", \"previous_row_count\": " + (x.getPreviousRowCount() < 0 ? "null" : String.valueOf(x.getPreviousRowCount()))
+      + ", \"row_count\": " + (x.getRowCount() < 0 ? "null" : String.valueOf(x.getRowCount()))
+      + ", \"changed_fields\": " + quote(x.getChangedFields() == null ? null : String.join(",", x.getChangedFields()))
+      + "}\n";
+  }
+
+  private static String splitColumnOrNull(String uniqueColumn) {
+    return uniqueColumn == null || uniqueColumn.equals("-1") ? null : uniqueColumn;
+  }
+
+  /**
+   * Parses a line of a text plan.
+   *
+   * @param line      The line, `<table>%<split column>%<reason>`.
+   * @param delimiter The delimiter.
+   * @return The plan detail, with an unknown row count, or null if the line is not a plan line.
+   */
+  private static PlanDetailModel parseLine(String line, String delimiter) {
+    String[] fields = line.split(Pattern.quote(delimiter), 3);
+    if (fields.length < 2) {
+      return null;
+    }
+    return PlanDetailModel.builder()
+      .tableName(fields[0])
+      .uniqueColumn(fields[1])
+      .reason(fields.length > 2 ? fields[2] : null)
+      .rowCount(-1)
+      .build();
+  }
+
+  /**
+   * Parses a line of an NDJSON plan.
+   *
+   * @param line The JSON object of a table.
+   * @return The plan detail, or null if the line has no table.
+   */
+  private static PlanDetailModel parseJson(String line) {
+    String tableName = getValue(line, "table");
+    if (tableName == null) {
+      return null;
+    }
+    String uniqueColumn = getValue(line, "split_column");
+    String rowCount = getValue(line, "row_count");
+    return PlanDetailModel.builder()
+      .tableName(tableName)
+      .uniqueColumn(uniqueColumn != null ? uniqueColumn : "-1")
+      .reason(getValue(line, "reason"))
+      .rowCount(rowCount != null ? Long.parseLong(rowCount) : -1)
+      .build();
+  }
+}
@@ -0,0 +1,114 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.Constant;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * To write a plan file in UTF-8 through a buffered FileChannel, so that the records go out in large sequential writes.
+ * The records go to a temp file next to the plan file, which is renamed to the plan file on commit,
+ * so a consumer of the plan file never sees a partial one: it sees the previous file or the complete new one.
+ * Closing without commit discards the temp file.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class PlanFileWriter implements Closeable {
+  private final Path path;
+  private final Path tempPath;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private boolean committed = false;
+
+  /**
+   * @param path The path of the plan file, whose directory is created if needed.
+   * @throws IOException If the temp file cannot be created.
+   */
+  public PlanFileWriter(Path path) throws IOException {
+    this(path, Constant.PLAN_WRITE_BUFFER_BYTES);
+  }
+
+  /**
+   * @param path        The path of the plan file, whose directory is created if needed.
+   * @param bufferBytes The size of the buffer, small for a small file.
+   * @throws IOException If the temp file cannot be created.
+   */
+  public PlanFileWriter(Path path, int bufferBytes) throws IOException {
+    this.path = path.toAbsolutePath();
+    this.buffer = ByteBuffer.allocate(bufferBytes);
+    this.tempPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+    Files.createDirectories(this.path.getParent());
+    this.channel = FileChannel.open(this.tempPath,
+      StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Appends text to the plan file.
+   *
+   * @param text The text.
+   * @throws IOException If an error occurs.
+   */
+  public void write(String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > this.buffer.remaining()) {
+      this.drain();
+    }
+    if (bytes.length > this.buffer.capacity()) {
+      ByteBuffer large = ByteBuffer.wrap(bytes);
+      while (large.hasRemaining()) {
+        this.channel.write(large);
+      }
+      return;
+    }
+    this.buffer.put(bytes);
+  }
+
+  /**
+   * Writes out the rest of the buffer, syncs the temp file to disk, then renames it to the plan file,
+   * atomically if the file system supports it.
+   *
+   * @throws IOException If an error occurs, in which case the plan file is left as it was.
+   */
+  public void commit() throws IOException {
+    this.drain();
+    this.channel.force(true);
+    this.channel.close();
+    try {
+      Files.move(this.tempPath, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(this.tempPath, this.path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    this.committed = true;
+  }
+
+  /**
+   * Closes the plan file, discarding it if it was not committed.
+   *
+   * @throws IOException If an error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!this.committed) {
+      this.channel.close();
+      Files.deleteIfExists(this.tempPath);
+    }
+  }
+
+  private void drain() throws IOException {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.channel.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+}
@@ -0,0 +1,150 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
+import com.tranduydat.datamigrationplanner.model.TableModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * To plan the tables of a database one by one as they are profiled, and append each plan record to the plan,
+ * so no table model is kept once it is planned.
+ * The plan is committed at the end only if every table was written, so a failed run leaves no partial plan,
+ * and the plan file only appears then, except the per-table Sqoop options files which appear one by one.
+ * <p>
+ * The table models come through a bounded queue: when the writer falls behind, the profiling workers wait on it.
+ * The writer keeps taking from the queue until the end marker even if the file fails, so the workers never hang.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class PlanStreamWriter implements Runnable {
+  // Put into the queue after the last table
+  public static final Map.Entry<String, TableModel> END = new AbstractMap.SimpleImmutableEntry<>(null, null);
+  private static final Logger logger = LogManager.getLogger(PlanStreamWriter.class);
+  private final BlockingQueue<Map.Entry<String, TableModel>> queue;
+  private final TargetModel target;
+  private final PlanFormat format;
+  private final String delimiter;
+  // Whether to keep the planned tables, which hold no table model, for the split boundaries
+  private final boolean keepDetails;
+  // Compares each planned table with the previous plan, null if no plan diff
+  private final PlanDiff diff;
+  @Getter
+  private final List<PlanDetailModel> details = new ArrayList<>();
+  @Getter
+  private volatile boolean succeeded;
+  // Whether a table could not be handed over, so the plan misses it and must not be committed
+  private volatile boolean aborted;
+  @Getter
+  private volatile int numberOfTables;
+
+  public PlanStreamWriter(BlockingQueue<Map.Entry<String, TableModel>> queue,
+                          TargetModel target,
+                          PlanFormat format,
+                          String delimiter,
+                          boolean keepDetails,
+                          PlanDiff diff) {
+    this.queue = queue;
+    this.target = target;
+    this.format = format;
+    this.delimiter = delimiter;
+    this.keepDetails = keepDetails;
+    this.diff = diff;
+  }
+
+  @Override
+  public void run() {
+    MakingPlanProcessor processor = new MakingPlanProcessor();
+    String dbName = target.getDbName();
+    String saveFilePath = target.getSavePath();
+    PlanWriter writer = null;
+    boolean failed = false;
+    try {
+      writer = new PlanWriter(saveFilePath, format, delimiter, target);
+    } catch (IOException e) {
+      logger.fatal("db={},save_file_path={},msg=Failed to open plan file,e={}", dbName, saveFilePath, e.getMessage());
+      failed = true;
+    }
+
+    while (true) {
+      Map.Entry<String, TableModel> entry;
+      try {
+        entry = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failed = true;
+        break;
+      }
+      if (entry == END) {
+        break;
+      }
+
+      PlanDetailModel planDetail = processor.createPlanDetailModel(entry);
+      numberOfTables++;
+      if (keepDetails) {
+        details.add(planDetail);
+      }
+      if (writer == null) {
+        continue;
+      }
+      try {
+        writer.append(planDetail);
+        if (diff != null) {
+          diff.add(planDetail);
+        }
+      } catch (IOException e) {
+        logger.fatal("db={},table={},save_file_path={},msg=Failed to write,e={}",
+          dbName, planDetail.getTableName(), saveFilePath, e.getMessage());
+        failed = true;
+        this.close(writer, false);
+        writer = null;
+      }
+    }
+
+    // Committed only if every table was written, so not after an interruption either
+    failed = failed || this.aborted;
+    if (writer != null && !this.close(writer, !failed)) {
+      failed = true;
+    }
+    this.succeeded = !failed;
+    logger.info("db={},count_table={},succeeded={},msg=Finished PlanStreamWriter", dbName, numberOfTables, succeeded);
+  }
+
+  /**
+   * Marks the plan as missing a table, so it is discarded instead of committed once the end marker is taken.
+   */
+  public void abort() {
+    this.aborted = true;
+  }
+
+  /**
+   * Closes the plan, committing it first if asked.
+   *
+   * @param writer The writer of the plan.
+   * @param commit Whether to commit the plan, otherwise it is discarded.
+   * @return true if it was committed or discarded as asked, otherwise false.
+   */
+  private boolean close(PlanWriter writer, boolean commit) {
+    try (PlanWriter closing = writer) {
+      if (commit) {
+        closing.commit();
+      }
+      return true;
+    } catch (IOException e) {
+      logger.fatal("db={},save_file_path={},msg=Failed to close plan file,e={}",
+        target.getDbName(), target.getSavePath(), e.getMessage());
+      return false;
+    }
+  }
+}
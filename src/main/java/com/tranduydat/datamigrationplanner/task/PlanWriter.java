@@ -1,45 +1,360 @@
 package com.tranduydat.datamigrationplanner.task;
 
+import com.tranduydat.datamigrationplanner.config.Config;
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
 import com.tranduydat.datamigrationplanner.model.PlanModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import com.tranduydat.datamigrationplanner.utils.SqlUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.tranduydat.datamigrationplanner.utils.JsonUtil.quote;
 
 /**
- * This class is responsible for writing the plan to a file.
+ * This class is responsible for writing the plan to a file, record by record as the tables are planned,
+ * in one of the plan formats. The plan only appears at the save path once it is complete:
+ * the text and NDJSON plans are renamed from a temp file on commit,
+ * and each Sqoop options file is renamed from its own temp file as soon as it is written.
+ * As the options files of a Sqoop plan appear one by one, the directory holds a manifest of them only once the plan
+ * is complete: the manifest is removed when the plan is opened, and written last on commit,
+ * after the options files of tables that are no longer in the plan were removed.
  *
  * @author Dat Tran (dattd6)
  * @version 0.1
  * @since 2023/07/13
  */
-public class PlanWriter {
+public class PlanWriter implements Closeable {
   private static final Logger logger = LogManager.getLogger(PlanWriter.class);
+  // The buffer size of a Sqoop options file, which holds a few lines
+  private static final int OPTIONS_BUFFER_BYTES = 4096;
+  // The list of the options files of a complete Sqoop plan, which cannot be taken for an options file
+  public static final String SQOOP_MANIFEST_FILE_NAME = "_manifest";
+  private final Config config = Config.getInstance();
+  private final String saveFilePath;
+  private final PlanFormat format;
+  private final String delimiter;
+  // The database of the plan, for the connection in Sqoop options files
+  private final TargetModel target;
+  // The plan file, null for Sqoop options files, which are one file per table
+  private final PlanFileWriter file;
+  // The names of the options files written, null if the plan is not a Sqoop plan
+  private final Set<String> optionsFileNames;
+
+  /**
+   * Opens the plan of a database.
+   *
+   * @param saveFilePath The path of the file to save the plan to, or of the directory of the Sqoop options files.
+   * @param format       The plan format.
+   * @param delimiter    The delimiter to separate the table name, unique column and reason in a text plan.
+   * @param target       The database of the plan.
+   * @throws IOException If the plan cannot be created.
+   */
+  public PlanWriter(String saveFilePath, PlanFormat format, String delimiter, TargetModel target) throws IOException {
+    this.saveFilePath = saveFilePath;
+    this.format = format;
+    this.delimiter = delimiter;
+    this.target = target;
+    if (format == PlanFormat.SQOOP) {
+      // Until the plan is committed, the directory is not a complete plan
+      Files.deleteIfExists(Files.createDirectories(Paths.get(saveFilePath)).resolve(SQOOP_MANIFEST_FILE_NAME));
+      this.file = null;
+      this.optionsFileNames = new HashSet<>();
+    } else {
+      this.file = new PlanFileWriter(Paths.get(saveFilePath));
+      this.optionsFileNames = null;
+    }
+  }
 
   /**
    * Saves the plan to a file.
    *
-   * @param saveFilePath The path of the file to save the plan to.
+   * @param saveFilePath The path of the file to save the plan to, or of the directory of the Sqoop options files.
+   * @param planModel    The PlanModel representing the plan.
+   * @param format       The plan format.
+   * @param delimiter    The delimiter to separate the table name, unique column and reason in a text plan.
+   * @param target       The database of the plan.
+   * @return true if the plan was saved, otherwise false, in which case no partial plan is left.
+   */
+  public static boolean write(String saveFilePath, PlanModel planModel, PlanFormat format, String delimiter,
+                              TargetModel target) {
+    try (PlanWriter writer = new PlanWriter(saveFilePath, format, delimiter, target)) {
+      for (PlanDetailModel x : planModel.getDetails()) {
+        writer.append(x);
+      }
+      writer.commit();
+    } catch (IOException e) {
+      logger.fatal("db={},save_file_path={},msg=Failed to save file,e={}", planModel.getDbName(), saveFilePath, e.getMessage());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Appends the plan of a table.
+   *
+   * @param x The plan detail of the table.
+   * @throws IOException If an error occurs.
+   */
+  public void append(PlanDetailModel x) throws IOException {
+    switch (this.format) {
+      case NDJSON:
+        this.file.write(formatJson(x));
+        break;
+      case SQOOP:
+        String optionsFileName = optionsFileName(x.getTableName());
+        try (PlanFileWriter options = new PlanFileWriter(Paths.get(this.saveFilePath, optionsFileName),
+          OPTIONS_BUFFER_BYTES)) {
+          options.write(formatSqoopOptions(x, this.target, this.config.getMssqlServerUsername(), this.config.getMappers()));
+          options.commit();
+        }
+        this.optionsFileNames.add(optionsFileName);
+        break;
+      default:
+        this.file.write(formatLine(x, this.delimiter));
+        break;
+    }
+  }
+
+  /**
+   * Completes the plan, which then replaces any previous plan at the save path.
+   *
+   * @throws IOException If an error occurs, in which case the previous plan is left as it was.
+   */
+  public void commit() throws IOException {
+    if (this.file != null) {
+      this.file.commit();
+    } else {
+      this.commitSqoop();
+    }
+  }
+
+  /**
+   * Completes a Sqoop plan: removes the options files of the tables that are not in the plan,
+   * and the temp files left by a killed run, then writes the manifest.
+   *
+   * @throws IOException If an error occurs, in which case the directory has no manifest.
+   */
+  private void commitSqoop() throws IOException {
+    Path dir = Paths.get(this.saveFilePath);
+    int removedFiles = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.{options,options.tmp}")) {
+      for (Path path : files) {
+        if (!this.optionsFileNames.contains(path.getFileName().toString())) {
+          Files.delete(path);
+          removedFiles++;
+        }
+      }
+    }
+    try (PlanFileWriter manifest = new PlanFileWriter(dir.resolve(SQOOP_MANIFEST_FILE_NAME))) {
+      for (String optionsFileName : new TreeSet<>(this.optionsFileNames)) {
+        manifest.write(optionsFileName + "\n");
+      }
+      manifest.commit();
+    }
+    logger.info("db={},save_file_path={},count_options_file={},count_removed_file={},msg=Committed Sqoop plan",
+      this.target.getDbName(), this.saveFilePath, this.optionsFileNames.size(), removedFiles);
+  }
+
+  /**
+   * Closes the plan, discarding it if it was not committed, or leaving a Sqoop plan without its manifest.
+   *
+   * @throws IOException If an error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.file != null) {
+      this.file.close();
+    }
+  }
+
+  /**
+   * Formats a plan detail as a line of the text plan.
+   *
+   * @param x         The plan detail.
+   * @param delimiter The delimiter to separate the table name, unique column and reason.
+   * @return The line, with its line break.
+   */
+  static String formatLine(PlanDetailModel x, String delimiter) {
+    return x.getTableName() + delimiter + x.getUniqueColumn() + delimiter + x.getReason() + "\n";
+  }
+
+  /**
+   * Formats a plan detail as a line of the NDJSON plan. The split column, its score and stats,
+   * and the split boundaries are null when there are none.
+   *
+   * @param x The plan detail.
+   * @return The JSON object on one line, with its line break.
+   */
+  static String formatJson(PlanDetailModel x) {
+    StringBuilder json = new StringBuilder(256)
+      .append("{\"table\": ").append(quote(x.getTableName()))
+      .append(", \"split_column\": ").append(quote(x.getUniqueColumn().equals("-1") ? null : x.getUniqueColumn()))
+      .append(", \"reason\": ").append(quote(x.getReason()))
+      .append(", \"row_count\": ").append(x.getRowCount())
+      .append(", \"split_score\": ").append(x.getSplitScore() < 0 ? "null" : formatNumber(x.getSplitScore()));
+    SplitStatsModel stats = x.getSplitStats();
+    json.append(", \"split_stats\": ");
+    if (stats == null) {
+      json.append("null");
+    } else {
+      json.append("{\"data_type\": ").append(quote(stats.getDataType()))
+        .append(", \"min_value\": ").append(quote(stats.getMinValue()))
+        .append(", \"max_value\": ").append(quote(stats.getMaxValue()))
+        .append(", \"balance\": ").append(formatNumber(stats.getBalance()))
+        .append(", \"score\": ").append(formatNumber(stats.getScore())).append("}");
+    }
+    json.append(", \"split_boundaries\": ");
+    if (x.getSplitBoundaries() == null) {
+      json.append("null");
+    } else {
+      json.append("[");
+      for (int i = 0; i < x.getSplitBoundaries().size(); i++) {
+        json.append(i == 0 ? "" : ", ").append(quote(x.getSplitBoundaries().get(i)));
+      }
+      json.append("]");
+    }
+    return json.append("}\n").toString();
+  }
+
+  /**
+   * Formats a plan detail as a Sqoop options file, to run as
+   * `sqoop import --target-dir <dir> --password-file <file> --options-file <file>`.
+   * The options file comes last, as the schema is an extra argument of the SQL Server connector, after `--`.
+   * A table without a split column is imported with one mapper.
+   *
+   * @param x        The plan detail.
+   * @param target   The database of the plan.
+   * @param username The user to connect with.
+   * @param mappers  The number of mappers of a table with a split column.
+   * @return The content of the options file.
+   */
+  static String formatSqoopOptions(PlanDetailModel x, TargetModel target, String username, int mappers) {
+    String[] schemaAndTable = SqlUtil.splitTableKey(x.getTableName());
+    StringBuilder options = new StringBuilder(512)
+      .append("# ").append(x.getTableName()).append(" of ").append(target.getDbName())
+      .append(", reason: ").append(x.getReason()).append("\n")
+      .append("# sqoop import --target-dir <dir> --password-file <file> --options-file <this file>\n")
+      .append("--connect\n")
+      .append(String.format("jdbc:sqlserver://%s:%d;databaseName=%s", target.getHost(), target.getPort(), target.getDbName()))
+      .append("\n")
+      .append("--username\n").append(username).append("\n")
+      .append("--table\n").append(schemaAndTable[1]).append("\n");
+    if (x.getUniqueColumn().equals("-1")) {
+      options.append("--num-mappers\n1\n");
+    } else {
+      options.append("--split-by\n").append(x.getUniqueColumn()).append("\n")
+        .append("--num-mappers\n").append(mappers).append("\n");
+    }
+    return options.append("--\n--schema\n").append(schemaAndTable[0]).append("\n").toString();
+  }
+
+  /**
+   * Gets the name of the Sqoop options file of a table, the schema and table names with every character
+   * but letters, digits, "_" and "-" percent-encoded, so that no two tables share a file, e.g. "a.b"."c" and "a"."b.c".
+   *
+   * @param tableKey The key of the table, "[schema].[table]".
+   * @return The file name, e.g. "dbo.Orders.options", or "dbo.Order%5Ds.options" for "Order]s".
+   */
+  static String optionsFileName(String tableKey) {
+    String[] schemaAndTable = SqlUtil.splitTableKey(tableKey);
+    return encodeFileName(schemaAndTable[0]) + "." + encodeFileName(schemaAndTable[1]) + ".options";
+  }
+
+  private static String encodeFileName(String name) {
+    StringBuilder encoded = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); ) {
+      int c = name.codePointAt(i);
+      int length = Character.charCount(c);
+      if (Character.isLetterOrDigit(c) || c == '_' || c == '-') {
+        encoded.appendCodePoint(c);
+      } else {
+        for (byte b : name.substring(i, i + length).getBytes(StandardCharsets.UTF_8)) {
+          encoded.append(String.format("%%%02X", b & 0xFF));
+        }
+      }
+      i += length;
+    }
+    return encoded.toString();
+  }
+
+  private static String formatNumber(double value) {
+    return String.format(Locale.ROOT, "%.6f", value).replaceAll("\\.?0+$", "");
+  }
+
+  /**
+   * Saves the precomputed split boundaries of the plan to a file, one line per table with boundaries:
+   * the table name, the split column, a `--boundary-query` for Sqoop, then, with quantile boundaries,
+   * one `WHERE` condition per mapper. The conditions cover all rows, including nulls and rows added later.
+   *
+   * @param saveFilePath The path of the file to save the boundaries to.
    * @param planModel    The PlanModel representing the plan.
-   * @param delimiter    The delimiter to separate the table name and unique column in the file.
-   */
-  public void write(String saveFilePath, PlanModel planModel, String delimiter) {
-    // Iterate over each PlanDetailModel in the planModel and write to the file
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(saveFilePath))) {
-      planModel.getDetails().forEach(x -> {
-        try {
-          writer.write(x.getTableName() + delimiter + x.getUniqueColumn() + "\n");
-        } catch (IOException e) {
-          logger.error("db={},table={},unique_column={},save_file_path={},msg=Failed to write",
-            planModel.getDbName(), x.getTableName(), x.getUniqueColumn(), saveFilePath);
-          logger.error(e.getStackTrace());
+   * @param delimiter    The delimiter to separate the fields in the file.
+   * @return true if the file was saved, otherwise false, in which case no partial file is left.
+   */
+  public static boolean writeBoundaries(String saveFilePath, PlanModel planModel, String delimiter) {
+    try (PlanFileWriter writer = new PlanFileWriter(Paths.get(saveFilePath))) {
+      for (PlanDetailModel x : planModel.getDetails()) {
+        List<String> boundaries = x.getSplitBoundaries();
+        if (boundaries == null || boundaries.isEmpty()) {
+          continue;
+        }
+        StringBuilder line = new StringBuilder()
+          .append(x.getTableName()).append(delimiter)
+          .append(x.getUniqueColumn()).append(delimiter)
+          .append("SELECT ").append(boundaries.get(0)).append(", ").append(boundaries.get(boundaries.size() - 1));
+        for (String range : buildRanges(SqlUtil.quoteName(x.getUniqueColumn()), boundaries)) {
+          line.append(delimiter).append(range);
         }
-      });
+        writer.write(line.append("\n").toString());
+      }
+      writer.commit();
     } catch (IOException e) {
-      logger.fatal("db={},save_file_path={},msg=Failed to save file", planModel.getDbName(), saveFilePath);
-      logger.fatal(e.getStackTrace());
+      logger.fatal("db={},save_file_path={},msg=Failed to save boundaries file,e={}", planModel.getDbName(), saveFilePath,
+        e.getMessage());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Builds one `WHERE` condition per part from the boundaries of a column.
+   * The first part also holds nulls, and the last part has no upper bound.
+   *
+   * @param column     The quoted column name.
+   * @param boundaries The low value of each part, then the max value.
+   * @return The conditions, empty if there is only one part.
+   */
+  private static List<String> buildRanges(String column, List<String> boundaries) {
+    List<String> ranges = new ArrayList<>();
+    int parts = boundaries.size() - 1;
+    if (parts <= 1) {
+      return ranges;
+    }
+    for (int i = 0; i < parts; i++) {
+      if (i == 0) {
+        ranges.add(column + " < " + boundaries.get(1) + " OR " + column + " IS NULL");
+      } else if (i == parts - 1) {
+        ranges.add(column + " >= " + boundaries.get(i));
+      } else {
+        ranges.add(column + " >= " + boundaries.get(i) + " AND " + column + " < " + boundaries.get(i + 1));
+      }
     }
+    return ranges;
   }
 }
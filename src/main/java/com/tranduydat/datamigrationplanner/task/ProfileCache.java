@@ -0,0 +1,135 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.model.ProfileCacheEntryModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import com.tranduydat.datamigrationplanner.model.TableModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * To keep the table profiles of a database on disk between runs,
+ * so only the tables that changed since they were profiled are profiled again.
+ * A cache file only holds profiles made with the same profile settings.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ProfileCache {
+  private static final Logger logger = LogManager.getLogger(ProfileCache.class);
+  private final Path path;
+  // The profile settings the profiles were made with
+  private final String settings;
+  // The profiles read from the cache file
+  private final Map<String, ProfileCacheEntryModel> loadedEntries;
+  // The profiles to be saved: the hits and the newly profiled tables, so dropped tables are left out
+  private final Map<String, ProfileCacheEntryModel> savedEntries = new ConcurrentHashMap<>();
+
+  private ProfileCache(Path path, String settings, Map<String, ProfileCacheEntryModel> loadedEntries) {
+    this.path = path;
+    this.settings = settings;
+    this.loadedEntries = loadedEntries;
+  }
+
+  /**
+   * Loads the cache from a file. A missing or unreadable file, or one made with other settings, gives an empty cache.
+   *
+   * @param path     The path of the cache file.
+   * @param settings The current profile settings.
+   * @return The cache.
+   */
+  @SuppressWarnings("unchecked")
+  public static ProfileCache load(Path path, String settings) {
+    Map<String, ProfileCacheEntryModel> entries = new HashMap<>();
+    if (Files.isRegularFile(path)) {
+      try (InputStream in = Files.newInputStream(path);
+           ObjectInputStream ois = new ObjectInputStream(in)) {
+        String cachedSettings = (String) ois.readObject();
+        if (settings.equals(cachedSettings)) {
+          entries = (Map<String, ProfileCacheEntryModel>) ois.readObject();
+        } else {
+          logger.info("cache_path={},cached_settings={},settings={},msg=Profile settings changed, ignoring cache",
+            path, cachedSettings, settings);
+        }
+      } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        logger.warn("cache_path={},msg=Failed to read profile cache, ignoring it,e={}", path, e.getMessage());
+      }
+    }
+    logger.info("cache_path={},count_cached_table={},msg=Loaded profile cache", path, entries.size());
+    return new ProfileCache(path, settings, entries);
+  }
+
+  /**
+   * Gets the cached profile of a table if the table did not change and the profile is not too old.
+   *
+   * @param tableKey    The key of the table, "[schema].[table]".
+   * @param fingerprint The current fingerprint of the table, null if unknown.
+   * @param maxAgeHours The max age of a profile.
+   * @return The cached table model, or null if the table has to be profiled.
+   */
+  public TableModel get(String tableKey, TableFingerprintModel fingerprint, int maxAgeHours) {
+    ProfileCacheEntryModel entry = this.loadedEntries.get(tableKey);
+    if (entry == null || fingerprint == null || entry.getTableModel().isIncomplete()
+      || !fingerprint.equals(entry.getFingerprint())
+      || entry.getProfiledAt().plusHours(maxAgeHours).isBefore(LocalDateTime.now())) {
+      return null;
+    }
+    this.savedEntries.put(tableKey, entry);
+    return entry.getTableModel();
+  }
+
+  /**
+   * Puts the profile of a table into the cache.
+   *
+   * @param tableKey The key of the table, "[schema].[table]".
+   * @param entry    The profile of the table, nothing is cached if its fingerprint is unknown or the profile is incomplete.
+   */
+  public void put(String tableKey, ProfileCacheEntryModel entry) {
+    if (entry.getFingerprint() == null || entry.getTableModel().isIncomplete()) {
+      return;
+    }
+    this.savedEntries.put(tableKey, entry);
+  }
+
+  /**
+   * Saves the cache to its file. It is written to a temporary file first and then renamed,
+   * so a failed run never leaves a broken cache behind.
+   */
+  public void save() {
+    Path tempPath = null;
+    try {
+      Path dir = this.path.toAbsolutePath().getParent();
+      Files.createDirectories(dir);
+      tempPath = Files.createTempFile(dir, this.path.getFileName().toString(), ".tmp");
+      try (OutputStream out = Files.newOutputStream(tempPath);
+           ObjectOutputStream oos = new ObjectOutputStream(out)) {
+        oos.writeObject(this.settings);
+        oos.writeObject(new HashMap<>(this.savedEntries));
+      }
+      Files.move(tempPath, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      logger.info("cache_path={},count_cached_table={},msg=Saved profile cache", this.path, this.savedEntries.size());
+    } catch (IOException e) {
+      logger.warn("cache_path={},msg=Failed to save profile cache,e={}", this.path, e.getMessage());
+      if (tempPath != null) {
+        try {
+          Files.deleteIfExists(tempPath);
+        } catch (IOException ignored) {
+          // Nothing else to do, the old cache file is untouched
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.model.ProfileCacheEntryModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * To append the profile of each finished table to a journal file as soon as it is done,
+ * so a run that crashes or is killed can be resumed without profiling those tables again.
+ * <p>
+ * The journal is a header record with the profile settings, then one record per table.
+ * Each record is its length followed by its serialized content, and is forced to disk before the next one,
+ * so at most the record being written is lost, and a torn last record is cut off when the journal is replayed.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ProfileJournal implements Closeable {
+  private static final Logger logger = LogManager.getLogger(ProfileJournal.class);
+  // A bigger record can only be a broken length
+  private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+  private final Path path;
+  // The open journal file, null if it could not be opened
+  private final FileChannel channel;
+  // The profiles replayed from the journal of a previous run
+  private final Map<String, ProfileCacheEntryModel> replayedEntries;
+  private final Thread shutdownHook;
+  private boolean closed;
+
+  private ProfileJournal(Path path, FileChannel channel, Map<String, ProfileCacheEntryModel> replayedEntries) {
+    this.path = path;
+    this.channel = channel;
+    this.replayedEntries = replayedEntries;
+    this.closed = channel == null;
+    // Close the journal on SIGTERM, so the last record is on disk before the JVM exits
+    this.shutdownHook = new Thread(this::closeQuietly, "dmp-journal-shutdown");
+    if (channel != null) {
+      Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+  }
+
+  /**
+   * Gets the path of the journal that goes with a plan file.
+   *
+   * @param savePath The file path to save the plan.
+   * @return The path of the journal.
+   */
+  public static Path pathOf(String savePath) {
+    return Paths.get(savePath + ".journal");
+  }
+
+  /**
+   * Opens the journal for appending. When resuming, the records of a previous run with the same settings
+   * are replayed first, otherwise the journal is started over.
+   * A journal left by a previous run that is not resumed is moved aside to "<journal>.old" rather than lost,
+   * so it can still be resumed by hand.
+   * If the journal cannot be opened, the run goes on without one.
+   *
+   * @param path     The path of the journal.
+   * @param settings The profile settings of the run, which the journal must match to be resumed.
+   * @param resume   Whether to replay the journal of a previous run.
+   * @return The journal.
+   */
+  public static ProfileJournal open(Path path, String settings, boolean resume) {
+    Map<String, ProfileCacheEntryModel> entries = new HashMap<>();
+    FileChannel channel = null;
+    try {
+      if (!resume && Files.isRegularFile(path) && Files.size(path) > 0) {
+        Path oldPath = Paths.get(path + ".old");
+        logger.warn("journal_path={},old_journal_path={},msg=A journal of a previous run exists but --resume is not set, moving it aside",
+          path, oldPath);
+        Files.move(path, oldPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      long validSize = 0;
+      if (resume && channel.size() > 0) {
+        validSize = replay(channel, settings, entries);
+      }
+      channel.truncate(validSize);
+      channel.position(validSize);
+      if (validSize == 0) {
+        entries.clear();
+        write(channel, serialize(settings, null));
+      }
+      logger.info("journal_path={},resume={},count_replayed_table={},msg=Opened profile journal", path, resume, entries.size());
+    } catch (IOException e) {
+      logger.warn("journal_path={},msg=Failed to open profile journal, running without it,e={}", path, e.getMessage());
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+          // Nothing else to do, the run goes on without a journal
+        }
+      }
+      channel = null;
+    }
+    return new ProfileJournal(path, channel, entries);
+  }
+
+  /**
+   * Gets a journal that neither replays nor appends anything, for a run without a journal.
+   *
+   * @param path The path the journal would have.
+   * @return The journal.
+   */
+  public static ProfileJournal disabled(Path path) {
+    return new ProfileJournal(path, null, new HashMap<>());
+  }
+
+  /**
+   * Deletes the journal of a plan, once the plan is saved and there is nothing left to resume.
+   *
+   * @param path The path of the journal.
+   */
+  public static void delete(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.warn("journal_path={},msg=Failed to delete profile journal,e={}", path, e.getMessage());
+    }
+  }
+
+  /**
+   * Reads the records of the journal until the end or the first broken record.
+   *
+   * @param channel  The journal file.
+   * @param settings The profile settings of the run.
+   * @param entries  The map to put the replayed profiles into.
+   * @return The size of the valid part of the journal, 0 if it was made with other settings.
+   * @throws IOException If the journal cannot be read.
+   */
+  private static long replay(FileChannel channel, String settings, Map<String, ProfileCacheEntryModel> entries) throws IOException {
+    long size = channel.size();
+    long position = 0;
+    ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    while (position + Integer.BYTES <= size) {
+      lengthBuffer.clear();
+      channel.read(lengthBuffer, position);
+      lengthBuffer.flip();
+      int length = lengthBuffer.getInt();
+      if (length <= 0 || length > MAX_RECORD_SIZE || position + Integer.BYTES + length > size) {
+        break;
+      }
+      ByteBuffer recordBuffer = ByteBuffer.allocate(length);
+      while (recordBuffer.hasRemaining()) {
+        channel.read(recordBuffer, position + Integer.BYTES + recordBuffer.position());
+      }
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(recordBuffer.array()))) {
+        String key = (String) ois.readObject();
+        if (position == 0) {
+          if (!settings.equals(key)) {
+            logger.warn("journal_settings={},settings={},msg=Profile settings changed, starting the journal over", key, settings);
+            return 0;
+          }
+        } else {
+          entries.put(key, (ProfileCacheEntryModel) ois.readObject());
+        }
+      } catch (ClassNotFoundException | ClassCastException | IOException e) {
+        logger.warn("position={},msg=Broken journal record, replaying up to it,e={}", position, e.getMessage());
+        break;
+      }
+      position += Integer.BYTES + length;
+    }
+    if (position < size) {
+      logger.warn("valid_size={},size={},msg=Cutting off the torn end of the journal", position, size);
+    }
+    return position;
+  }
+
+  /**
+   * Serializes a record: the settings for the header, or a table key and its profile.
+   *
+   * @param key   The settings or the table key.
+   * @param entry The profile of the table, null for the header.
+   * @return The content of the record.
+   * @throws IOException If the record cannot be serialized.
+   */
+  private static byte[] serialize(String key, ProfileCacheEntryModel entry) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(key);
+      if (entry != null) {
+        oos.writeObject(entry);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes a record at the end of the journal and forces it to disk.
+   *
+   * @param channel The journal file.
+   * @param record  The content of the record.
+   * @throws IOException If the record cannot be written.
+   */
+  private static void write(FileChannel channel, byte[] record) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + record.length);
+    buffer.putInt(record.length).put(record).flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * Gets the profile of a table replayed from the journal of a previous run, if the table did not change since.
+   *
+   * @param tableKey    The key of the table, "[schema].[table]".
+   * @param fingerprint The current fingerprint of the table, null if unknown.
+   * @return The replayed profile, or null if the table has to be profiled.
+   */
+  public ProfileCacheEntryModel getReplayedEntry(String tableKey, TableFingerprintModel fingerprint) {
+    ProfileCacheEntryModel entry = this.replayedEntries.get(tableKey);
+    if (entry == null) {
+      return null;
+    }
+    if (fingerprint == null || !fingerprint.equals(entry.getFingerprint())) {
+      logger.info("journal_path={},table={},msg=Table changed since it was journaled, profiling it again", this.path, tableKey);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Appends the profile of a finished table. A failure is logged, as the table is only profiled again on resume.
+   *
+   * @param tableKey The key of the table, "[schema].[table]".
+   * @param entry    The profile of the table.
+   */
+  public void append(String tableKey, ProfileCacheEntryModel entry) {
+    if (this.channel == null) {
+      return;
+    }
+    try {
+      // Serialized outside the lock, so only the write itself is serialized between workers
+      byte[] record = serialize(tableKey, entry);
+      synchronized (this) {
+        if (!this.closed) {
+          write(this.channel, record);
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("journal_path={},table={},msg=Failed to append to profile journal,e={}", this.path, tableKey, e.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+    } catch (IllegalStateException ignored) {
+      // The JVM is already shutting down, which is when the hook itself closes the journal
+    }
+    this.channel.force(true);
+    this.channel.close();
+  }
+
+  /**
+   * Closes the journal, logging any failure.
+   */
+  private void closeQuietly() {
+    try {
+      this.close();
+    } catch (IOException e) {
+      logger.warn("journal_path={},msg=Failed to close profile journal,e={}", this.path, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.Constant;
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+
+import java.util.List;
+
+/**
+ * Scoring unique columns by how evenly Sqoop would split a table on them.
+ * Sqoop splits the range between the min and max values of the split column
+ * into ranges of the same width, one per mapper, so gaps and skew make some mappers much busier.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class SplitScorer {
+  private SplitScorer() {
+    // Private constructor to prevent direct instantiation
+  }
+
+  /**
+   * Estimates the balance of the split from a value histogram: the share of rows of an average mapper
+   * over the share of rows of the busiest mapper. Rows of a bucket are taken as spread evenly
+   * between its low and high values.
+   *
+   * @param histogram The value histogram, may be built from a sample.
+   * @param minNumber The min value, as a number.
+   * @param maxNumber The max value, as a number.
+   * @param mappers   The number of mappers.
+   * @return The balance, from 1 (even) down to 1 / mappers, or 1 if there is no histogram.
+   */
+  public static double balance(List<HistogramBucketModel> histogram, double minNumber, double maxNumber, int mappers) {
+    if (histogram.isEmpty() || mappers <= 1 || maxNumber <= minNumber) {
+      return 1;
+    }
+
+    double width = (maxNumber - minNumber) / mappers;
+    double[] rowsByMapper = new double[mappers];
+    double totalRows = 0;
+    for (HistogramBucketModel bucket : histogram) {
+      double low = Math.max(minNumber, Math.min(bucket.getLowValue(), maxNumber));
+      double high = Math.max(minNumber, Math.min(bucket.getHighValue(), maxNumber));
+      totalRows += bucket.getRows();
+      if (high <= low) {
+        rowsByMapper[mapperOf(low, minNumber, width, mappers)] += bucket.getRows();
+        continue;
+      }
+      // Share the rows of the bucket between the ranges it overlaps
+      for (int i = mapperOf(low, minNumber, width, mappers); i <= mapperOf(high, minNumber, width, mappers); i++) {
+        double overlap = Math.min(high, minNumber + (i + 1) * width) - Math.max(low, minNumber + i * width);
+        if (overlap > 0) {
+          rowsByMapper[i] += bucket.getRows() * overlap / (high - low);
+        }
+      }
+    }
+
+    double busiestRows = 0;
+    for (double rows : rowsByMapper) {
+      busiestRows = Math.max(busiestRows, rows);
+    }
+    return busiestRows <= 0 ? 1 : totalRows / mappers / busiestRows;
+  }
+
+  /**
+   * Scores a unique column by its split balance and its data type.
+   * Integers split best, then other numbers, then dates and times.
+   * Other types (e.g. strings) are split on text by Sqoop, which is rarely even, so they score low.
+   *
+   * @param dataType The data type of the column.
+   * @param balance  The balance of the split.
+   * @return The score, the higher the better.
+   */
+  public static double score(String dataType, double balance) {
+    String type = dataType.toLowerCase();
+    if (Constant.INTEGER_DATA_TYPES.contains(type)) {
+      return balance;
+    }
+    if (Constant.NUMERIC_DATA_TYPES.contains(type)) {
+      return 0.9 * balance;
+    }
+    if (Constant.DATE_TIME_DATA_TYPES.contains(type)) {
+      return 0.8 * balance;
+    }
+    return 0.3 * balance;
+  }
+
+  /**
+   * Finds the mapper whose range holds the given value.
+   */
+  private static int mapperOf(double value, double minNumber, double width, int mappers) {
+    return Math.min(mappers - 1, Math.max(0, (int) ((value - minNumber) / width)));
+  }
+}
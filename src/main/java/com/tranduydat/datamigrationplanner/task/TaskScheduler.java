@@ -0,0 +1,216 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * To run the table tasks of all databases being planned, with a bounded number of tasks per instance,
+ * so the load on each source server stays capped, and a bounded number of tasks overall.
+ * <p>
+ * Each instance has its own workers, so a busy instance never holds up the tasks of another one,
+ * and every task takes one of the global permits while it runs.
+ * The workers of an instance take the biggest task first, so the longest tasks do not end up last,
+ * but only a few heavy tasks run at once on an instance: while they do, the other workers keep taking light tasks.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class TaskScheduler {
+  private static final Logger logger = LogManager.getLogger(TaskScheduler.class);
+  // The queues by instance, "host:port"
+  private final Map<String, InstanceQueue> queues = new ConcurrentHashMap<>();
+  private final Semaphore globalPermits;
+  private final int instanceParallelism;
+  private final int maxHeavyTasks;
+  // Keeps the submission order between tasks of the same size
+  private final AtomicLong sequence = new AtomicLong();
+  private volatile boolean shutdown;
+
+  /**
+   * @param parallelism         The max number of tasks running at once over all instances.
+   * @param instanceParallelism The max number of tasks running at once on a single instance.
+   * @param maxHeavyTasks       The max number of heavy tasks running at once on a single instance.
+   */
+  public TaskScheduler(int parallelism, int instanceParallelism, int maxHeavyTasks) {
+    this.globalPermits = new Semaphore(Math.max(1, parallelism), true);
+    this.instanceParallelism = Math.max(1, instanceParallelism);
+    this.maxHeavyTasks = Math.max(1, maxHeavyTasks);
+    logger.info("parallelism={},instance_parallelism={},max_heavy_tasks={},msg=Created task scheduler",
+      parallelism, this.instanceParallelism, this.maxHeavyTasks);
+  }
+
+  /**
+   * Submits a light task of no particular size that runs against an instance.
+   *
+   * @param instanceKey The key of the instance, "host:port".
+   * @param task        The task.
+   * @return The future of the task.
+   */
+  public Future<?> submit(String instanceKey, Runnable task) {
+    return this.submit(instanceKey, 0, false, task);
+  }
+
+  /**
+   * Submits a task that runs against an instance.
+   *
+   * @param instanceKey The key of the instance, "host:port".
+   * @param size        The size of the task, e.g. the page count of a table, bigger tasks run first.
+   * @param heavy       Whether the task counts against the heavy tasks of the instance.
+   * @param task        The task.
+   * @return The future of the task.
+   */
+  public Future<?> submit(String instanceKey, long size, boolean heavy, Runnable task) {
+    if (this.shutdown) {
+      throw new IllegalStateException("The task scheduler is shut down");
+    }
+    ScheduledTask scheduledTask = new ScheduledTask(task, size, heavy, this.sequence.getAndIncrement());
+    this.queues.computeIfAbsent(instanceKey, InstanceQueue::new).add(scheduledTask);
+    return scheduledTask;
+  }
+
+  /**
+   * Sets how many tasks may run at once on an instance, up to the number of its workers.
+   * Running tasks are never stopped, so a lower limit takes effect as they finish.
+   *
+   * @param instanceKey The key of the instance, "host:port".
+   * @param limit       The max number of tasks running at once.
+   */
+  public void setInstanceLimit(String instanceKey, int limit) {
+    this.queues.computeIfAbsent(instanceKey, InstanceQueue::new)
+      .setLimit(Math.max(1, Math.min(limit, this.instanceParallelism)));
+  }
+
+  /**
+   * Stops the workers of all instances once their tasks are done.
+   */
+  public void shutdown() {
+    this.shutdown = true;
+    this.queues.values().forEach(InstanceQueue::wakeUp);
+  }
+
+  /**
+   * A task with its size, ordered from the biggest, then by submission.
+   */
+  private static class ScheduledTask extends FutureTask<Void> {
+    private static final Comparator<ScheduledTask> BIGGEST_FIRST = Comparator
+      .comparingLong((ScheduledTask x) -> -x.size)
+      .thenComparingLong(x -> x.sequence);
+    private final long size;
+    private final boolean heavy;
+    private final long sequence;
+
+    ScheduledTask(Runnable task, long size, boolean heavy, long sequence) {
+      super(task, null);
+      this.size = size;
+      this.heavy = heavy;
+      this.sequence = sequence;
+    }
+  }
+
+  /**
+   * The pending tasks and the workers of an instance.
+   */
+  private class InstanceQueue {
+    private final PriorityQueue<ScheduledTask> heavyTasks = new PriorityQueue<>(ScheduledTask.BIGGEST_FIRST);
+    private final PriorityQueue<ScheduledTask> lightTasks = new PriorityQueue<>(ScheduledTask.BIGGEST_FIRST);
+    private int runningHeavyTasks;
+    private int runningTasks;
+    // The max number of tasks running at once, which may be lowered below the number of workers
+    private int limit = instanceParallelism;
+
+    InstanceQueue(String instanceKey) {
+      ThreadFactory threadFactory = new WorkerThreadFactory(instanceKey, "worker");
+      for (int i = 0; i < instanceParallelism; i++) {
+        threadFactory.newThread(this::work).start();
+      }
+    }
+
+    synchronized void add(ScheduledTask task) {
+      (task.heavy ? this.heavyTasks : this.lightTasks).add(task);
+      this.notifyAll();
+    }
+
+    synchronized void wakeUp() {
+      this.notifyAll();
+    }
+
+    synchronized void setLimit(int limit) {
+      this.limit = limit;
+      this.notifyAll();
+    }
+
+    /**
+     * Takes the biggest heavy task if another heavy task may run, otherwise the biggest light task,
+     * and waits if there is none, or if the instance already runs as many tasks as its limit.
+     *
+     * @return The task, or null once the scheduler is shut down and there is nothing left to run.
+     * @throws InterruptedException If the worker is interrupted while waiting.
+     */
+    private synchronized ScheduledTask take() throws InterruptedException {
+      while (true) {
+        if (this.runningTasks < this.limit) {
+          if (!this.heavyTasks.isEmpty() && this.runningHeavyTasks < maxHeavyTasks) {
+            this.runningHeavyTasks++;
+            this.runningTasks++;
+            return this.heavyTasks.poll();
+          }
+          if (!this.lightTasks.isEmpty()) {
+            this.runningTasks++;
+            return this.lightTasks.poll();
+          }
+        }
+        if (shutdown && this.heavyTasks.isEmpty() && this.lightTasks.isEmpty()) {
+          return null;
+        }
+        this.wait();
+      }
+    }
+
+    private synchronized void done(ScheduledTask task) {
+      if (task.heavy) {
+        this.runningHeavyTasks--;
+      }
+      this.runningTasks--;
+      this.notifyAll();
+    }
+
+    /**
+     * Runs the tasks of the instance until the scheduler is shut down and there is nothing left to run.
+     * A worker is only interrupted to cancel the task it runs, so the interrupt is cleared once the task is over,
+     * and never stops the worker or reaches the next task, which may belong to another database.
+     */
+    private void work() {
+      while (true) {
+        ScheduledTask task;
+        try {
+          task = this.take();
+        } catch (InterruptedException e) {
+          continue;
+        }
+        if (task == null) {
+          return;
+        }
+        // A task cancelled while waiting for a permit does not run
+        globalPermits.acquireUninterruptibly();
+        try {
+          task.run();
+        } finally {
+          Thread.interrupted();
+          globalPermits.release();
+          this.done(task);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names the worker threads after the instance or database and the task, so they can be told apart in the logs.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+class WorkerThreadFactory implements ThreadFactory {
+  private final AtomicInteger threadNumber = new AtomicInteger(1);
+  private final String namePrefix;
+
+  /**
+   * @param name     The name of the instance or database.
+   * @param taskName The name of the task, e.g. "worker".
+   */
+  WorkerThreadFactory(String name, String taskName) {
+    this.namePrefix = "dmp-" + name + "-" + taskName + "-";
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+    thread.setDaemon(true);
+    return thread;
+  }
+}
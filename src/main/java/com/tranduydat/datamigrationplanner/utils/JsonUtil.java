@@ -0,0 +1,79 @@
+package com.tranduydat.datamigrationplanner.utils;
+
+/**
+ * Utility class for writing JSON by hand, and reading back the flat objects written so.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class JsonUtil {
+  /**
+   * Quotes a value as a JSON string.
+   *
+   * @param value The value.
+   * @return The JSON string, e.g. "\"[dbo].[Orders]\"", or "null" if the value is null.
+   */
+  public static String quote(String value) {
+    if (value == null) {
+      return "null";
+    }
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append("\"").toString();
+  }
+
+  /**
+   * Reads the value of a key of a JSON object on one line, as written by {@link #quote}.
+   * The first occurrence of the key is read, so the key must not also be in a nested object before it.
+   *
+   * @param json The JSON object.
+   * @param key  The key.
+   * @return The string, or the number as written, or null if the value is null or the key is missing.
+   */
+  public static String getValue(String json, String key) {
+    String quotedKey = quote(key) + ":";
+    int i = json.indexOf(quotedKey);
+    if (i < 0) {
+      return null;
+    }
+    i += quotedKey.length();
+    while (i < json.length() && json.charAt(i) == ' ') {
+      i++;
+    }
+    if (i >= json.length() || json.startsWith("null", i)) {
+      return null;
+    }
+    if (json.charAt(i) != '"') {
+      int end = i;
+      while (end < json.length() && ",}] ".indexOf(json.charAt(end)) < 0) {
+        end++;
+      }
+      return json.substring(i, end);
+    }
+    StringBuilder value = new StringBuilder();
+    for (i++; i < json.length() && json.charAt(i) != '"'; i++) {
+      char c = json.charAt(i);
+      if (c == '\\' && i + 1 < json.length()) {
+        char escaped = json.charAt(++i);
+        if (escaped == 'u' && i + 4 < json.length()) {
+          value.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+          i += 4;
+        } else {
+          value.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped == 'r' ? '\r' : escaped);
+        }
+      } else {
+        value.append(c);
+      }
+    }
+    return value.toString();
+  }
+}
@@ -0,0 +1,31 @@
+package com.tranduydat.datamigrationplanner.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds each name of a catalog once, however many models and maps refer to it.
+ * Unlike `String.intern()`, the names are held in the heap, and only as long as the interner itself,
+ * so an interner is scoped to the catalog of one database and is not shared across threads.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class NameInterner {
+  private final Map<String, String> names = new HashMap<>();
+
+  /**
+   * Interns the name of a schema, table or column, the key of a table, or a data type.
+   *
+   * @param name The name.
+   * @return The same name as the first time it was interned, null if null.
+   */
+  public String intern(String name) {
+    if (name == null) {
+      return null;
+    }
+    String interned = this.names.putIfAbsent(name, name);
+    return interned != null ? interned : name;
+  }
+}
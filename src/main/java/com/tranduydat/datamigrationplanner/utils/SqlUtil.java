@@ -0,0 +1,96 @@
+package com.tranduydat.datamigrationplanner.utils;
+
+/**
+ * Utility class for building SQL Server queries.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class SqlUtil {
+  /**
+   * Quotes a name as a SQL Server delimited identifier, like `QUOTENAME()` does.
+   *
+   * @param name The name of a database, schema, table or column.
+   * @return The quoted name, e.g. "[Order]]s]" for "Order]s".
+   */
+  public static String quoteName(String name) {
+    return "[" + name.replace("]", "]]") + "]";
+  }
+
+  /**
+   * Builds the key of a table, which is used in the database model and the plan.
+   * Both names are quoted, so the key is a valid two-part name and no two tables share a key.
+   *
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @return The key of the table, e.g. "[dbo].[Orders]", or "[dbo].[Order]]s]" for "Order]s".
+   */
+  public static String tableKey(String schemaName, String tableName) {
+    return quoteName(schemaName) + "." + quoteName(tableName);
+  }
+
+  /**
+   * Builds the three-part name of a table, to select from it or to pass to `OBJECT_ID()`.
+   *
+   * @param dbName     The name of the database.
+   * @param schemaName The name of the schema.
+   * @param tableName  The name of the table.
+   * @return The three-part name, e.g. "[sales].[dbo].[Orders]".
+   */
+  public static String objectName(String dbName, String schemaName, String tableName) {
+    return quoteName(dbName) + "." + tableKey(schemaName, tableName);
+  }
+
+  /**
+   * Quotes a value as a SQL Server string literal, for the statements that take no bind parameters, e.g. `DBCC`.
+   *
+   * @param value The value.
+   * @return The literal, e.g. "N'it''s'" for "it's".
+   */
+  public static String quoteLiteral(String value) {
+    return "N'" + value.replace("'", "''") + "'";
+  }
+
+  /**
+   * Splits the key of a table back into its schema and table names, undoing the quoting of `tableKey`,
+   * so that a "]" or "." within a name is kept.
+   *
+   * @param tableKey The key of the table, e.g. "[dbo].[Order]]s]".
+   * @return The schema and table names, e.g. "dbo" and "Order]s".
+   * @throws IllegalArgumentException If the key is not two quoted names separated by a dot.
+   */
+  public static String[] splitTableKey(String tableKey) {
+    String[] names = new String[2];
+    int position = 0;
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0 && (position >= tableKey.length() || tableKey.charAt(position++) != '.')) {
+        throw new IllegalArgumentException("Invalid table key: " + tableKey);
+      }
+      if (position >= tableKey.length() || tableKey.charAt(position++) != '[') {
+        throw new IllegalArgumentException("Invalid table key: " + tableKey);
+      }
+      StringBuilder name = new StringBuilder();
+      while (true) {
+        if (position >= tableKey.length()) {
+          throw new IllegalArgumentException("Invalid table key: " + tableKey);
+        }
+        char c = tableKey.charAt(position++);
+        if (c != ']') {
+          name.append(c);
+        } else if (position < tableKey.length() && tableKey.charAt(position) == ']') {
+          // A doubled "]" is a "]" within the name
+          name.append(c);
+          position++;
+        } else {
+          break;
+        }
+      }
+      names[i] = name.toString();
+    }
+    if (position != tableKey.length()) {
+      throw new IllegalArgumentException("Invalid table key: " + tableKey);
+    }
+    return names;
+  }
+}
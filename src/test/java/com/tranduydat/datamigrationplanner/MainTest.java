@@ -1,7 +1,15 @@
 package com.tranduydat.datamigrationplanner;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.junit.Test;
 
 /**
@@ -17,4 +25,69 @@ public class MainTest
     {
         assertTrue( true );
     }
+
+    @Test
+    public void parseTargetsWithAndWithoutSavePath()
+    {
+        List<TargetModel> targets = Main.parseTargets( Arrays.asList(
+            "# host%port%db[%save_path]",
+            "",
+            " db1.local % 1433 % sales ",
+            "db2.local%14330%stock%/plans/stock.plan",
+            "db2.local%14330%hr%" ) );
+
+        assertEquals( 3, targets.size() );
+        assertEquals( "db1.local", targets.get( 0 ).getHost() );
+        assertEquals( 1433, targets.get( 0 ).getPort() );
+        assertEquals( "sales", targets.get( 0 ).getDbName() );
+        assertNull( targets.get( 0 ).getSavePath() );
+        assertEquals( "db2.local:14330", targets.get( 1 ).getInstanceKey() );
+        assertEquals( "/plans/stock.plan", targets.get( 1 ).getSavePath() );
+        assertNull( targets.get( 2 ).getSavePath() );
+    }
+
+    @Test
+    public void parseTargetsRejectsBadLines()
+    {
+        String[] lines = {
+            "db1.local%1433",
+            "db1.local",
+            "db1.local%port%sales",
+            "db1.local%%sales",
+            "%1433%sales",
+            "db1.local%1433% ",
+            "db1.local%1433%sales%/plans/sales.plan%extra",
+        };
+        for ( String line : lines )
+        {
+            try
+            {
+                Main.parseTargets( Collections.singletonList( line ) );
+                fail( "Must be rejected: " + line );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().contains( line.trim() ) );
+            }
+        }
+    }
+
+    @Test
+    public void savePathOfASingleTargetIsTheSavePath()
+    {
+        List<TargetModel> targets = Main.parseTargets( Collections.singletonList( "db1.local%1433%sales" ) );
+        Main.resolveSavePaths( targets, "/plans/sales.txt" );
+        assertEquals( "/plans/sales.txt", targets.get( 0 ).getSavePath() );
+    }
+
+    @Test
+    public void savePathsOfSeveralTargetsAreInTheSavePath()
+    {
+        List<TargetModel> targets = Main.parseTargets( Arrays.asList(
+            "db1.local%1433%sales",
+            "db2.local%14330%stock%/other/stock.plan" ) );
+        Main.resolveSavePaths( targets, "/plans" );
+        assertEquals( Paths.get( "/plans", "db1.local_1433_sales.plan" ).toString(), targets.get( 0 ).getSavePath() );
+        assertEquals( "/other/stock.plan", targets.get( 1 ).getSavePath() );
+    }
 }
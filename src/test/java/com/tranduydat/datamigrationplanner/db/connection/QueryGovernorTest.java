@@ -0,0 +1,143 @@
+package com.tranduydat.datamigrationplanner.db.connection;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of QueryGovernor: which budget cancels a query, and that a query done in time is never cancelled.
+ * The connection is a stub whose executions return at once, or block until they are cancelled.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class QueryGovernorTest {
+  // Longer than the shortest budget, 1 second
+  private static final long PAST_BUDGET_MILLIS = 1500;
+  private static final long TIMEOUT_SECONDS = 10;
+  private final AtomicInteger countCancel = new AtomicInteger();
+  private final AtomicInteger countExecute = new AtomicInteger();
+  // Whether the next executions block until cancelled
+  private volatile boolean blocking = false;
+  private volatile CountDownLatch cancelled = new CountDownLatch(1);
+
+  private Object statement(Class<?> type) {
+    return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "cancel":
+          this.countCancel.incrementAndGet();
+          this.cancelled.countDown();
+          return null;
+        case "executeQuery":
+        case "execute":
+          this.countExecute.incrementAndGet();
+          if (this.blocking && this.cancelled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new SQLException("The query was canceled");
+          }
+          return method.getName().equals("execute") ? Boolean.FALSE : null;
+        default:
+          return null;
+      }
+    });
+  }
+
+  private Connection connection() {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "prepareStatement":
+            return this.statement(PreparedStatement.class);
+          case "createStatement":
+            return this.statement(Statement.class);
+          default:
+            return null;
+        }
+      });
+  }
+
+  private void executeCancelled(PreparedStatement ps) {
+    this.blocking = true;
+    this.cancelled = new CountDownLatch(1);
+    try {
+      ps.executeQuery();
+      fail("The query must be cancelled");
+    } catch (SQLException e) {
+      assertEquals("The query was canceled", e.getMessage());
+    }
+  }
+
+  @Test
+  public void connectionWithoutBudgetIsNotWrapped() {
+    Connection conn = this.connection();
+    assertSame(conn, new QueryGovernor(0, 0).govern(conn));
+  }
+
+  @Test
+  public void queryOverItsBudgetIsCancelled() throws SQLException {
+    QueryGovernor governor = new QueryGovernor(1, 0);
+    PreparedStatement ps = governor.govern(this.connection()).prepareStatement("SELECT 1");
+    this.executeCancelled(ps);
+    assertEquals(1, this.countCancel.get());
+    assertEquals("query_timeout", governor.getExceeded());
+  }
+
+  @Test
+  public void tableBudgetEndingFirstIsTheReason() throws SQLException {
+    QueryGovernor governor = new QueryGovernor(30, 1);
+    this.executeCancelled(governor.govern(this.connection()).prepareStatement("SELECT 1"));
+    assertEquals("table_timeout", governor.getExceeded());
+  }
+
+  @Test
+  public void queryBudgetEndingFirstIsTheReason() throws SQLException {
+    QueryGovernor governor = new QueryGovernor(1, 30);
+    this.executeCancelled(governor.govern(this.connection()).prepareStatement("SELECT 1"));
+    assertEquals("query_timeout", governor.getExceeded());
+  }
+
+  @Test
+  public void queryDoneInTimeIsNeverCancelled() throws Exception {
+    QueryGovernor governor = new QueryGovernor(1, 0);
+    PreparedStatement ps = governor.govern(this.connection()).prepareStatement("SELECT 1");
+    // The time between preparing and executing is not counted
+    Thread.sleep(PAST_BUDGET_MILLIS);
+    ps.executeQuery();
+    // Nor is the time after the execution returned
+    Thread.sleep(PAST_BUDGET_MILLIS);
+    ps.setString(1, "x");
+    assertEquals(0, this.countCancel.get());
+    assertNull(governor.getExceeded());
+  }
+
+  @Test
+  public void eachExecutionHasItsOwnBudget() throws Exception {
+    QueryGovernor governor = new QueryGovernor(1, 0);
+    Statement statement = governor.govern(this.connection()).createStatement();
+    for (int i = 0; i < 3; i++) {
+      statement.execute("SELECT 1");
+      Thread.sleep(PAST_BUDGET_MILLIS / 3);
+    }
+    assertEquals(0, this.countCancel.get());
+
+    PreparedStatement ps = governor.govern(this.connection()).prepareStatement("SELECT 1");
+    this.executeCancelled(ps);
+    this.blocking = false;
+    ps.executeQuery();
+    assertEquals(1, this.countCancel.get());
+    assertEquals(5, this.countExecute.get());
+    assertEquals("query_timeout", governor.getExceeded());
+  }
+}
@@ -0,0 +1,98 @@
+package com.tranduydat.datamigrationplanner.db.dao;
+
+import com.tranduydat.datamigrationplanner.model.UniqueKeyModel;
+import com.tranduydat.datamigrationplanner.utils.NameInterner;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of CatalogDao: which single-column unique keys are taken as split columns.
+ * The connection is a stub that returns the given rows, whatever the query.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class CatalogDaoTest {
+  private final List<String> queries = new ArrayList<>();
+
+  private static Map<String, Object> keyRow(String tableName, String columnName, String indexName,
+                                            boolean primaryKey, boolean uniqueConstraint, boolean nullable) {
+    Map<String, Object> row = new HashMap<>();
+    row.put("schemaName", "dbo");
+    row.put("tableName", tableName);
+    row.put("columnName", columnName);
+    row.put("indexName", indexName);
+    row.put("is_primary_key", primaryKey);
+    row.put("is_unique_constraint", uniqueConstraint);
+    row.put("is_nullable", nullable);
+    return row;
+  }
+
+  private Connection connection(List<Map<String, Object>> rows) {
+    Iterator<Map<String, Object>> iterator = rows.iterator();
+    Object[] current = new Object[1];
+    ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "next":
+            current[0] = iterator.hasNext() ? iterator.next() : null;
+            return current[0] != null;
+          case "getString":
+            return ((Map<?, ?>) current[0]).get(args[0]);
+          case "getBoolean":
+            return Boolean.TRUE.equals(((Map<?, ?>) current[0]).get(args[0]));
+          default:
+            return null;
+        }
+      });
+    PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+      new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> method.getName().equals("executeQuery") ? rs : null);
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+      (proxy, method, args) -> {
+        if (method.getName().equals("prepareStatement")) {
+          this.queries.add((String) args[0]);
+          return ps;
+        }
+        return null;
+      });
+  }
+
+  @Test
+  public void skipsUniqueKeysOnNullableColumns() throws Exception {
+    CatalogDao catalogDao = new CatalogDao(this.connection(Arrays.asList(
+      keyRow("Orders", "id", "pk_orders", true, false, false),
+      keyRow("Orders", "code", "uq_orders_code", false, true, true),
+      keyRow("Items", "sku", "ix_items_sku", false, false, true),
+      keyRow("Stock", "ref", "ix_stock_ref", false, false, false))), new NameInterner());
+
+    Map<String, List<UniqueKeyModel>> uniqueKeys = catalogDao.getSingleColumnUniqueKeysByDb("sales");
+
+    assertEquals(1, uniqueKeys.get("[dbo].[Orders]").size());
+    assertEquals("id", uniqueKeys.get("[dbo].[Orders]").get(0).getColumnName());
+    assertEquals("primary_key", uniqueKeys.get("[dbo].[Orders]").get(0).getKeyType());
+    // A table whose only key is nullable has no key, so it is profiled
+    assertFalse(uniqueKeys.containsKey("[dbo].[Items]"));
+    assertEquals("unique_index", uniqueKeys.get("[dbo].[Stock]").get(0).getKeyType());
+  }
+
+  @Test
+  public void quotesTheDatabaseName() throws Exception {
+    new CatalogDao(this.connection(new ArrayList<>()), new NameInterner()).getSingleColumnUniqueKeysByDb("sa]es");
+    assertTrue(this.queries.get(0), this.queries.get(0).contains(" FROM [sa]]es].sys.indexes AS ix"));
+  }
+}
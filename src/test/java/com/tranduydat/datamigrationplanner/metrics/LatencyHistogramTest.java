@@ -0,0 +1,55 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests of LatencyHistogram: the bucket of a duration, the cumulative counts, the sum and the max.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class LatencyHistogramTest {
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  @Test
+  public void countsEachDurationUpToItsBound() {
+    LatencyHistogram histogram = new LatencyHistogram(Arrays.asList(1L, 10L, 100L));
+    histogram.record(0);
+    // A duration on a bound falls in that bucket
+    histogram.record(NANOS_PER_MILLI);
+    histogram.record(NANOS_PER_MILLI + 1);
+    histogram.record(50 * NANOS_PER_MILLI);
+    histogram.record(101 * NANOS_PER_MILLI);
+    histogram.record(5000 * NANOS_PER_MILLI);
+
+    assertArrayEquals(new long[]{1, 10, 100}, histogram.getBoundsMillis());
+    assertArrayEquals(new long[]{2, 3, 4, 6}, histogram.getCumulativeCounts());
+    assertEquals(6, histogram.getCount());
+    assertEquals(5000 * NANOS_PER_MILLI, histogram.getMaxNanos());
+    assertEquals(5153 * NANOS_PER_MILLI + 1, histogram.getSumNanos());
+  }
+
+  @Test
+  public void startsEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram(Arrays.asList(1L, 10L));
+    assertArrayEquals(new long[]{0, 0, 0}, histogram.getCumulativeCounts());
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getSumNanos());
+    assertEquals(0, histogram.getMaxNanos());
+  }
+
+  @Test
+  public void boundsAreACopy() {
+    LatencyHistogram histogram = new LatencyHistogram(Arrays.asList(1L, 10L));
+    histogram.getBoundsMillis()[0] = 1000;
+    histogram.record(5 * NANOS_PER_MILLI);
+    assertArrayEquals(new long[]{1, 10}, histogram.getBoundsMillis());
+    assertArrayEquals(new long[]{0, 1, 1}, histogram.getCumulativeCounts());
+  }
+}
@@ -0,0 +1,82 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import com.tranduydat.datamigrationplanner.model.TableMetricsModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of Metrics: the slowest tables kept, the totals of the tables and starting over.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class MetricsTest {
+  @Before
+  public void setUp() {
+    Metrics.reset();
+  }
+
+  @After
+  public void tearDown() {
+    Metrics.reset();
+  }
+
+  private static TableMetricsModel table(String tableKey, long durationMillis, long rowCount) {
+    return new TableMetricsModel("db", tableKey, "single_scan", durationMillis, rowCount);
+  }
+
+  @Test
+  public void keepsOnlyTheSlowestTablesTheSlowestFirst() {
+    Metrics metrics = Metrics.getInstance();
+    metrics.setSlowestTableLimit(3);
+    long[] durations = {40, 10, 70, 20, 90, 30, 60};
+    for (int i = 0; i < durations.length; i++) {
+      metrics.recordTable(table("[dbo].[t" + i + "]", durations[i], 100));
+    }
+
+    List<Long> slowest = metrics.getSlowestTables().stream()
+      .map(TableMetricsModel::getDurationMillis).collect(Collectors.toList());
+    assertEquals(Arrays.asList(90L, 70L, 60L), slowest);
+    // Every table still counts in the totals
+    assertEquals(7, metrics.getTableLatency().getCount());
+    assertEquals(700, metrics.getTableRows());
+    assertEquals(320, metrics.getTableMillis());
+    assertEquals(7L, (long) metrics.getStrategyCounts().get("single_scan"));
+  }
+
+  @Test
+  public void keepsNoTableWithoutALimit() {
+    Metrics metrics = Metrics.getInstance();
+    metrics.recordTable(table("[dbo].[t]", 10, 100));
+    assertTrue(metrics.getSlowestTables().isEmpty());
+    assertEquals(100, metrics.getTableRows());
+  }
+
+  @Test
+  public void resetStartsOver() {
+    Metrics metrics = Metrics.getInstance();
+    metrics.setSlowestTableLimit(10);
+    metrics.recordTable(table("[dbo].[t]", 10, 100));
+    metrics.recordQuery(QueryType.COUNT, 1_000_000L);
+    metrics.recordPoolTimeout("dmp-host:1433");
+
+    Metrics.reset();
+    Metrics fresh = Metrics.getInstance();
+    assertNotSame(metrics, fresh);
+    assertTrue(fresh.getSlowestTables().isEmpty());
+    assertEquals(0, fresh.getTableRows());
+    assertEquals(0, fresh.getQueryLatency(QueryType.COUNT).getCount());
+    assertTrue(fresh.getPoolTimeoutCounts().isEmpty());
+    assertTrue(fresh.getStrategyCounts().isEmpty());
+  }
+}
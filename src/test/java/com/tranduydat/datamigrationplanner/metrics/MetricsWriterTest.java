@@ -0,0 +1,109 @@
+package com.tranduydat.datamigrationplanner.metrics;
+
+import com.tranduydat.datamigrationplanner.model.TableMetricsModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of MetricsWriter: the JSON document, the Prometheus text format and saving both files.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class MetricsWriterTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  private Metrics metrics;
+
+  @Before
+  public void setUp() {
+    Metrics.reset();
+    this.metrics = Metrics.getInstance();
+    this.metrics.setSlowestTableLimit(2);
+    this.metrics.recordQuery(QueryType.COUNT, 3_000_000L);
+    this.metrics.recordQuery(QueryType.COUNT, 20_000_000L);
+    this.metrics.recordTable(new TableMetricsModel("sales", "[dbo].[Orders]", "single_scan", 2000, 1000));
+    this.metrics.recordTable(new TableMetricsModel("sales", "[dbo].[Items]", "unique_key", 500, 1000));
+    this.metrics.recordTable(new TableMetricsModel("sales", "[dbo].[Tiny]", "single_scan", 1, 1));
+    this.metrics.recordStrategy("cached");
+    this.metrics.recordPhase("sales", "read", 1234);
+    this.metrics.recordPoolWait("dmp-host:1433", 2_000_000L);
+    this.metrics.recordPoolTimeout("dmp-host:1433");
+  }
+
+  @After
+  public void tearDown() {
+    Metrics.reset();
+  }
+
+  @Test
+  public void jsonListsTheSlowestTablesAndTheTotals() {
+    String json = MetricsWriter.toJson(this.metrics);
+    assertTrue(json, json.contains("{\"db\": \"sales\", \"phase\": \"read\", \"duration_ms\": 1234}"));
+    assertTrue(json, json.contains("{\"count\": 2, \"sum_ms\": 23, \"max_ms\": 20, \"buckets\": "
+      + "{\"le_1\": 0, \"le_5\": 1, \"le_10\": 1, \"le_50\": 2,"));
+    assertTrue(json, json.contains("\"dmp-host:1433\": {\"timeouts\": 1, \"latency\": {\"count\": 1,"));
+    assertTrue(json, json.contains("\"strategies\": {\"cached\": 1, \"single_scan\": 2, \"unique_key\": 1},"));
+    assertTrue(json, json.contains("\"rows\": 2001,\n"));
+    assertTrue(json, json.contains("\"slowest_tables\": [\n"
+      + "    {\"db\": \"sales\", \"table\": \"[dbo].[Orders]\", \"strategy\": \"single_scan\", \"duration_ms\": 2000,"
+      + " \"rows\": 1000, \"rows_per_second\": 500},\n"
+      + "    {\"db\": \"sales\", \"table\": \"[dbo].[Items]\", \"strategy\": \"unique_key\", \"duration_ms\": 500,"
+      + " \"rows\": 1000, \"rows_per_second\": 2000}\n"
+      + "  ]\n}\n"));
+    assertFalse(json, json.contains("[dbo].[Tiny]"));
+  }
+
+  @Test
+  public void jsonOfAnEmptyRunHasEmptyLists() {
+    Metrics.reset();
+    String json = MetricsWriter.toJson(Metrics.getInstance());
+    assertTrue(json, json.contains("\"phases\": [],\n"));
+    assertTrue(json, json.contains("\"pool_wait\": {},\n"));
+    assertTrue(json, json.contains("\"strategies\": {},\n"));
+    assertTrue(json, json.contains("\"rows_per_second\": 0,\n"));
+    assertTrue(json, json.contains("\"slowest_tables\": []\n}\n"));
+  }
+
+  @Test
+  public void prometheusHasCumulativeBucketsInSecondsAndNoSeriesPerTable() {
+    String prom = MetricsWriter.toPrometheus(this.metrics);
+    assertTrue(prom, prom.contains("dmp_phase_duration_seconds{db=\"sales\",phase=\"read\"} 1.234\n"));
+    assertTrue(prom, prom.contains("dmp_query_duration_seconds_bucket{type=\"count\",le=\"0.005\"} 1\n"));
+    assertTrue(prom, prom.contains("dmp_query_duration_seconds_bucket{type=\"count\",le=\"0.05\"} 2\n"));
+    assertTrue(prom, prom.contains("dmp_query_duration_seconds_bucket{type=\"count\",le=\"+Inf\"} 2\n"));
+    assertTrue(prom, prom.contains("dmp_query_duration_seconds_sum{type=\"count\"} 0.023\n"));
+    assertTrue(prom, prom.contains("dmp_query_duration_seconds_count{type=\"count\"} 2\n"));
+    assertTrue(prom, prom.contains("dmp_table_duration_seconds_count 3\n"));
+    assertTrue(prom, prom.contains("dmp_table_rows_total 2001\n"));
+    assertTrue(prom, prom.contains("dmp_pool_timeouts_total{pool=\"dmp-host:1433\"} 1\n"));
+    assertTrue(prom, prom.contains("dmp_strategy_tables_total{strategy=\"cached\"} 1\n"));
+    assertFalse(prom, prom.contains("Orders"));
+  }
+
+  @Test
+  public void writesBothFiles() throws IOException {
+    Path dir = this.folder.getRoot().toPath().resolve("metrics");
+    assertTrue(new MetricsWriter().write(dir.toString(), this.metrics));
+    assertTrue(Files.exists(dir.resolve(MetricsWriter.JSON_FILE_NAME)));
+    assertTrue(Files.exists(dir.resolve(MetricsWriter.PROMETHEUS_FILE_NAME)));
+  }
+
+  @Test
+  public void writeFailsWhenTheDirectoryIsAFile() throws IOException {
+    File file = this.folder.newFile("metrics");
+    assertFalse(new MetricsWriter().write(file.getPath(), this.metrics));
+  }
+}
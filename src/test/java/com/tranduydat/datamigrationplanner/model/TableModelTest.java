@@ -0,0 +1,40 @@
+package com.tranduydat.datamigrationplanner.model;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests of TableModel: the distinct counts by ordinal.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 1
+ * @since 2023/07/13
+ */
+public class TableModelTest {
+  @Test
+  public void toDistinctCountsMapsMissingFailedAndNullCountsToMinusOne() {
+    Map<String, Long> columnWithCount = new HashMap<>();
+    columnWithCount.put("id", 100L);
+    columnWithCount.put("code", -1L);
+    columnWithCount.put("status", null);
+    columnWithCount.put("empty", 0L);
+    columnWithCount.put("unknown", 7L);
+
+    long[] distinctCounts = TableModel.toDistinctCounts(new String[]{"id", "code", "status", "name", "empty"}, columnWithCount);
+    assertArrayEquals(new long[]{100, -1, -1, -1, 0}, distinctCounts);
+  }
+
+  @Test
+  public void getDistinctCountByName() {
+    TableModel tableModel = new TableModel();
+    tableModel.setColumnNames(new String[]{"id", "code"});
+    tableModel.setDistinctCounts(new long[]{100, 3});
+    assertEquals(3, tableModel.getDistinctCount("code"));
+    assertEquals(-1, tableModel.getDistinctCount("name"));
+  }
+}
@@ -0,0 +1,70 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.model.ColumnModel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of ColumnRanker.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ColumnRankerTest {
+  private static ColumnModel column(String columnName, String dataType, int maxLength) {
+    return ColumnModel.builder()
+      .columnName(columnName)
+      .dataType(dataType)
+      .nullable(true)
+      .maxLength(maxLength)
+      .build();
+  }
+
+  @Test
+  public void isSplittableRejectsLargeObjectsAndUnsplittableTypes() {
+    assertTrue(ColumnRanker.isSplittable(column("Id", "int", 4)));
+    assertTrue(ColumnRanker.isSplittable(column("Code", "nvarchar", 40)));
+    assertFalse(ColumnRanker.isSplittable(column("Notes", "nvarchar", -1)));
+    assertFalse(ColumnRanker.isSplittable(column("Notes", "NTEXT", 16)));
+    assertFalse(ColumnRanker.isSplittable(column("Active", "bit", 1)));
+  }
+
+  @Test
+  public void scoreAddsUpTheMetadataSignals() {
+    ColumnModel column = ColumnModel.builder()
+      .columnName("OrderId")
+      .dataType("int")
+      .nullable(false)
+      .maxLength(4)
+      .identity(true)
+      .leadingIndexKey(true)
+      .build();
+    assertEquals(100 + 40 + 30 + 25 + 20, ColumnRanker.score(column));
+    assertEquals(15, ColumnRanker.score(column("Amount", "decimal", 9)));
+    assertEquals(10, ColumnRanker.score(column("CreatedAt", "datetime", 8)));
+    assertEquals(25, ColumnRanker.score(column("customer_id", "varchar", 20)));
+    assertEquals(0, ColumnRanker.score(column("Name", "nvarchar", 100)));
+  }
+
+  @Test
+  public void rankPutsTheMostLikelyUniqueFirstAndKeepsTiesInTableOrder() {
+    List<ColumnModel> columns = Arrays.asList(
+      column("Name", "nvarchar", 100),
+      column("Notes", "ntext", 16),
+      column("CreatedAt", "datetime", 8),
+      column("Title", "nvarchar", 100),
+      column("CustomerId", "int", 4));
+    List<String> ranked = ColumnRanker.rank(columns).stream()
+      .map(ColumnModel::getColumnName)
+      .collect(Collectors.toList());
+    assertEquals(Arrays.asList("CustomerId", "CreatedAt", "Name", "Title"), ranked);
+  }
+}
@@ -0,0 +1,122 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of ConcurrencyController: the AIMD steps of the workers and the pressure from the probe measures,
+ * without a live probe.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ConcurrencyControllerTest {
+  private final Config config = Config.getInstance();
+  private final TaskScheduler scheduler = new TaskScheduler(8, 8, 1);
+  private int cpMaxSize;
+  private int adaptiveMinWorkers;
+  private double adaptiveLatencyFactor;
+  private int adaptiveMaxWaitingRequests;
+  private ConcurrencyController controller;
+
+  @Before
+  public void setUp() {
+    this.cpMaxSize = this.config.getCpMaxSize();
+    this.adaptiveMinWorkers = this.config.getAdaptiveMinWorkers();
+    this.adaptiveLatencyFactor = this.config.getAdaptiveLatencyFactor();
+    this.adaptiveMaxWaitingRequests = this.config.getAdaptiveMaxWaitingRequests();
+    this.config.setCpMaxSize(8);
+    this.config.setAdaptiveMinWorkers(2);
+    this.config.setAdaptiveLatencyFactor(2.0);
+    this.config.setAdaptiveMaxWaitingRequests(10);
+    this.controller = new ConcurrencyController("host", 1433, this.scheduler);
+  }
+
+  @After
+  public void tearDown() {
+    this.controller.stop();
+    this.scheduler.shutdown();
+    this.config.setCpMaxSize(this.cpMaxSize);
+    this.config.setAdaptiveMinWorkers(this.adaptiveMinWorkers);
+    this.config.setAdaptiveLatencyFactor(this.adaptiveLatencyFactor);
+    this.config.setAdaptiveMaxWaitingRequests(this.adaptiveMaxWaitingRequests);
+  }
+
+  @Test
+  public void growsByOneUpToTheMax() {
+    for (int expected = 3; expected <= 8; expected++) {
+      assertEquals(expected, this.controller.nextWorkers(false));
+    }
+    assertEquals(8, this.controller.nextWorkers(false));
+  }
+
+  @Test
+  public void halvesUnderPressureDownToTheMin() {
+    for (int i = 0; i < 6; i++) {
+      this.controller.nextWorkers(false);
+    }
+    assertEquals(4, this.controller.nextWorkers(true));
+    assertEquals(2, this.controller.nextWorkers(true));
+    assertEquals(2, this.controller.nextWorkers(true));
+    assertEquals(3, this.controller.nextWorkers(false));
+    // 3 / 2 is below the min
+    assertEquals(2, this.controller.nextWorkers(true));
+  }
+
+  @Test
+  public void minWorkersIsWithinTheMax() {
+    this.config.setAdaptiveMinWorkers(20);
+    ConcurrencyController bounded = new ConcurrencyController("host", 1433, this.scheduler);
+    try {
+      assertEquals(8, bounded.nextWorkers(true));
+      assertEquals(8, bounded.nextWorkers(false));
+    } finally {
+      bounded.stop();
+    }
+  }
+
+  @Test
+  public void latencyWellOverTheBaselineIsPressure() {
+    assertFalse(this.controller.isUnderPressure(10, -1));
+    assertEquals(10, this.controller.getBaselineMillis(), 0);
+    // Over the slack but not twice the baseline
+    assertFalse(this.controller.isUnderPressure(19, -1));
+    assertTrue(this.controller.isUnderPressure(21, -1));
+    // A faster probe lowers the baseline at once
+    assertFalse(this.controller.isUnderPressure(4, -1));
+    assertEquals(4, this.controller.getBaselineMillis(), 0);
+    // Twice a small baseline is still within the slack
+    assertFalse(this.controller.isUnderPressure(9, -1));
+    assertTrue(this.controller.isUnderPressure(9.5, -1));
+  }
+
+  @Test
+  public void baselineRelaxesTowardsSlowerProbes() {
+    this.controller.isUnderPressure(10, -1);
+    for (int i = 0; i < 100; i++) {
+      this.controller.isUnderPressure(100, -1);
+    }
+    double baseline = this.controller.getBaselineMillis();
+    assertTrue(String.valueOf(baseline), baseline > 10 * Math.pow(1.01, 99) && baseline < 100);
+    // Once relaxed far enough, the slower latency is no longer pressure
+    for (int i = 0; i < 200; i++) {
+      this.controller.isUnderPressure(100, -1);
+    }
+    assertEquals(100, this.controller.getBaselineMillis(), 0);
+    assertFalse(this.controller.isUnderPressure(100, -1));
+  }
+
+  @Test
+  public void failedProbeOrWaitingRequestsArePressure() {
+    assertTrue(this.controller.isUnderPressure(-1, -1));
+    assertFalse(this.controller.isUnderPressure(10, 10));
+    assertTrue(this.controller.isUnderPressure(10, 11));
+  }
+}
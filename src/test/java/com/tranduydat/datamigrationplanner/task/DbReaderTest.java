@@ -0,0 +1,67 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.db.source.MetadataSession;
+import com.tranduydat.datamigrationplanner.db.source.MetadataSource;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of DbReader: a database whose tables cannot be listed fails, instead of being read as empty.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class DbReaderTest {
+  private final TaskScheduler scheduler = new TaskScheduler(1, 1, 1);
+
+  @After
+  public void tearDown() {
+    this.scheduler.shutdown();
+  }
+
+  @Test
+  public void failedTableListFailsTheDatabase() {
+    AtomicInteger closedSessions = new AtomicInteger();
+    MetadataSession session = (MetadataSession) Proxy.newProxyInstance(MetadataSession.class.getClassLoader(),
+      new Class<?>[]{MetadataSession.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getTableNamesByDb":
+            throw new SQLException("Login failed");
+          case "close":
+            closedSessions.incrementAndGet();
+            return null;
+          default:
+            throw new AssertionError("Unexpected call of " + method.getName());
+        }
+      });
+    MetadataSource source = new MetadataSource() {
+      @Override
+      public MetadataSession open(TargetModel target, int queryTimeoutSeconds, int tableTimeoutSeconds) {
+        return session;
+      }
+
+      @Override
+      public boolean isLive() {
+        return false;
+      }
+    };
+
+    try {
+      new DbReader(source).read(new TargetModel("host", 1433, "sales", null), this.scheduler, (tableKey, tableModel) ->
+        fail("No table can be read"));
+      fail("The database must fail");
+    } catch (SQLException e) {
+      assertEquals("Login failed", e.getMessage());
+    }
+    assertEquals(1, closedSessions.get());
+  }
+}
@@ -0,0 +1,102 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
+import com.tranduydat.datamigrationplanner.model.SplitStatsModel;
+import com.tranduydat.datamigrationplanner.model.TableModel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests of MakingPlanProcessor: how the unique column of a table is chosen from its distinct counts.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class MakingPlanProcessorTest {
+  private static final String TABLE_KEY = "[dbo].[Orders]";
+  private final MakingPlanProcessor processor = new MakingPlanProcessor();
+
+  private static TableModel table(long totalCount, String[] columnNames, long[] distinctCounts) {
+    TableModel tableModel = new TableModel();
+    tableModel.setTotalCount(totalCount);
+    tableModel.setColumnNames(columnNames);
+    tableModel.setDistinctCounts(distinctCounts);
+    return tableModel;
+  }
+
+  private static SplitStatsModel scored(double score) {
+    SplitStatsModel stats = new SplitStatsModel();
+    stats.setScore(score);
+    return stats;
+  }
+
+  @Test
+  public void choosesTheFirstUniqueColumnByOrdinalWithoutScores() {
+    TableModel tableModel = table(100, new String[]{"status", "code", "id"}, new long[]{3, 100, 100});
+    PlanDetailModel planDetail = this.processor.createPlanDetailModel(TABLE_KEY, tableModel);
+    assertEquals("code", planDetail.getUniqueColumn());
+    assertEquals("distinct_count", planDetail.getReason());
+    assertEquals(-1, planDetail.getSplitScore(), 0);
+  }
+
+  @Test
+  public void choosesTheBestScoredUniqueColumn() {
+    TableModel tableModel = table(100, new String[]{"code", "id"}, new long[]{100, 100});
+    tableModel.getSplitStatsByColumn().put("code", scored(0.4));
+    tableModel.getSplitStatsByColumn().put("id", scored(0.9));
+    PlanDetailModel planDetail = this.processor.createPlanDetailModel(TABLE_KEY, tableModel);
+    assertEquals("id", planDetail.getUniqueColumn());
+    assertEquals(0.9, planDetail.getSplitScore(), 0);
+  }
+
+  @Test
+  public void tieOfScoresKeepsTheLowerOrdinal() {
+    TableModel tableModel = table(100, new String[]{"code", "id", "ref"}, new long[]{100, 100, 100});
+    tableModel.getSplitStatsByColumn().put("code", scored(0.5));
+    tableModel.getSplitStatsByColumn().put("id", scored(0.9));
+    tableModel.getSplitStatsByColumn().put("ref", scored(0.9));
+    assertEquals("id", this.processor.createPlanDetailModel(TABLE_KEY, tableModel).getUniqueColumn());
+  }
+
+  @Test
+  public void aScoredColumnRanksBeforeAnUnscoredOne() {
+    TableModel tableModel = table(100, new String[]{"code", "id"}, new long[]{100, 100});
+    tableModel.getSplitStatsByColumn().put("id", scored(0));
+    assertEquals("id", this.processor.createPlanDetailModel(TABLE_KEY, tableModel).getUniqueColumn());
+  }
+
+  @Test
+  public void failedRowCountHasNoUniqueColumn() {
+    // A failed count is -1 for both the table and its columns, which must not match
+    TableModel tableModel = table(-1, new String[]{"code", "id"}, new long[]{-1, -1});
+    PlanDetailModel planDetail = this.processor.createPlanDetailModel(TABLE_KEY, tableModel);
+    assertEquals("-1", planDetail.getUniqueColumn());
+    assertEquals("none", planDetail.getReason());
+  }
+
+  @Test
+  public void uncountedColumnsAreNeverUnique() {
+    TableModel tableModel = table(100, new String[]{"code", "id"}, new long[]{-1, 99});
+    assertEquals("-1", this.processor.createPlanDetailModel(TABLE_KEY, tableModel).getUniqueColumn());
+  }
+
+  @Test
+  public void estimatedCountsAreToldApart() {
+    TableModel tableModel = table(100, new String[]{"id"}, new long[]{100});
+    tableModel.setEstimated(true);
+    tableModel.setFallback("table_timeout");
+    PlanDetailModel planDetail = this.processor.createPlanDetailModel(TABLE_KEY, tableModel);
+    assertEquals("id", planDetail.getUniqueColumn());
+    assertEquals("stats_estimate,fallback=table_timeout", planDetail.getReason());
+  }
+
+  @Test
+  public void reservedKeywordIsNotUsed() {
+    TableModel tableModel = table(100, new String[]{"Key"}, new long[]{100});
+    PlanDetailModel planDetail = this.processor.createPlanDetailModel(TABLE_KEY, tableModel);
+    assertEquals("-1", planDetail.getUniqueColumn());
+    assertEquals("reserved_keyword", planDetail.getReason());
+  }
+}
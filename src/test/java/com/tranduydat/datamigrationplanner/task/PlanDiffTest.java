@@ -0,0 +1,121 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.model.PlanChangeModel;
+import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of PlanDiff: the changes found against a previous text or NDJSON plan, and how they are formatted.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class PlanDiffTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static PlanDetailModel detail(String tableName, String uniqueColumn, long rowCount) {
+    return PlanDetailModel.builder()
+      .tableName(tableName)
+      .uniqueColumn(uniqueColumn)
+      .reason("distinct_count")
+      .rowCount(rowCount)
+      .splitScore(-1)
+      .build();
+  }
+
+  private Path write(String fileName, String... lines) throws IOException {
+    Path path = this.folder.getRoot().toPath().resolve(fileName);
+    Files.write(path, Arrays.asList(lines), StandardCharsets.UTF_8);
+    return path;
+  }
+
+  private List<String> diff(PlanDiff diff, PlanFormat format) throws IOException {
+    Path path = this.folder.getRoot().toPath().resolve("plan.diff");
+    assertTrue(diff.write(path.toString(), format, "%"));
+    return Files.readAllLines(path, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void findsAddedRemovedAndChangedTablesOfANdjsonPlan() throws IOException {
+    Path previous = this.write("plan.ndjson",
+      "{\"table\": \"[dbo].[Items]\", \"split_column\": \"id\", \"reason\": \"primary_key\", \"row_count\": 1000}",
+      "{\"table\": \"[dbo].[Orders]\", \"split_column\": null, \"reason\": \"none\", \"row_count\": 100}",
+      "",
+      "{\"table\": \"[dbo].[Stock]\", \"split_column\": \"sku\", \"reason\": \"distinct_count\", \"row_count\": 50}",
+      "{\"table\": \"[dbo].[Gone]\", \"split_column\": \"id\", \"reason\": \"primary_key\", \"row_count\": 7}");
+    PlanDiff diff = PlanDiff.load(previous.toString(), PlanFormat.NDJSON, "%", 0.5);
+    // A shift below the share is not a change, one at it is
+    diff.add(detail("[dbo].[Items]", "id", 1499));
+    diff.add(detail("[dbo].[Stock]", "sku", 75));
+    diff.add(detail("[dbo].[Orders]", "code", 100));
+    diff.add(detail("[dbo].[New]", "id", 10));
+
+    assertEquals(Arrays.asList(
+      "removed%[dbo].[Gone]%id%dropped_table",
+      "added%[dbo].[New]%id%new_table",
+      "changed%[dbo].[Orders]%code%split_column=-1->code",
+      "changed%[dbo].[Stock]%sku%row_count=50->75"), this.diff(diff, PlanFormat.TEXT));
+  }
+
+  @Test
+  public void textPlanHasNoRowCountToShift() throws IOException {
+    Path previous = this.write("plan.txt", "[dbo].[Items]%id%primary_key", "not a plan line");
+    PlanDiff diff = PlanDiff.load(previous.toString(), PlanFormat.TEXT, "%", 0.1);
+    diff.add(detail("[dbo].[Items]", "id", 1000000));
+    assertEquals(Collections.emptyList(), this.diff(diff, PlanFormat.TEXT));
+  }
+
+  @Test
+  public void everyTableIsAddedWithoutAPreviousPlan() throws IOException {
+    PlanDiff diff = PlanDiff.load(this.folder.getRoot().toPath().resolve("missing.ndjson").toString(),
+      PlanFormat.NDJSON, "%", 0.5);
+    diff.add(detail("[dbo].[Items]", "-1", 3));
+    assertEquals(Collections.singletonList(
+      "{\"change\": \"added\", \"table\": \"[dbo].[Items]\", \"previous_split_column\": null, \"split_column\": null,"
+        + " \"previous_row_count\": null, \"row_count\": 3, \"changed_fields\": null}"), this.diff(diff, PlanFormat.NDJSON));
+  }
+
+  @Test
+  public void formatLineOfASplitColumnNamedLikeAField() {
+    PlanChangeModel change = PlanChangeModel.builder()
+      .change("changed")
+      .tableName("[dbo].[Items]")
+      .previousUniqueColumn("id")
+      .uniqueColumn("row_count")
+      .previousRowCount(10)
+      .rowCount(40)
+      .changedFields(Arrays.asList("split_column", "row_count"))
+      .build();
+    assertEquals("changed%[dbo].[Items]%row_count%split_column=id->row_count,row_count=10->40\n",
+      PlanDiff.formatLine(change, "%"));
+    assertEquals("{\"change\": \"changed\", \"table\": \"[dbo].[Items]\", \"previous_split_column\": \"id\","
+      + " \"split_column\": \"row_count\", \"previous_row_count\": 10, \"row_count\": 40,"
+      + " \"changed_fields\": \"split_column,row_count\"}\n", PlanDiff.formatJson(change));
+  }
+
+  @Test
+  public void deleteRemovesAStaleDiff() throws IOException {
+    Path path = this.write("plan.diff", "added%[dbo].[Items]%id%new_table");
+    PlanDiff.delete(path.toString());
+    assertFalse(Files.exists(path));
+    // Nothing to delete is fine
+    PlanDiff.delete(path.toString());
+  }
+}
@@ -0,0 +1,87 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of PlanFileWriter: a plan file is only replaced on commit, and discarded otherwise.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class PlanFileWriterTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static String read(Path path) throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+
+  private static Path tempPath(Path path) {
+    return path.resolveSibling(path.getFileName() + ".tmp");
+  }
+
+  @Test
+  public void commitReplacesThePlanFile() throws IOException {
+    Path path = this.folder.getRoot().toPath().resolve("plans").resolve("plan.txt");
+    try (PlanFileWriter writer = new PlanFileWriter(path)) {
+      writer.write("[dbo].[Orders],id,primary_key\n");
+      writer.write("[dbo].[Items],-1,none\n");
+      // Nothing is visible before the commit
+      assertFalse(Files.exists(path));
+      writer.commit();
+    }
+    assertEquals("[dbo].[Orders],id,primary_key\n[dbo].[Items],-1,none\n", read(path));
+    assertFalse(Files.exists(tempPath(path)));
+  }
+
+  @Test
+  public void closeWithoutCommitKeepsThePreviousPlanFile() throws IOException {
+    Path path = this.folder.getRoot().toPath().resolve("plan.txt");
+    Files.write(path, "previous\n".getBytes(StandardCharsets.UTF_8));
+    try (PlanFileWriter writer = new PlanFileWriter(path)) {
+      writer.write("partial\n");
+    }
+    assertEquals("previous\n", read(path));
+    assertFalse(Files.exists(tempPath(path)));
+  }
+
+  @Test
+  public void writesTextLargerThanTheBuffer() throws IOException {
+    Path path = this.folder.getRoot().toPath().resolve("plan.txt");
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      large.append("line ").append(i).append(" \u00e9\n");
+    }
+    try (PlanFileWriter writer = new PlanFileWriter(path, 16)) {
+      writer.write("first\n");
+      writer.write(large.toString());
+      writer.write("last\n");
+      writer.commit();
+    }
+    assertEquals("first\n" + large + "last\n", read(path));
+  }
+
+  @Test
+  public void reopeningTruncatesALeftoverTempFile() throws IOException {
+    Path path = this.folder.getRoot().toPath().resolve("plan.txt");
+    Files.write(tempPath(path), "left by a killed run, much longer than the plan\n".getBytes(StandardCharsets.UTF_8));
+    try (PlanFileWriter writer = new PlanFileWriter(path)) {
+      writer.write("plan\n");
+      writer.commit();
+    }
+    assertEquals("plan\n", read(path));
+    assertTrue(Files.notExists(tempPath(path)));
+  }
+}
@@ -0,0 +1,108 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.config.PlanFormat;
+import com.tranduydat.datamigrationplanner.model.PlanDetailModel;
+import com.tranduydat.datamigrationplanner.model.PlanModel;
+import com.tranduydat.datamigrationplanner.model.TargetModel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of PlanWriter: the names of the Sqoop options files, and the manifest of a Sqoop plan.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class PlanWriterTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+  private final TargetModel target = new TargetModel("host", 1433, "sales", null);
+
+  private static PlanDetailModel detail(String tableName) {
+    return PlanDetailModel.builder()
+      .tableName(tableName)
+      .uniqueColumn("id")
+      .reason("primary_key")
+      .rowCount(100)
+      .splitScore(-1)
+      .build();
+  }
+
+  @Test
+  public void optionsFileNameEncodesAllButLettersDigitsUnderscoreAndDash() {
+    assertEquals("dbo.Orders.options", PlanWriter.optionsFileName("[dbo].[Orders]"));
+    assertEquals("dbo.Order_Items-2.options", PlanWriter.optionsFileName("[dbo].[Order_Items-2]"));
+    assertEquals("dbo.Order%5Ds.options", PlanWriter.optionsFileName("[dbo].[Order]]s]"));
+    assertEquals("dbo.My%20Table.options", PlanWriter.optionsFileName("[dbo].[My Table]"));
+    assertEquals("dbo.Caf\u00e9.options", PlanWriter.optionsFileName("[dbo].[Caf\u00e9]"));
+    assertEquals("dbo.%F0%9F%98%80.options", PlanWriter.optionsFileName("[dbo].[\uD83D\uDE00]"));
+    // A dot in a name cannot make two tables share a file
+    assertNotEquals(PlanWriter.optionsFileName("[a.b].[c]"), PlanWriter.optionsFileName("[a].[b.c]"));
+  }
+
+  @Test
+  public void sqoopCommitWritesTheManifestAndRemovesStaleFiles() throws IOException {
+    Path dir = this.folder.getRoot().toPath().resolve("sales");
+    Files.createDirectories(dir);
+    Files.write(dir.resolve("dbo.Dropped.options"), new byte[0]);
+    Files.write(dir.resolve("dbo.Killed.options.tmp"), new byte[0]);
+    Files.write(dir.resolve("README"), new byte[0]);
+
+    try (PlanWriter writer = new PlanWriter(dir.toString(), PlanFormat.SQOOP, ",", this.target)) {
+      writer.append(detail("[dbo].[Orders]"));
+      writer.append(detail("[dbo].[Items]"));
+      // Until the commit, the directory is not a complete plan
+      assertFalse(Files.exists(dir.resolve(PlanWriter.SQOOP_MANIFEST_FILE_NAME)));
+      writer.commit();
+    }
+
+    List<String> manifest = Files.readAllLines(dir.resolve(PlanWriter.SQOOP_MANIFEST_FILE_NAME), StandardCharsets.UTF_8);
+    assertEquals(Arrays.asList("dbo.Items.options", "dbo.Orders.options"), manifest);
+    assertTrue(Files.exists(dir.resolve("dbo.Orders.options")));
+    assertFalse(Files.exists(dir.resolve("dbo.Dropped.options")));
+    assertFalse(Files.exists(dir.resolve("dbo.Killed.options.tmp")));
+    // Only options files are removed
+    assertTrue(Files.exists(dir.resolve("README")));
+  }
+
+  @Test
+  public void sqoopPlanWithoutCommitHasNoManifest() throws IOException {
+    Path dir = this.folder.getRoot().toPath().resolve("sales");
+    Files.createDirectories(dir);
+    Files.write(dir.resolve(PlanWriter.SQOOP_MANIFEST_FILE_NAME), "dbo.Orders.options\n".getBytes(StandardCharsets.UTF_8));
+
+    try (PlanWriter writer = new PlanWriter(dir.toString(), PlanFormat.SQOOP, ",", this.target)) {
+      writer.append(detail("[dbo].[Orders]"));
+    }
+    assertFalse(Files.exists(dir.resolve(PlanWriter.SQOOP_MANIFEST_FILE_NAME)));
+  }
+
+  @Test
+  public void boundariesQuoteTheSplitColumn() throws IOException {
+    PlanDetailModel x = detail("[dbo].[Orders]");
+    x.setUniqueColumn("Order]Id");
+    x.setSplitBoundaries(Arrays.asList("1", "50", "100"));
+    PlanModel planModel = PlanModel.builder().dbName("sales").details(Collections.singletonList(x)).build();
+    Path path = this.folder.getRoot().toPath().resolve("plan.boundaries");
+
+    assertTrue(PlanWriter.writeBoundaries(path.toString(), planModel, "%"));
+    assertEquals(Collections.singletonList("[dbo].[Orders]%Order]Id%SELECT 1, 100"
+        + "%[Order]]Id] < 50 OR [Order]]Id] IS NULL%[Order]]Id] >= 50"),
+      Files.readAllLines(path, StandardCharsets.UTF_8));
+  }
+}
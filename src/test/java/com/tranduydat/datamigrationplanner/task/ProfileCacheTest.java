@@ -0,0 +1,143 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.model.ProfileCacheEntryModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import com.tranduydat.datamigrationplanner.model.TableModel;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests of ProfileCache: fingerprints, max age and incomplete profiles.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ProfileCacheTest {
+  private static final String SETTINGS = "row_count_mode=exact";
+  private static final String TABLE_KEY = "[dbo].[Orders]";
+  private static final int MAX_AGE_HOURS = 168;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path path;
+
+  @Before
+  public void setUp() {
+    this.path = this.folder.getRoot().toPath().resolve("profile.cache");
+  }
+
+  private static TableFingerprintModel fingerprint(long rowCount) {
+    return TableFingerprintModel.builder()
+      .modifyDate(LocalDateTime.of(2023, 7, 1, 0, 0))
+      .rowCount(rowCount)
+      .statsDate(LocalDateTime.of(2023, 7, 2, 0, 0))
+      .build();
+  }
+
+  private static ProfileCacheEntryModel entry(long rowCount, LocalDateTime profiledAt, boolean incomplete) {
+    TableModel tableModel = TableModel.builder()
+      .columnNames(new String[]{"OrderId"})
+      .distinctCounts(new long[]{rowCount})
+      .totalCount(rowCount)
+      .incomplete(incomplete)
+      .build();
+    return ProfileCacheEntryModel.builder()
+      .fingerprint(fingerprint(rowCount))
+      .tableModel(tableModel)
+      .profiledAt(profiledAt)
+      .build();
+  }
+
+  private ProfileCache saveAndLoad(ProfileCacheEntryModel entry) {
+    ProfileCache cache = ProfileCache.load(this.path, SETTINGS);
+    cache.put(TABLE_KEY, entry);
+    cache.save();
+    return ProfileCache.load(this.path, SETTINGS);
+  }
+
+  @Test
+  public void getReturnsTheProfileOfAnUnchangedTable() {
+    ProfileCache cache = this.saveAndLoad(entry(100, LocalDateTime.now(), false));
+    TableModel tableModel = cache.get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS);
+    assertNotNull(tableModel);
+    assertEquals(100, tableModel.getTotalCount());
+  }
+
+  @Test
+  public void getMissesWhenTheFingerprintChangedOrIsUnknown() {
+    ProfileCache cache = this.saveAndLoad(entry(100, LocalDateTime.now(), false));
+    assertNull(cache.get(TABLE_KEY, fingerprint(101), MAX_AGE_HOURS));
+    assertNull(cache.get(TABLE_KEY, null, MAX_AGE_HOURS));
+    assertNull(cache.get("[dbo].[Customers]", fingerprint(100), MAX_AGE_HOURS));
+  }
+
+  @Test
+  public void getMissesWhenTheProfileIsTooOld() {
+    ProfileCache cache = this.saveAndLoad(entry(100, LocalDateTime.now().minusHours(MAX_AGE_HOURS + 1), false));
+    assertNull(cache.get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS));
+    assertNotNull(cache.get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS + 2));
+  }
+
+  @Test
+  public void putRefusesIncompleteProfilesAndProfilesWithoutFingerprint() {
+    ProfileCache cache = this.saveAndLoad(entry(100, LocalDateTime.now(), true));
+    assertNull(cache.get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS));
+
+    ProfileCacheEntryModel withoutFingerprint = entry(100, LocalDateTime.now(), false);
+    withoutFingerprint.setFingerprint(null);
+    cache = this.saveAndLoad(withoutFingerprint);
+    assertNull(cache.get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS));
+  }
+
+  @Test
+  public void getRefusesAnIncompleteProfileInTheCacheFile() throws IOException {
+    // As written by a version that cached incomplete profiles
+    Map<String, ProfileCacheEntryModel> entries = new HashMap<>();
+    entries.put(TABLE_KEY, entry(100, LocalDateTime.now(), true));
+    try (OutputStream out = Files.newOutputStream(this.path);
+         ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(SETTINGS);
+      oos.writeObject(entries);
+    }
+    assertNull(ProfileCache.load(this.path, SETTINGS).get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS));
+  }
+
+  @Test
+  public void loadIgnoresACacheMadeWithOtherSettings() {
+    this.saveAndLoad(entry(100, LocalDateTime.now(), false));
+    ProfileCache cache = ProfileCache.load(this.path, "row_count_mode=stats");
+    assertNull(cache.get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS));
+  }
+
+  @Test
+  public void loadIgnoresABrokenCacheFile() throws IOException {
+    Files.write(this.path, new byte[]{1, 2, 3});
+    ProfileCache cache = ProfileCache.load(this.path, SETTINGS);
+    assertNull(cache.get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS));
+  }
+
+  @Test
+  public void saveLeavesOutTablesThatWereNeitherHitNorPut() {
+    ProfileCache cache = this.saveAndLoad(entry(100, LocalDateTime.now(), false));
+    // The table is not looked up, e.g. it was dropped, so the next cache file does not have it
+    cache.save();
+    assertNull(ProfileCache.load(this.path, SETTINGS).get(TABLE_KEY, fingerprint(100), MAX_AGE_HOURS));
+  }
+}
@@ -0,0 +1,159 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.model.ProfileCacheEntryModel;
+import com.tranduydat.datamigrationplanner.model.TableFingerprintModel;
+import com.tranduydat.datamigrationplanner.model.TableModel;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of ProfileJournal: replaying, cutting off a torn tail and starting over.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class ProfileJournalTest {
+  private static final String SETTINGS = "db=Sales,row_count_mode=exact";
+  private static final String ORDERS = "[dbo].[Orders]";
+  private static final String CUSTOMERS = "[dbo].[Customers]";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path path;
+
+  @Before
+  public void setUp() {
+    this.path = ProfileJournal.pathOf(this.folder.getRoot().toPath().resolve("plan.txt").toString());
+  }
+
+  private static TableFingerprintModel fingerprint(long rowCount) {
+    return TableFingerprintModel.builder()
+      .modifyDate(LocalDateTime.of(2023, 7, 1, 0, 0))
+      .rowCount(rowCount)
+      .build();
+  }
+
+  private static ProfileCacheEntryModel entry(long rowCount) {
+    return ProfileCacheEntryModel.builder()
+      .fingerprint(fingerprint(rowCount))
+      .tableModel(TableModel.builder().columnNames(new String[]{"Id"}).distinctCounts(new long[]{rowCount})
+        .totalCount(rowCount).build())
+      .profiledAt(LocalDateTime.now())
+      .build();
+  }
+
+  private void writeJournal() throws IOException {
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, false)) {
+      journal.append(ORDERS, entry(100));
+      journal.append(CUSTOMERS, entry(200));
+    }
+  }
+
+  @Test
+  public void pathOfIsNextToThePlan() {
+    assertEquals(Paths.get("out/plan.txt.journal"), ProfileJournal.pathOf("out/plan.txt"));
+  }
+
+  @Test
+  public void openReplaysTheTablesOfAPreviousRun() throws IOException {
+    this.writeJournal();
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, true)) {
+      assertEquals(100, journal.getReplayedEntry(ORDERS, fingerprint(100)).getTableModel().getTotalCount());
+      assertEquals(200, journal.getReplayedEntry(CUSTOMERS, fingerprint(200)).getTableModel().getTotalCount());
+    }
+  }
+
+  @Test
+  public void getReplayedEntryMissesATableThatChanged() throws IOException {
+    this.writeJournal();
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, true)) {
+      assertNull(journal.getReplayedEntry(ORDERS, fingerprint(101)));
+      assertNull(journal.getReplayedEntry(ORDERS, null));
+      assertNull(journal.getReplayedEntry("[dbo].[Products]", fingerprint(100)));
+    }
+  }
+
+  @Test
+  public void openCutsOffATornLastRecord() throws IOException {
+    this.writeJournal();
+    long size = Files.size(this.path);
+    // As if the run was killed while the last record was being written
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 10);
+    }
+
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, true)) {
+      assertNotNull(journal.getReplayedEntry(ORDERS, fingerprint(100)));
+      assertNull(journal.getReplayedEntry(CUSTOMERS, fingerprint(200)));
+      // The table is journaled again after the valid part, not after the torn bytes
+      journal.append(CUSTOMERS, entry(200));
+    }
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, true)) {
+      assertNotNull(journal.getReplayedEntry(ORDERS, fingerprint(100)));
+      assertNotNull(journal.getReplayedEntry(CUSTOMERS, fingerprint(200)));
+    }
+  }
+
+  @Test
+  public void openCutsOffABrokenLength() throws IOException {
+    this.writeJournal();
+    long size = Files.size(this.path);
+    Files.write(this.path, new byte[]{(byte) 0xFF, 0, 0, 0, 1, 2}, StandardOpenOption.APPEND);
+
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, true)) {
+      assertNotNull(journal.getReplayedEntry(CUSTOMERS, fingerprint(200)));
+    }
+    assertEquals(size, Files.size(this.path));
+  }
+
+  @Test
+  public void openStartsOverWhenTheSettingsChanged() throws IOException {
+    this.writeJournal();
+    try (ProfileJournal journal = ProfileJournal.open(this.path, "db=Sales,row_count_mode=stats", true)) {
+      assertNull(journal.getReplayedEntry(ORDERS, fingerprint(100)));
+    }
+  }
+
+  @Test
+  public void openMovesAPreviousJournalAsideWithoutResume() throws IOException {
+    this.writeJournal();
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, false)) {
+      assertNull(journal.getReplayedEntry(ORDERS, fingerprint(100)));
+    }
+    Path oldPath = Paths.get(this.path + ".old");
+    assertTrue(Files.isRegularFile(oldPath));
+    // The journal moved aside can still be resumed by hand
+    Files.move(oldPath, this.path, StandardCopyOption.REPLACE_EXISTING);
+    try (ProfileJournal journal = ProfileJournal.open(this.path, SETTINGS, true)) {
+      assertNotNull(journal.getReplayedEntry(ORDERS, fingerprint(100)));
+    }
+  }
+
+  @Test
+  public void disabledJournalWritesNothing() throws IOException {
+    try (ProfileJournal journal = ProfileJournal.disabled(this.path)) {
+      journal.append(ORDERS, entry(100));
+      assertNull(journal.getReplayedEntry(ORDERS, fingerprint(100)));
+    }
+    assertFalse(Files.exists(this.path));
+  }
+}
@@ -0,0 +1,75 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import com.tranduydat.datamigrationplanner.model.HistogramBucketModel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests of SplitScorer.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class SplitScorerTest {
+  private static final double DELTA = 1e-9;
+
+  private static HistogramBucketModel bucket(double lowValue, double highValue, long rows) {
+    return HistogramBucketModel.builder().lowValue(lowValue).highValue(highValue).rows(rows).build();
+  }
+
+  @Test
+  public void balanceIsOneForAnEvenHistogram() {
+    List<HistogramBucketModel> histogram = Arrays.asList(
+      bucket(0, 25, 25), bucket(25, 50, 25), bucket(50, 75, 25), bucket(75, 100, 25));
+    assertEquals(1, SplitScorer.balance(histogram, 0, 100, 4), DELTA);
+  }
+
+  @Test
+  public void balanceSharesTheRowsOfABucketBetweenTheRangesItOverlaps() {
+    // Each bucket straddles two ranges of 25, so each mapper gets 5 rows
+    List<HistogramBucketModel> histogram = Arrays.asList(bucket(20, 30, 10), bucket(70, 80, 10));
+    assertEquals(1, SplitScorer.balance(histogram, 0, 100, 4), DELTA);
+  }
+
+  @Test
+  public void balanceIsTheAverageMapperOverTheBusiestMapper() {
+    List<HistogramBucketModel> histogram = Arrays.asList(bucket(0, 10, 90), bucket(90, 100, 10));
+    assertEquals(100.0 / 4 / 90, SplitScorer.balance(histogram, 0, 100, 4), DELTA);
+  }
+
+  @Test
+  public void balanceOfASingleValueIsOneOverTheMappers() {
+    List<HistogramBucketModel> histogram = Collections.singletonList(bucket(50, 50, 100));
+    assertEquals(0.25, SplitScorer.balance(histogram, 0, 100, 4), DELTA);
+  }
+
+  @Test
+  public void balanceClampsBucketsToTheMinAndMax() {
+    // Rows outside [min, max] are counted in the first or last range
+    List<HistogramBucketModel> histogram = Arrays.asList(bucket(-50, -10, 60), bucket(110, 150, 40));
+    assertEquals(100.0 / 2 / 60, SplitScorer.balance(histogram, 0, 100, 2), DELTA);
+  }
+
+  @Test
+  public void balanceIsOneWithoutAHistogramOrRange() {
+    List<HistogramBucketModel> histogram = Collections.singletonList(bucket(0, 10, 100));
+    assertEquals(1, SplitScorer.balance(Collections.emptyList(), 0, 100, 4), DELTA);
+    assertEquals(1, SplitScorer.balance(histogram, 0, 100, 1), DELTA);
+    assertEquals(1, SplitScorer.balance(histogram, 100, 100, 4), DELTA);
+  }
+
+  @Test
+  public void scoreWeighsTheBalanceByDataType() {
+    assertEquals(0.8, SplitScorer.score("int", 0.8), DELTA);
+    assertEquals(0.8, SplitScorer.score("BIGINT", 0.8), DELTA);
+    assertEquals(0.9 * 0.8, SplitScorer.score("decimal", 0.8), DELTA);
+    assertEquals(0.8 * 0.8, SplitScorer.score("datetime2", 0.8), DELTA);
+    assertEquals(0.3 * 0.8, SplitScorer.score("nvarchar", 0.8), DELTA);
+  }
+}
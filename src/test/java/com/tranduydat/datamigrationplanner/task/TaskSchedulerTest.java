@@ -0,0 +1,197 @@
+package com.tranduydat.datamigrationplanner.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of TaskScheduler: task order, heavy task and parallelism limits, and cancelled tasks.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class TaskSchedulerTest {
+  private static final String INSTANCE = "host:1433";
+  private static final long TIMEOUT_SECONDS = 10;
+  private final List<TaskScheduler> schedulers = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    this.schedulers.forEach(TaskScheduler::shutdown);
+  }
+
+  private TaskScheduler scheduler(int parallelism, int instanceParallelism, int maxHeavyTasks) {
+    TaskScheduler scheduler = new TaskScheduler(parallelism, instanceParallelism, maxHeavyTasks);
+    this.schedulers.add(scheduler);
+    return scheduler;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue("Timed out", latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void getAll(List<Future<?>> futures) throws Exception {
+    for (Future<?> future : futures) {
+      future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Submits a task that holds the only worker of the instance until it is released.
+   */
+  private static Future<?> block(TaskScheduler scheduler, CountDownLatch release) {
+    CountDownLatch started = new CountDownLatch(1);
+    Future<?> future = scheduler.submit(INSTANCE, () -> {
+      started.countDown();
+      await(release);
+    });
+    await(started);
+    return future;
+  }
+
+  /**
+   * Counts the tasks running at once, and keeps the highest count.
+   */
+  private static Runnable counted(AtomicInteger running, AtomicInteger maxRunning, long millis) {
+    return () -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+    };
+  }
+
+  @Test
+  public void runsTheBiggestTaskFirstThenBySubmission() throws Exception {
+    TaskScheduler scheduler = this.scheduler(1, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    futures.add(block(scheduler, release));
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    futures.add(scheduler.submit(INSTANCE, 1, false, () -> order.add("small")));
+    futures.add(scheduler.submit(INSTANCE, 3, false, () -> order.add("big")));
+    futures.add(scheduler.submit(INSTANCE, 2, false, () -> order.add("medium_a")));
+    futures.add(scheduler.submit(INSTANCE, 2, false, () -> order.add("medium_b")));
+    release.countDown();
+    getAll(futures);
+
+    assertEquals(Arrays.asList("big", "medium_a", "medium_b", "small"), order);
+  }
+
+  @Test
+  public void runsLightTasksWhileTheHeavyTasksAreAtTheirLimit() throws Exception {
+    TaskScheduler scheduler = this.scheduler(3, 3, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch lightDone = new CountDownLatch(2);
+    AtomicInteger runningHeavy = new AtomicInteger();
+    AtomicInteger maxRunningHeavy = new AtomicInteger();
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      futures.add(scheduler.submit(INSTANCE, 1000, true, () -> {
+        maxRunningHeavy.accumulateAndGet(runningHeavy.incrementAndGet(), Math::max);
+        await(release);
+        runningHeavy.decrementAndGet();
+      }));
+    }
+    for (int i = 0; i < 2; i++) {
+      futures.add(scheduler.submit(INSTANCE, 1, false, lightDone::countDown));
+    }
+
+    // The light tasks run although a heavy task holds a worker and the other waits
+    await(lightDone);
+    assertEquals(1, maxRunningHeavy.get());
+    release.countDown();
+    getAll(futures);
+    assertEquals(1, maxRunningHeavy.get());
+  }
+
+  @Test
+  public void boundsTheTasksOverAllInstances() throws Exception {
+    TaskScheduler scheduler = this.scheduler(2, 4, 1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      futures.add(scheduler.submit("host" + (i % 3) + ":1433", counted(running, maxRunning, 20)));
+    }
+    getAll(futures);
+    assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  public void boundsTheTasksOfAnInstanceToItsLimit() throws Exception {
+    TaskScheduler scheduler = this.scheduler(8, 4, 1);
+    scheduler.setInstanceLimit(INSTANCE, 1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      futures.add(scheduler.submit(INSTANCE, counted(running, maxRunning, 20)));
+    }
+    getAll(futures);
+    assertEquals(1, maxRunning.get());
+  }
+
+  @Test
+  public void keepsTheWorkerAfterACancelledTask() throws Exception {
+    TaskScheduler scheduler = this.scheduler(1, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> cancelled = block(scheduler, release);
+    cancelled.cancel(true);
+
+    AtomicInteger interrupted = new AtomicInteger();
+    Future<?> next = scheduler.submit(INSTANCE, () -> {
+      if (Thread.currentThread().isInterrupted()) {
+        interrupted.incrementAndGet();
+      }
+    });
+    next.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertTrue(cancelled.isCancelled());
+    // The interrupt of the cancelled task does not reach the next one
+    assertEquals(0, interrupted.get());
+  }
+
+  @Test(expected = CancellationException.class)
+  public void getOfACancelledTaskThrows() throws Exception {
+    TaskScheduler scheduler = this.scheduler(1, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    block(scheduler, release);
+    Future<?> waiting = scheduler.submit(INSTANCE, () -> {
+    });
+    waiting.cancel(false);
+    release.countDown();
+    waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void submitAfterShutdownThrows() {
+    TaskScheduler scheduler = this.scheduler(1, 1, 1);
+    scheduler.shutdown();
+    scheduler.submit(INSTANCE, () -> {
+    });
+  }
+}
@@ -0,0 +1,48 @@
+package com.tranduydat.datamigrationplanner.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests of JsonUtil: quoting values, and reading them back.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class JsonUtilTest {
+  @Test
+  public void quoteEscapesQuotesBackslashesAndControlCharacters() {
+    assertEquals("\"[dbo].[Orders]\"", JsonUtil.quote("[dbo].[Orders]"));
+    assertEquals("\"a\\\"b\\\\c\\u000ad\\u0009\"", JsonUtil.quote("a\"b\\c\nd\t"));
+    assertEquals("null", JsonUtil.quote(null));
+  }
+
+  @Test
+  public void getValueReadsStringsNumbersAndNulls() {
+    String json = "{\"table\": \"[dbo].[Orders]\", \"split_column\": null, \"row_count\": 1200, \"split_score\": 0.75}";
+    assertEquals("[dbo].[Orders]", JsonUtil.getValue(json, "table"));
+    assertNull(JsonUtil.getValue(json, "split_column"));
+    assertEquals("1200", JsonUtil.getValue(json, "row_count"));
+    assertEquals("0.75", JsonUtil.getValue(json, "split_score"));
+    assertNull(JsonUtil.getValue(json, "reason"));
+  }
+
+  @Test
+  public void getValueReadsBackQuotedValues() {
+    String[] values = {"Order\"s", "a\\b", "line\nbreak", "tab\tand\u0001", "", "caf\u00e9"};
+    for (String value : values) {
+      String json = "{\"table\": " + JsonUtil.quote(value) + ", \"reason\": \"x\"}";
+      assertEquals(value, JsonUtil.getValue(json, "table"));
+      assertEquals("x", JsonUtil.getValue(json, "reason"));
+    }
+  }
+
+  @Test
+  public void getValueReadsTheLastValueOfAnObject() {
+    assertEquals("42", JsonUtil.getValue("{\"row_count\":42}", "row_count"));
+    assertNull(JsonUtil.getValue("{\"row_count\": ", "row_count"));
+  }
+}
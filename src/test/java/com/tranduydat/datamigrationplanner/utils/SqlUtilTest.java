@@ -0,0 +1,74 @@
+package com.tranduydat.datamigrationplanner.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of SqlUtil: quoting names, and the round trip of table keys.
+ *
+ * @author Dat Tran (dattd6)
+ * @version 0.1
+ * @since 2023/07/13
+ */
+public class SqlUtilTest {
+  @Test
+  public void quoteNameDoublesClosingBrackets() {
+    assertEquals("[Orders]", SqlUtil.quoteName("Orders"));
+    assertEquals("[Order]]s]", SqlUtil.quoteName("Order]s"));
+    assertEquals("[[x]]]", SqlUtil.quoteName("[x]"));
+    assertEquals("[]", SqlUtil.quoteName(""));
+  }
+
+  @Test
+  public void objectNameAndLiteral() {
+    assertEquals("[sa]]es].[dbo].[Order]]s]", SqlUtil.objectName("sa]es", "dbo", "Order]s"));
+    assertEquals("N'[dbo].[it''s]'", SqlUtil.quoteLiteral(SqlUtil.tableKey("dbo", "it's")));
+  }
+
+  @Test
+  public void tableKeyRoundTrips() {
+    String[][] names = {
+      {"dbo", "Orders"},
+      {"dbo", "Order]s"},
+      {"a.b", "c"},
+      {"a", "b.c"},
+      {"[dbo]", "[Orders]"},
+      {"]]", "]."},
+      {"sch ema", "ta'ble"},
+      {"", ""},
+    };
+    for (String[] schemaAndTable : names) {
+      String tableKey = SqlUtil.tableKey(schemaAndTable[0], schemaAndTable[1]);
+      assertArrayEquals(tableKey, schemaAndTable, SqlUtil.splitTableKey(tableKey));
+    }
+    assertEquals("[dbo].[Order]]s]", SqlUtil.tableKey("dbo", "Order]s"));
+  }
+
+  @Test
+  public void malformedTableKeysThrow() {
+    String[] tableKeys = {
+      "",
+      "dbo.Orders",
+      "[dbo]",
+      "[dbo].",
+      "[dbo].Orders",
+      "[dbo][Orders]",
+      "[dbo].[Orders",
+      "[dbo].[Order]s]",
+      "[dbo].[Orders].[x]",
+      "[dbo].[Orders] ",
+      "[dbo.[Orders]",
+    };
+    for (String tableKey : tableKeys) {
+      try {
+        SqlUtil.splitTableKey(tableKey);
+        fail("Must throw: " + tableKey);
+      } catch (IllegalArgumentException e) {
+        assertEquals("Invalid table key: " + tableKey, e.getMessage());
+      }
+    }
+  }
+}